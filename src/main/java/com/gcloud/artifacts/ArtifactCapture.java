@@ -0,0 +1,191 @@
+package com.gcloud.artifacts;
+
+import com.gcloud.helpers.Scripts;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Captures failure artifacts without keeping the failing test, and with it its
+ * browser, busy. On the test thread it only grabs raw data: the screenshot as
+ * the driver's base64 string, the DOM with open shadow roots, the progress bar
+ * text, browser console logs and the {@link FlightRecorder} buffer. Decoding,
+ * gzip and disk writes run on a single background thread.
+ * <p>
+ * The write queue is bounded. When it is full, the failing thread writes its
+ * own artifacts instead of queuing more, so a burst of failures cannot use
+ * unbounded memory.
+ */
+public class ArtifactCapture {
+
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path directory;
+    private final ThreadPoolExecutor writer;
+    private final AtomicLong captures = new AtomicLong();
+    private final AtomicLong foregroundNanos = new AtomicLong();
+    private final AtomicLong backgroundNanos = new AtomicLong();
+    private final AtomicLong backpressured = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+
+    /**
+     * @param queueCapacity captures that may wait for the writer before failing threads write their own
+     */
+    public ArtifactCapture(Path directory, int queueCapacity) {
+        this.directory = directory;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "artifact-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> {
+                    backpressured.incrementAndGet();
+                    task.run();
+                });
+    }
+
+    /**
+     * Grabs the raw artifacts of a failed test and queues them for writing.
+     *
+     * @param driver   the test's driver, or null when it is already gone
+     * @param recorder the test thread's recorder, or null
+     * @return the time the test thread spent, in nanoseconds
+     */
+    public long capture(String test, WebDriver driver, FlightRecorder recorder, Throwable failure) {
+        long start = System.nanoTime();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("test", test);
+        summary.put("failure", failure != null ? failure.toString() : null);
+        List<String> errors = new ArrayList<>();
+
+        String screenshot = null;
+        Map<?, ?> dom = null;
+        List<LogEntry> console = List.of();
+        if (driver != null) {
+            try {
+                screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BASE64);
+            } catch (RuntimeException e) {
+                errors.add("screenshot: " + e.getMessage());
+            }
+            try {
+                dom = (Map<?, ?>) ((JavascriptExecutor) driver).executeScript(Scripts.load("capture-dom.js"));
+            } catch (RuntimeException e) {
+                errors.add("dom: " + e.getMessage());
+            }
+            try {
+                console = driver.manage().logs().get(LogType.BROWSER).getAll();
+            } catch (RuntimeException e) {
+                errors.add("console: " + e.getMessage());
+            }
+        }
+        List<Map<String, Object>> actions = recorder != null ? recorder.snapshot() : List.of();
+        long foreground = System.nanoTime() - start;
+
+        long number = captures.incrementAndGet();
+        foregroundNanos.addAndGet(foreground);
+        summary.put("foregroundMillis", foreground / 1_000_000);
+        summary.put("errors", errors);
+        Path target = directory.resolve(safeName(test) + "-" + LocalDateTime.now().format(STAMP) + "-" + number);
+        String base64 = screenshot;
+        Map<?, ?> page = dom;
+        List<LogEntry> logs = console;
+        writer.execute(() -> write(target, summary, base64, page, logs, actions));
+        return foreground;
+    }
+
+    /**
+     * Waits for queued captures to be written.
+     */
+    public void shutdown(Duration timeout) {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                System.out.println("[artifacts] " + writer.getQueue().size() + " capture(s) not written within "
+                        + timeout.toSeconds() + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("captures", captures.get());
+        stats.put("foregroundMillis", foregroundNanos.get() / 1_000_000);
+        stats.put("backgroundMillis", backgroundNanos.get() / 1_000_000);
+        stats.put("backpressured", backpressured.get());
+        stats.put("bytesWritten", bytesWritten.get());
+        stats.put("writeFailures", writeFailures.get());
+        return stats;
+    }
+
+    private void write(Path target, Map<String, Object> summary, String screenshot, Map<?, ?> dom,
+                       List<LogEntry> console, List<Map<String, Object>> actions) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(target);
+            if (screenshot != null) {
+                byte[] png = Base64.getDecoder().decode(screenshot);
+                Files.write(target.resolve("screenshot.png"), png);
+                bytesWritten.addAndGet(png.length);
+            }
+            if (dom != null) {
+                summary.put("url", dom.get("url"));
+                summary.put("title", dom.get("title"));
+                summary.put("progress", dom.get("progress"));
+                gzip(target.resolve("dom.html.gz"), String.valueOf(dom.get("html")));
+            }
+            StringBuilder log = new StringBuilder();
+            for (LogEntry entry : console) {
+                log.append(entry.getTimestamp()).append(' ').append(entry.getLevel()).append(' ')
+                        .append(entry.getMessage()).append('\n');
+            }
+            gzip(target.resolve("console.log.gz"), log.toString());
+            summary.put("actions", actions);
+            gzip(target.resolve("summary.json.gz"), new Json().toJson(summary));
+            System.out.println("[artifacts] " + summary.get("test") + " written to " + target);
+        } catch (IOException | RuntimeException e) {
+            writeFailures.incrementAndGet();
+            System.out.println("[artifacts] Failed to write " + target + ": " + e.getMessage());
+        } finally {
+            backgroundNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void gzip(Path file, String content) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        bytesWritten.addAndGet(Files.size(file));
+    }
+
+    private static String safeName(String test) {
+        return test.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
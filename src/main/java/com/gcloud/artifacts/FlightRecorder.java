@@ -0,0 +1,160 @@
+package com.gcloud.artifacts;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded in-memory ring buffer of the last actions of one test thread:
+ * WebDriver commands seen through {@code EventFiringDecorator}, flow stages
+ * and progress changes. Recording costs no browser round trip. The buffer is
+ * only read when a test fails, so it shows what led up to the failure.
+ * <p>
+ * Page objects and helpers add entries through {@link #note(String, String)},
+ * which does nothing on threads without a recorder. Typed text is never kept,
+ * only its length.
+ */
+public class FlightRecorder implements WebDriverListener {
+
+    private static final ThreadLocal<FlightRecorder> CURRENT = new ThreadLocal<>();
+    private static final Set<String> SKIPPED_METHODS = Set.of(
+            "manage", "navigate", "switchTo", "timeouts", "window", "logs",
+            "getWrappedDriver", "getWrappedElement", "getPinnedScripts",
+            "toString", "hashCode", "equals");
+    private static final int DETAIL_LENGTH = 120;
+
+    private final Entry[] entries;
+    private int next;
+    private long recorded;
+    private long overheadNanos;
+
+    public FlightRecorder(int capacity) {
+        this.entries = new Entry[Math.max(1, capacity)];
+    }
+
+    /**
+     * Binds a new recorder to the current thread and returns it.
+     */
+    public static FlightRecorder begin(int capacity) {
+        FlightRecorder recorder = new FlightRecorder(capacity);
+        CURRENT.set(recorder);
+        return recorder;
+    }
+
+    public static FlightRecorder current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Records an entry on the current thread's recorder, if there is one.
+     */
+    public static void note(String kind, String detail) {
+        FlightRecorder recorder = CURRENT.get();
+        if (recorder != null) {
+            recorder.add(kind, detail);
+        }
+    }
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        if (SKIPPED_METHODS.contains(method.getName())) {
+            return;
+        }
+        long start = System.nanoTime();
+        record("command", method.getName() + describe(method.getName(), args), start);
+    }
+
+    public void add(String kind, String detail) {
+        record(kind, detail, System.nanoTime());
+    }
+
+    private synchronized void record(String kind, String detail, long startNanos) {
+        String text = detail == null ? "" : detail.length() > DETAIL_LENGTH ? detail.substring(0, DETAIL_LENGTH) + "..." : detail;
+        entries[next] = new Entry(System.currentTimeMillis(), kind, text);
+        next = (next + 1) % entries.length;
+        recorded++;
+        overheadNanos += System.nanoTime() - startNanos;
+    }
+
+    /**
+     * The buffered entries, oldest first.
+     */
+    public synchronized List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            Entry entry = entries[(next + i) % entries.length];
+            if (entry != null) {
+                list.add(entry.toMap());
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Entries recorded so far, including those the buffer has since dropped.
+     */
+    public synchronized long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Time spent recording on the test thread.
+     */
+    public synchronized long getOverheadNanos() {
+        return overheadNanos;
+    }
+
+    private static String describe(String method, Object[] args) {
+        if (args == null || args.length == 0) {
+            return "()";
+        }
+        if (method.equals("sendKeys")) {
+            int length = 0;
+            for (Object arg : args) {
+                if (arg instanceof CharSequence[]) {
+                    for (CharSequence keys : (CharSequence[]) arg) {
+                        length += keys.length();
+                    }
+                }
+            }
+            return "(" + length + " chars)";
+        }
+        Object first = args[0];
+        if (first instanceof By || first instanceof String || first instanceof Number) {
+            String text = String.valueOf(first);
+            text = text.length() > DETAIL_LENGTH ? text.substring(0, DETAIL_LENGTH) : text;
+            return "(" + text.replaceAll("\\s+", " ") + ")";
+        }
+        return "(" + args.length + " args)";
+    }
+
+    private static class Entry {
+        private final long at;
+        private final String kind;
+        private final String detail;
+
+        Entry(long at, String kind, String detail) {
+            this.at = at;
+            this.kind = kind;
+            this.detail = detail;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("at", at);
+            map.put("kind", kind);
+            map.put("detail", detail);
+            return map;
+        }
+    }
+}
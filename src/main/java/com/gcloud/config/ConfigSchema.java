@@ -0,0 +1,139 @@
+package com.gcloud.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The keys a configuration may contain, with their types and defaults.
+ * Resolved against a schema, a {@link ConfigSnapshot} rejects values that do
+ * not parse or lack a required key, and reports keys the schema does not know.
+ * <p>
+ * Besides fixed keys, a schema can hold numbered groups such as
+ * {@code pool.1.user_email}, and aliases: names that some files use for a key.
+ */
+public class ConfigSchema {
+
+    public enum Type { STRING, BOOLEAN, INT, LONG, DOUBLE, LIST }
+
+    private final Map<String, Key> keys = new LinkedHashMap<>();
+    private final Map<String, String> aliases = new LinkedHashMap<>();
+    private final Map<String, String> requiredUnless = new LinkedHashMap<>();
+    private final List<Group> groups = new ArrayList<>();
+
+    /**
+     * Adds a key.
+     *
+     * @param defaultValue the value when no source sets one, or null for none
+     */
+    public ConfigSchema key(String name, Type type, String defaultValue) {
+        keys.put(name, new Key(name, type, defaultValue, List.of()));
+        return this;
+    }
+
+    /**
+     * Adds a string key restricted to the given values. The first one is the default.
+     */
+    public ConfigSchema choice(String name, String... values) {
+        keys.put(name, new Key(name, Type.STRING, values[0], Arrays.asList(values)));
+        return this;
+    }
+
+    /**
+     * Accepts {@code alias} for {@code key}, reporting that it should be renamed.
+     */
+    public ConfigSchema alias(String alias, String key) {
+        aliases.put(alias, key);
+        return this;
+    }
+
+    /**
+     * Requires a non-blank value for {@code key} unless the boolean key
+     * {@code unlessFlag} is true. A null flag makes the key always required.
+     */
+    public ConfigSchema required(String key, String unlessFlag) {
+        requiredUnless.put(key, unlessFlag);
+        return this;
+    }
+
+    /**
+     * Accepts the string keys {@code prefix.N.suffix} for any number N, read
+     * from the environment as {@code PREFIX_N_SUFFIX}.
+     */
+    public ConfigSchema indexed(String prefix, String... suffixes) {
+        groups.add(new Group(prefix, String.join("|", suffixes)));
+        return this;
+    }
+
+    Key get(String name) {
+        return keys.get(name);
+    }
+
+    Map<String, Key> keys() {
+        return Collections.unmodifiableMap(keys);
+    }
+
+    Map<String, String> aliases() {
+        return Collections.unmodifiableMap(aliases);
+    }
+
+    Map<String, String> requiredKeys() {
+        return Collections.unmodifiableMap(requiredUnless);
+    }
+
+    boolean isIndexed(String name) {
+        return groups.stream().anyMatch(g -> g.key.matcher(name).matches());
+    }
+
+    /**
+     * The indexed key an environment variable sets, or null.
+     */
+    String indexedKeyOfEnv(String variable) {
+        for (Group group : groups) {
+            Matcher matcher = group.env.matcher(variable);
+            if (matcher.matches()) {
+                return group.prefix + "." + matcher.group(1) + "." + matcher.group(2).toLowerCase(Locale.ROOT);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The environment variable that sets a key: upper case, dots as underscores.
+     */
+    public static String envName(String key) {
+        return key.toUpperCase(Locale.ROOT).replace(".", "_");
+    }
+
+    private static class Group {
+        final String prefix;
+        final Pattern key;
+        final Pattern env;
+
+        Group(String prefix, String suffixes) {
+            this.prefix = prefix;
+            this.key = Pattern.compile(Pattern.quote(prefix) + "\\.(\\d+)\\.(" + suffixes + ")");
+            this.env = Pattern.compile(Pattern.quote(envName(prefix)) + "_(\\d+)_(" + suffixes.toUpperCase(Locale.ROOT) + ")");
+        }
+    }
+
+    static class Key {
+        final String name;
+        final Type type;
+        final String defaultValue;
+        final List<String> choices;
+
+        Key(String name, Type type, String defaultValue, List<String> choices) {
+            this.name = name;
+            this.type = type;
+            this.defaultValue = defaultValue;
+            this.choices = choices;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.gcloud.config;
+
+import com.gcloud.config.ConfigSchema.Key;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Configuration resolved once from all of its sources, then read by every
+ * thread without locking. Later sources win:
+ * <ol>
+ * <li>defaults from the {@link ConfigSchema}</li>
+ * <li>{@code <name>.properties} on the classpath</li>
+ * <li>{@code <name>-<profile>.properties} when a profile is selected</li>
+ * <li>environment variables, named as in {@link ConfigSchema#envName}</li>
+ * <li>system properties with the key's own name</li>
+ * </ol>
+ * Blank values count as unset. Every value is parsed when the snapshot is
+ * built; values that do not parse and missing required keys become
+ * {@link #getProblems() problems}, unknown keys and aliases become
+ * {@link #getWarnings() warnings}. The snapshot does not throw on either, so
+ * callers choose when to fail.
+ */
+public final class ConfigSnapshot {
+
+    /**
+     * Selects the profile, from a system property, environment variable or the base file.
+     */
+    public static final String PROFILE_KEY = "config_profile";
+
+    private final String profile;
+    private final Map<String, String> text;
+    private final Map<String, Object> values;
+    private final Map<String, String> sources;
+    private final List<String> problems;
+    private final List<String> warnings;
+
+    private ConfigSnapshot(String profile, Map<String, String> text, Map<String, Object> values,
+                           Map<String, String> sources, List<String> problems, List<String> warnings) {
+        this.profile = profile;
+        this.text = Collections.unmodifiableMap(new TreeMap<>(text));
+        this.values = Map.copyOf(values);
+        this.sources = Map.copyOf(sources);
+        this.problems = List.copyOf(problems);
+        this.warnings = List.copyOf(warnings);
+    }
+
+    /**
+     * Resolves {@code <name>.properties} and its profile file from the
+     * classpath, the environment and system properties.
+     *
+     * @param profile the profile to use, or null to read it from {@link #PROFILE_KEY};
+     *                only a profile read from there must have its file
+     */
+    public static ConfigSnapshot load(ConfigSchema schema, String name, String profile) {
+        Map<String, String> env = System.getenv();
+        Map<String, String> system = new TreeMap<>();
+        System.getProperties().forEach((key, value) -> system.put(String.valueOf(key), String.valueOf(value)));
+
+        Map<String, Map<String, String>> files = new LinkedHashMap<>();
+        List<String> problems = new ArrayList<>();
+        String baseFile = name + ".properties";
+        Map<String, String> base = readResource(baseFile);
+        if (base != null) {
+            files.put(baseFile, base);
+            System.out.println("Loaded " + baseFile);
+        } else {
+            System.out.println(baseFile + " not found. Falling back to environment variables.");
+        }
+
+        boolean selected = profile == null;
+        if (selected) {
+            profile = firstNonBlank(system.get(PROFILE_KEY), env.get(ConfigSchema.envName(PROFILE_KEY)),
+                    base != null ? base.get(PROFILE_KEY) : null);
+        }
+        if (profile != null) {
+            String profileFile = name + "-" + profile + ".properties";
+            Map<String, String> overrides = readResource(profileFile);
+            if (overrides != null) {
+                files.put(profileFile, overrides);
+                System.out.println("Loaded " + profileFile);
+            } else if (selected) {
+                problems.add("Profile '" + profile + "' is selected but " + profileFile + " is not on the classpath");
+            }
+        }
+        return resolve(schema, profile, files, env, system, problems);
+    }
+
+    /**
+     * Resolves the given sources against a schema.
+     *
+     * @param files file name to its properties, in increasing precedence
+     */
+    public static ConfigSnapshot resolve(ConfigSchema schema, String profile, Map<String, Map<String, String>> files,
+                                         Map<String, String> env, Map<String, String> system) {
+        return resolve(schema, profile, files, env, system, new ArrayList<>());
+    }
+
+    private static ConfigSnapshot resolve(ConfigSchema schema, String profile, Map<String, Map<String, String>> files,
+                                          Map<String, String> env, Map<String, String> system, List<String> problems) {
+        Map<String, String> text = new TreeMap<>();
+        Map<String, String> sources = new TreeMap<>();
+        List<String> warnings = new ArrayList<>();
+
+        files.forEach((file, properties) -> properties.forEach((key, value) -> {
+            String canonical = schema.aliases().get(key);
+            if (canonical != null) {
+                String direct = properties.get(canonical);
+                if (isBlank(value)) {
+                    warnings.add(key + " in " + file + " is an alias of " + canonical + "; rename it");
+                } else if (!isBlank(direct) && !direct.trim().equals(value.trim())) {
+                    problems.add(key + " and " + canonical + " in " + file + " disagree; " + key
+                            + " is an alias of " + canonical + ", keep only " + canonical);
+                } else {
+                    warnings.add(key + " in " + file + " is read as " + canonical + "; rename it");
+                    if (isBlank(direct)) {
+                        put(text, sources, canonical, value, file);
+                    }
+                }
+                return;
+            }
+            if (schema.get(key) == null && !schema.isIndexed(key) && !key.equals(PROFILE_KEY)) {
+                String closest = closest(key, schema);
+                warnings.add("Unknown key " + key + " in " + file + (closest != null ? "; did you mean " + closest + "?" : ""));
+            }
+            put(text, sources, key, value, file);
+        }));
+
+        for (String key : schema.keys().keySet()) {
+            put(text, sources, key, env.get(ConfigSchema.envName(key)), "environment variable " + ConfigSchema.envName(key));
+        }
+        env.forEach((variable, value) -> {
+            String key = schema.indexedKeyOfEnv(variable);
+            if (key != null) {
+                put(text, sources, key, value, "environment variable " + variable);
+            }
+        });
+        system.forEach((key, value) -> {
+            if (schema.get(key) != null || schema.isIndexed(key)) {
+                put(text, sources, key, value, "system property " + key);
+            }
+        });
+
+        Map<String, Object> values = new TreeMap<>();
+        for (Key key : schema.keys().values()) {
+            String value = text.containsKey(key.name) ? text.get(key.name) : key.defaultValue;
+            if (value == null) {
+                continue;
+            }
+            text.put(key.name, value);
+            try {
+                values.put(key.name, parse(key, value.trim()));
+            } catch (IllegalArgumentException e) {
+                problems.add(key.name + "=" + value + (sources.containsKey(key.name) ? " from " + sources.get(key.name) : "")
+                        + ": " + e.getMessage());
+            }
+        }
+
+        schema.requiredKeys().forEach((key, unlessFlag) -> {
+            if (isBlank(text.get(key)) && (unlessFlag == null || !Boolean.TRUE.equals(values.get(unlessFlag)))) {
+                List<String> names = new ArrayList<>();
+                schema.aliases().forEach((alias, canonical) -> {
+                    if (canonical.equals(key)) {
+                        names.add(alias);
+                    }
+                });
+                problems.add("Missing required key " + key + " (environment variable " + ConfigSchema.envName(key)
+                        + (names.isEmpty() ? "" : "; " + String.join(", ", names) + " is only an alias")
+                        + (unlessFlag != null ? "; or set " + unlessFlag + "=true" : "") + ")");
+            }
+        });
+        return new ConfigSnapshot(profile, text, values, sources, problems, warnings);
+    }
+
+    private static void put(Map<String, String> text, Map<String, String> sources, String key, String value, String source) {
+        if (!isBlank(value)) {
+            text.put(key, value.trim());
+            sources.put(key, source);
+        }
+    }
+
+    private static Object parse(Key key, String value) {
+        switch (key.type) {
+            case BOOLEAN:
+                if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                    throw new IllegalArgumentException("expected true or false");
+                }
+                return Boolean.parseBoolean(value);
+            case INT:
+                return Integer.parseInt(value);
+            case LONG:
+                return Long.parseLong(value);
+            case DOUBLE:
+                return Double.parseDouble(value);
+            case LIST:
+                List<String> items = new ArrayList<>();
+                for (String item : value.split(",")) {
+                    if (!item.isBlank()) {
+                        items.add(item.trim());
+                    }
+                }
+                return List.copyOf(items);
+            default:
+                if (!key.choices.isEmpty() && key.choices.stream().noneMatch(value::equalsIgnoreCase)) {
+                    throw new IllegalArgumentException("expected one of " + key.choices);
+                }
+                return value;
+        }
+    }
+
+    /**
+     * The selected profile, or null.
+     */
+    public String getProfile() {
+        return profile;
+    }
+
+    /**
+     * The value of any key as text, including keys the schema does not know, or null.
+     */
+    public String getString(String key) {
+        return text.get(key);
+    }
+
+    public boolean isSet(String key) {
+        return text.containsKey(key);
+    }
+
+    public boolean getBoolean(String key) {
+        return typed(key, Boolean.class);
+    }
+
+    public int getInt(String key) {
+        return typed(key, Integer.class);
+    }
+
+    public long getLong(String key) {
+        return typed(key, Long.class);
+    }
+
+    public double getDouble(String key) {
+        return typed(key, Double.class);
+    }
+
+    /**
+     * The comma-separated items of a list key, or an empty list.
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getList(String key) {
+        Object value = values.get(key);
+        return value instanceof List ? (List<String>) value : List.of();
+    }
+
+    private <T> T typed(String key, Class<T> type) {
+        Object value = values.get(key);
+        if (!type.isInstance(value)) {
+            throw new IllegalArgumentException("Config key " + key + " has no " + type.getSimpleName() + " value"
+                    + (text.containsKey(key) ? ": " + text.get(key) : ""));
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * Where a key's value came from, or null when it is a default.
+     */
+    public String getSource(String key) {
+        return sources.get(key);
+    }
+
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    @Override
+    public String toString() {
+        Map<String, Integer> counts = new TreeMap<>();
+        sources.values().forEach(source -> counts.merge(source.startsWith("environment") ? "environment"
+                : source.startsWith("system") ? "system properties" : source, 1, Integer::sum));
+        return "profile=" + (profile != null ? profile : "none") + ", keys set by " + counts
+                + ", " + problems.size() + " problem(s), " + warnings.size() + " warning(s)";
+    }
+
+    private static Map<String, String> readResource(String fileName) {
+        try (InputStream input = ConfigSnapshot.class.getClassLoader().getResourceAsStream(fileName)) {
+            if (input == null) {
+                return null;
+            }
+            Properties properties = new Properties();
+            properties.load(input);
+            Map<String, String> map = new LinkedHashMap<>();
+            properties.stringPropertyNames().stream().sorted().forEach(key -> map.put(key, properties.getProperty(key)));
+            return map;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load " + fileName, e);
+        }
+    }
+
+    /**
+     * The schema key within two edits of {@code key}, if any.
+     */
+    private static String closest(String key, ConfigSchema schema) {
+        String best = null;
+        int bestDistance = 3;
+        for (String candidate : schema.keys().keySet()) {
+            int distance = editDistance(key.toLowerCase(), candidate);
+            if (distance < bestDistance) {
+                best = candidate;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static String firstNonBlank(String... values) {
+        for (String value : values) {
+            if (!isBlank(value)) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
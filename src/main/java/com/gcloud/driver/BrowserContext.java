@@ -0,0 +1,272 @@
+package com.gcloud.driver;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.decorators.WebDriverDecorator;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An isolated browser context of a {@link BrowserContextHost}, checked out by
+ * one worker. The driver it hands out behaves like a driver of its own. It
+ * sees only the context's windows, remembers its own current window and frame,
+ * and restores both whenever another context used the browser in between.
+ * {@code quit()} disposes the context instead of the browser. The implicit
+ * wait is always 0, and page loads are awaited without holding the browser,
+ * so one context's lookups and loads do not stall the others.
+ */
+public class BrowserContext {
+
+    private static final long LOAD_POLL_MILLIS = 50;
+
+    private final BrowserContextHost host;
+    private final String id;
+    private final long openedNanos = System.nanoTime();
+    private final WebDriver driver;
+    private String window;
+    /**
+     * Frame switches since the top-level document of {@link #window}, replayed after a window switch.
+     */
+    private final List<Object> framePath = new ArrayList<>();
+    private Duration pageLoadTimeout = Duration.ofSeconds(300);
+    private long routedCommands;
+    private long windowSwitches;
+    private boolean closed;
+
+    BrowserContext(BrowserContextHost host, String id, String window) {
+        this.host = host;
+        this.id = id;
+        this.window = window;
+        this.driver = new Router().decorate(host.browser());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public WebDriver getDriver() {
+        return driver;
+    }
+
+    /**
+     * Commands sent through this context, and how many of them first had to
+     * switch the shared session back to this context's window.
+     */
+    public long getRoutedCommands() {
+        return routedCommands;
+    }
+
+    public long getWindowSwitches() {
+        return windowSwitches;
+    }
+
+    public long getOpenMillis() {
+        return (System.nanoTime() - openedNanos) / 1_000_000;
+    }
+
+    /**
+     * Disposes the context, closing its windows and dropping its cookies and storage.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            host.dispose(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("context[%s, commands=%d, window switches=%d]", id, routedCommands, windowSwitches);
+    }
+
+    private void restore() {
+        if (window == null) {
+            throw new NoSuchWindowException("The current window of browser context " + id
+                    + " was closed; switch to another window first.");
+        }
+        if (host.activate(window)) {
+            windowSwitches++;
+            for (Object frame : framePath) {
+                WebDriver.TargetLocator locator = host.browser().switchTo();
+                if (frame instanceof Integer) {
+                    locator.frame((Integer) frame);
+                } else if (frame instanceof String) {
+                    locator.frame((String) frame);
+                } else {
+                    locator.frame((WebElement) frame);
+                }
+            }
+        }
+    }
+
+    private static Object unwrap(Object arg) {
+        return arg instanceof WrapsElement ? ((WrapsElement) arg).getWrappedElement() : arg;
+    }
+
+    /**
+     * Waits until the page this context navigated to has finished loading.
+     * The browser only waits for DOMContentLoaded (see
+     * {@link BrowserContextHost}), and the rest of the load is polled here with
+     * the lock taken per poll, so other contexts run meanwhile.
+     */
+    private void awaitLoaded() {
+        long deadline = System.nanoTime() + pageLoadTimeout.toNanos();
+        while (true) {
+            host.lock().lock();
+            try {
+                restore();
+                if ("complete".equals(((JavascriptExecutor) host.browser()).executeScript("return document.readyState;"))) {
+                    return;
+                }
+            } finally {
+                host.lock().unlock();
+            }
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("Page of browser context " + id + " did not finish loading within "
+                        + pageLoadTimeout.toSeconds() + "s");
+            }
+            try {
+                Thread.sleep(LOAD_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebDriverException("Interrupted while waiting for a page load", e);
+            }
+        }
+    }
+
+    private static boolean isNavigation(Object original, String name) {
+        return (original instanceof WebDriver && name.equals("get"))
+                || original instanceof WebDriver.Navigation;
+    }
+
+    private class Router extends WebDriverDecorator<WebDriver> {
+
+        @Override
+        public Object call(Decorated<?> target, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return super.call(target, method, args);
+            }
+            Object original = target.getOriginal();
+            String name = method.getName();
+            Object result;
+            host.lock().lock();
+            try {
+                if (closed) {
+                    throw new IllegalStateException("Browser context " + id + " has been closed.");
+                }
+                routedCommands++;
+
+                if (original instanceof WebDriver && name.equals("quit")) {
+                    close();
+                    return null;
+                }
+                if (original instanceof WebDriver.TargetLocator) {
+                    Object routed = switchTarget(target, method, args, name);
+                    if (routed != NOT_HANDLED) {
+                        return routed;
+                    }
+                }
+                if (original instanceof WebDriver.Timeouts) {
+                    args = sessionTimeout(name, args);
+                }
+
+                // switching targets and listing windows work without a current window
+                if (!(original instanceof WebDriver && (name.equals("switchTo") || name.equals("getWindowHandles")))) {
+                    restore();
+                }
+                result = super.call(target, method, args);
+
+                if (original instanceof WebDriver && name.equals("getWindowHandles")) {
+                    @SuppressWarnings("unchecked")
+                    Set<String> all = (Set<String>) result;
+                    return new LinkedHashSet<>(host.windowsOf(id, all));
+                }
+                if (original instanceof WebDriver && name.equals("close")) {
+                    window = null;
+                    framePath.clear();
+                    host.activated(null);
+                }
+                if (isNavigation(original, name)) {
+                    // navigating selects the top-level document
+                    framePath.clear();
+                }
+            } finally {
+                host.lock().unlock();
+            }
+            if (isNavigation(original, name)) {
+                awaitLoaded();
+            }
+            return result;
+        }
+
+        /**
+         * Timeouts are session-wide, so one context must not set them for all.
+         * The implicit wait stays 0: a lookup of an absent element would hold
+         * every context for the whole wait. The page load timeout is kept for
+         * this context's own {@link #awaitLoaded() load wait}.
+         */
+        private Object[] sessionTimeout(String name, Object[] args) {
+            if (name.equals("implicitlyWait")) {
+                return args.length == 1 ? new Object[] { Duration.ZERO } : new Object[] { 0L, args[1] };
+            }
+            if (name.equals("pageLoadTimeout") && args.length == 1) {
+                pageLoadTimeout = (Duration) args[0];
+            }
+            return args;
+        }
+
+        private Object switchTarget(Decorated<?> target, Method method, Object[] args, String name) throws Throwable {
+            switch (name) {
+                case "window": {
+                    Object result = super.call(target, method, args);
+                    window = (String) args[0];
+                    framePath.clear();
+                    host.activated(window);
+                    return result;
+                }
+                case "newWindow": {
+                    window = host.createWindow(id);
+                    framePath.clear();
+                    host.browser().switchTo().window(window);
+                    host.activated(window);
+                    return driver;
+                }
+                case "defaultContent": {
+                    restore();
+                    Object result = super.call(target, method, args);
+                    framePath.clear();
+                    return result;
+                }
+                case "parentFrame": {
+                    restore();
+                    Object result = super.call(target, method, args);
+                    if (!framePath.isEmpty()) {
+                        framePath.remove(framePath.size() - 1);
+                    }
+                    return result;
+                }
+                case "frame": {
+                    restore();
+                    Object result = super.call(target, method, args);
+                    framePath.add(unwrap(args[0]));
+                    return result;
+                }
+                default:
+                    return NOT_HANDLED;
+            }
+        }
+    }
+
+    private static final Object NOT_HANDLED = new Object();
+}
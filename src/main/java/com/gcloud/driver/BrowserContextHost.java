@@ -0,0 +1,206 @@
+package com.gcloud.driver;
+
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * One Chrome process that hosts many isolated browser contexts, each with its
+ * own cookies, storage and window. Every worker drives its context through
+ * {@link BrowserContext#getDriver()}. That driver routes each command to the
+ * context's window, so workers share one process tree instead of one per thread.
+ * <p>
+ * The contexts share a single WebDriver session, and chromedriver executes a
+ * session's commands one at a time. Routed commands therefore take a host-wide
+ * lock, so a long command such as an async-script wait delays other workers.
+ * In-page waits therefore run in short slices on a shared browser, see
+ * {@link #isShared(WebDriver)}. For the same reason the implicit wait is 0,
+ * and the browser should be started with {@link PageLoadStrategy#EAGER}: a
+ * navigation then holds the lock until DOMContentLoaded only, and each context
+ * polls for the rest of its page load. The memory saved is paid for in command
+ * throughput.
+ */
+public class BrowserContextHost {
+
+    private static final Set<WebDriver> SHARED = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    private final Supplier<WebDriver> factory;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final AtomicInteger open = new AtomicInteger();
+    private WebDriver browser;
+    private String anchorWindow;
+    private String activeWindow;
+    private int peakOpen;
+
+    /**
+     * @param factory starts the shared browser, preferably with an eager page load strategy
+     */
+    public BrowserContextHost(Supplier<WebDriver> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Creates a new isolated context with one window, starting the browser on
+     * first use.
+     */
+    public BrowserContext open() {
+        lock.lock();
+        try {
+            if (browser == null) {
+                browser = factory.get();
+                SHARED.add(browser);
+                browser.manage().timeouts().implicitlyWait(Duration.ZERO);
+                // the default window is never used by a worker; it keeps the session alive
+                anchorWindow = browser.getWindowHandle();
+                activeWindow = anchorWindow;
+            }
+            Map<String, Object> context = cdp("Target.createBrowserContext", Map.of("disposeOnDetach", false));
+            String contextId = String.valueOf(context.get("browserContextId"));
+            String window = createWindow(contextId);
+
+            peakOpen = Math.max(peakOpen, open.incrementAndGet());
+            return new BrowserContext(this, contextId, window);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Contexts currently open and the most that were open at once.
+     */
+    public int getOpenContexts() {
+        return open.get();
+    }
+
+    public int getPeakOpenContexts() {
+        return peakOpen;
+    }
+
+    /**
+     * Quits the browser and with it every context still open.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (browser != null) {
+                try {
+                    browser.quit();
+                } catch (Exception ignored) {
+                }
+                SHARED.remove(browser);
+                browser = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True when {@code driver}, or a driver it wraps, is the browser of a host,
+     * so that every command it sends holds up the other contexts.
+     */
+    public static boolean isShared(WebDriver driver) {
+        while (driver != null) {
+            if (SHARED.contains(driver)) {
+                return true;
+            }
+            driver = driver instanceof WrapsDriver ? ((WrapsDriver) driver).getWrappedDriver() : null;
+        }
+        return false;
+    }
+
+    ReentrantLock lock() {
+        return lock;
+    }
+
+    WebDriver browser() {
+        return browser;
+    }
+
+    /**
+     * Focuses {@code window} unless it is already the session's current window.
+     *
+     * @return true if the session had to switch
+     */
+    boolean activate(String window) {
+        if (window.equals(activeWindow)) {
+            return false;
+        }
+        browser.switchTo().window(window);
+        activeWindow = window;
+        return true;
+    }
+
+    void activated(String window) {
+        activeWindow = window;
+    }
+
+    /**
+     * Opens a window in the given context. WebDriver's own new-window command
+     * would open it in the default context.
+     */
+    String createWindow(String contextId) {
+        Map<String, Object> target = cdp("Target.createTarget",
+                Map.of("url", "about:blank", "browserContextId", contextId, "newWindow", true));
+        return String.valueOf(target.get("targetId"));
+    }
+
+    /**
+     * The window handles among {@code handles} that belong to the given context.
+     */
+    List<String> windowsOf(String contextId, Set<String> handles) {
+        List<String> owned = new ArrayList<>();
+        List<?> targets = (List<?>) cdp("Target.getTargets", Map.of()).get("targetInfos");
+        for (Object raw : targets) {
+            Map<?, ?> target = (Map<?, ?>) raw;
+            if ("page".equals(target.get("type")) && contextId.equals(target.get("browserContextId"))) {
+                String targetId = String.valueOf(target.get("targetId"));
+                for (String handle : handles) {
+                    if (handle.equals(targetId) || handle.endsWith(targetId)) {
+                        owned.add(handle);
+                    }
+                }
+            }
+        }
+        return owned;
+    }
+
+    void dispose(BrowserContext context) {
+        lock.lock();
+        try {
+            if (browser == null) {
+                return;
+            }
+            try {
+                cdp("Target.disposeBrowserContext", Map.of("browserContextId", context.getId()));
+            } catch (Exception e) {
+                System.out.println("Failed to dispose browser context " + context.getId() + ": " + e.getMessage());
+            }
+            browser.switchTo().window(anchorWindow);
+            activeWindow = anchorWindow;
+        } finally {
+            open.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Object> cdp(String command, Map<String, Object> params) {
+        if (!(browser instanceof HasCdp)) {
+            throw new UnsupportedOperationException("Browser contexts need a Chromium-based driver.");
+        }
+        return ((HasCdp) browser).executeCdpCommand(command, params);
+    }
+}
@@ -0,0 +1,214 @@
+package com.gcloud.driver;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the chromedriver binary once per JVM. Resolved binaries are recorded
+ * in a local cache keyed by Chrome major version, so later runs skip
+ * WebDriverManager entirely; in offline mode only the cache or a pre-provisioned
+ * binary is used and the network is never touched.
+ */
+public class DriverBinaryResolver {
+
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.\\d+\\.\\d+(\\.\\d+)?");
+    private static final String CACHE_FILE = "chromedriver-cache.properties";
+
+    private static volatile Resolved shared;
+
+    private final Path cacheDir;
+    private final boolean offline;
+    private final String provisionedPath;
+    private final String browserVersion;
+
+    /**
+     * @param cacheDir        directory holding the resolution cache
+     * @param offline         never download; fail if nothing cached matches
+     * @param provisionedPath chromedriver binary to use as-is, or null
+     * @param browserVersion  Chrome version to resolve for, or null to detect it
+     */
+    public DriverBinaryResolver(Path cacheDir, boolean offline, String provisionedPath, String browserVersion) {
+        this.cacheDir = cacheDir;
+        this.offline = offline;
+        this.provisionedPath = provisionedPath;
+        this.browserVersion = browserVersion;
+    }
+
+    /**
+     * Resolves on the first call and returns the same result to every later
+     * caller; concurrent first callers wait for the single resolution in flight.
+     */
+    public static Resolved resolveOnce(DriverBinaryResolver resolver) {
+        Resolved result = shared;
+        if (result == null) {
+            synchronized (DriverBinaryResolver.class) {
+                result = shared;
+                if (result == null) {
+                    result = resolver.resolve();
+                    System.setProperty("webdriver.chrome.driver", result.getDriverPath());
+                    System.out.println("Resolved " + result);
+                    shared = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the binary without touching the JVM-wide result.
+     */
+    public Resolved resolve() {
+        long start = System.nanoTime();
+
+        if (provisionedPath != null && !provisionedPath.isBlank()) {
+            if (!Files.isExecutable(Path.of(provisionedPath))) {
+                throw new RuntimeException("chromedriver_path " + provisionedPath + " does not exist or is not executable.");
+            }
+            return new Resolved(provisionedPath, browserVersion, "provisioned", elapsedMillis(start));
+        }
+
+        String version = browserVersion != null && !browserVersion.isBlank() ? browserVersion : detectBrowserVersion();
+        String major = majorVersion(version);
+
+        Properties cache = readCache();
+        String cached = cache.getProperty(major);
+        if (cached != null && Files.isExecutable(Path.of(cached))) {
+            return new Resolved(cached, version, "cache", elapsedMillis(start));
+        }
+
+        if (offline) {
+            throw new RuntimeException("Offline driver mode: no cached chromedriver for Chrome " + version
+                    + " (major " + major + ") in " + cacheDir.resolve(CACHE_FILE)
+                    + ". Cached majors: " + cache.stringPropertyNames()
+                    + ". Provision one with chromedriver_path or run once online.");
+        }
+
+        WebDriverManager manager = WebDriverManager.chromedriver();
+        if (version != null) {
+            manager.browserVersion(major);
+        }
+        manager.setup();
+        String path = manager.getDownloadedDriverPath();
+
+        cache.setProperty(major, path);
+        writeCache(cache);
+        return new Resolved(path, version, "download", elapsedMillis(start));
+    }
+
+    private String detectBrowserVersion() {
+        Optional<Path> browser = WebDriverManager.chromedriver().getBrowserPath();
+        if (browser.isEmpty()) {
+            if (offline) {
+                throw new RuntimeException("Offline driver mode: Chrome not found; set chrome_version or chromedriver_path.");
+            }
+            return null;
+        }
+        try {
+            Process process = new ProcessBuilder(browser.get().toString(), "--version").redirectErrorStream(true).start();
+            String output;
+            try (InputStream in = process.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            process.waitFor(10, TimeUnit.SECONDS);
+            Matcher matcher = VERSION.matcher(output);
+            return matcher.find() ? matcher.group() : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private String majorVersion(String version) {
+        if (version == null) {
+            if (offline) {
+                throw new RuntimeException("Offline driver mode: could not detect the Chrome version; set chrome_version.");
+            }
+            return "latest";
+        }
+        Matcher matcher = Pattern.compile("^(\\d+)").matcher(version);
+        return matcher.find() ? matcher.group(1) : version;
+    }
+
+    private Properties readCache() {
+        Properties cache = new Properties();
+        Path file = cacheDir.resolve(CACHE_FILE);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                cache.load(in);
+            } catch (IOException e) {
+                System.out.println("Ignoring unreadable driver cache " + file + ": " + e.getMessage());
+            }
+        }
+        return cache;
+    }
+
+    private void writeCache(Properties cache) {
+        try {
+            Files.createDirectories(cacheDir);
+            Path tmp = Files.createTempFile(cacheDir, "chromedriver-cache", ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                cache.store(out, "chromedriver binaries by Chrome major version");
+            }
+            Files.move(tmp, cacheDir.resolve(CACHE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Failed to update driver cache: " + e.getMessage());
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public static class Resolved {
+        private final String driverPath;
+        private final String browserVersion;
+        private final String source;
+        private final long resolveMillis;
+
+        Resolved(String driverPath, String browserVersion, String source, long resolveMillis) {
+            this.driverPath = driverPath;
+            this.browserVersion = browserVersion;
+            this.source = source;
+            this.resolveMillis = resolveMillis;
+        }
+
+        public String getDriverPath() {
+            return driverPath;
+        }
+
+        public String getBrowserVersion() {
+            return browserVersion;
+        }
+
+        /**
+         * One of {@code provisioned}, {@code cache} or {@code download}.
+         */
+        public String getSource() {
+            return source;
+        }
+
+        public long getResolveMillis() {
+            return resolveMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "chromedriver " + driverPath + " for Chrome " + browserVersion
+                    + " from " + source + " in " + resolveMillis + "ms";
+        }
+    }
+}
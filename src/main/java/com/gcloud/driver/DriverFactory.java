@@ -0,0 +1,75 @@
+package com.gcloud.driver;
+
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
+
+import java.nio.file.Path;
+import java.util.logging.Level;
+
+public class DriverFactory {
+
+    private final String browser;
+    private final boolean headless;
+    private final DriverBinaryResolver resolver;
+
+    public DriverFactory(String browser, boolean headless, DriverBinaryResolver resolver) {
+        this.browser = browser;
+        this.headless = headless;
+        this.resolver = resolver;
+    }
+
+    /**
+     * Factory that resolves chromedriver online with the default cache location.
+     */
+    public DriverFactory(String browser, boolean headless) {
+        this(browser, headless, new DriverBinaryResolver(
+                Path.of(System.getProperty("user.home"), ".cache", "gcloud-ui-tests"), false, null, null));
+    }
+
+    /**
+     * Starts a new browser session with the framework's default options.
+     */
+    public WebDriver create() {
+        return create(PageLoadStrategy.NORMAL);
+    }
+
+    /**
+     * Starts a new browser session whose navigations return at the given
+     * point of the page load.
+     */
+    public WebDriver create(PageLoadStrategy pageLoadStrategy) {
+        if (!browser.equalsIgnoreCase("chrome")) {
+            throw new RuntimeException("Unsupported browser: " + browser);
+        }
+
+        DriverBinaryResolver.resolveOnce(resolver);
+        ChromeOptions options = chromeOptions();
+        options.setPageLoadStrategy(pageLoadStrategy);
+        return new ChromeDriver(options);
+    }
+
+    public ChromeOptions chromeOptions() {
+        ChromeOptions options = new ChromeOptions();
+
+        if (headless) {
+            options.addArguments("--headless=new");
+            options.addArguments("--window-size=1920,1080");
+        } else {
+            options.addArguments("--start-maximized");
+        }
+
+        options.addArguments("--use-fake-ui-for-media-stream");
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-dev-shm-usage");
+
+        // console messages are only fetched when a failed test's artifacts are captured
+        LoggingPreferences logs = new LoggingPreferences();
+        logs.enable(LogType.BROWSER, Level.ALL);
+        options.setCapability(ChromeOptions.LOGGING_PREFS, logs);
+        return options;
+    }
+}
@@ -0,0 +1,63 @@
+package com.gcloud.driver;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * A browser session checked out of a {@link DriverPool} for one test method.
+ */
+public class DriverLease {
+
+    private final PooledDriver pooled;
+    private final long waitMillis;
+    private final long startupMillis;
+
+    DriverLease(PooledDriver pooled, long waitMillis, long startupMillis) {
+        this.pooled = pooled;
+        this.waitMillis = waitMillis;
+        this.startupMillis = startupMillis;
+    }
+
+    public WebDriver getDriver() {
+        return pooled.driver;
+    }
+
+    /**
+     * Time spent blocked waiting for a free pool slot.
+     */
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * Time spent starting a new browser, or 0 when a warm session was reused.
+     */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    public boolean isReused() {
+        return pooled.uses > 1;
+    }
+
+    public int getUses() {
+        return pooled.uses;
+    }
+
+    PooledDriver pooled() {
+        return pooled;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lease[uses=%d, wait=%dms, startup=%dms]", pooled.uses, waitMillis, startupMillis);
+    }
+
+    static class PooledDriver {
+        final WebDriver driver;
+        int uses;
+
+        PooledDriver(WebDriver driver) {
+            this.driver = driver;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.gcloud.driver;
+
+import com.gcloud.driver.DriverLease.PooledDriver;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, thread-safe pool of warm browser sessions.
+ * At most {@code size} sessions are alive at once; idle sessions are reset and
+ * handed to the next caller instead of being quit after every test method.
+ */
+public class DriverPool {
+
+    private final Supplier<WebDriver> factory;
+    private final int size;
+    private final int maxUses;
+    private final Semaphore slots;
+    private final Predicate<WebDriver> retire;
+    private final LinkedBlockingDeque<PooledDriver> idle = new LinkedBlockingDeque<>();
+    private final Set<String> knownOrigins = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    public DriverPool(Supplier<WebDriver> factory, int size, int maxUses) {
+        this(factory, size, maxUses, driver -> false);
+    }
+
+    /**
+     * @param retire sessions to quit on release even below the reuse limit, such as sessions on a slow node
+     */
+    public DriverPool(Supplier<WebDriver> factory, int size, int maxUses, Predicate<WebDriver> retire) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Driver pool size must be at least 1, got " + size);
+        }
+        this.factory = factory;
+        this.size = size;
+        this.maxUses = Math.max(1, maxUses);
+        this.slots = new Semaphore(size, true);
+        this.retire = retire;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Adds the origin of {@code url} to the origins whose storage is cleared on
+     * every reset, even when no open window shows them any more.
+     */
+    public void addKnownOrigin(String url) {
+        String origin = originOf(url);
+        if (origin != null) {
+            knownOrigins.add(origin);
+        }
+    }
+
+    /**
+     * Leases a session, reusing a healthy idle one when available and starting a
+     * new browser otherwise. Blocks up to {@code timeout} for a free slot.
+     */
+    public DriverLease acquire(Duration timeout) {
+        if (closed) {
+            throw new IllegalStateException("Driver pool has been shut down.");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!slots.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Timed out after " + timeout.toSeconds()
+                        + "s waiting for a free driver (pool size " + size + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a driver.", e);
+        }
+        long waitMillis = elapsedMillis(waitStart);
+
+        try {
+            PooledDriver pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isHealthy(pooled.driver)) {
+                    pooled.uses++;
+                    return new DriverLease(pooled, waitMillis, 0);
+                }
+                quietlyQuit(pooled.driver);
+            }
+
+            long startupStart = System.nanoTime();
+            pooled = new PooledDriver(factory.get());
+            pooled.uses = 1;
+            return new DriverLease(pooled, waitMillis, elapsedMillis(startupStart));
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a session to the pool. Sessions that reached the reuse limit, are
+     * retired, fail the health check or cannot be reset are quit and replaced on
+     * demand.
+     */
+    public void release(DriverLease lease) {
+        PooledDriver pooled = lease.pooled();
+        try {
+            if (!closed && pooled.uses < maxUses && !retire.test(pooled.driver) && reset(pooled.driver)) {
+                idle.offerFirst(pooled);
+            } else {
+                quietlyQuit(pooled.driver);
+            }
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Quits every idle session. Leased sessions are quit when they are released.
+     */
+    public void shutdown() {
+        closed = true;
+        List<PooledDriver> drained = new ArrayList<>();
+        idle.drainTo(drained);
+        drained.forEach(p -> quietlyQuit(p.driver));
+    }
+
+    /**
+     * Clears cookies and storage, closes extra windows and returns to the
+     * default content of the remaining window.
+     */
+    private boolean reset(WebDriver driver) {
+        try {
+            Set<String> origins = new TreeSet<>(knownOrigins);
+            List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            String keep = handles.get(0);
+            for (String handle : handles.subList(1, handles.size())) {
+                driver.switchTo().window(handle);
+                collectOrigins(driver, origins);
+                driver.close();
+            }
+            driver.switchTo().window(keep);
+            driver.switchTo().defaultContent();
+            collectOrigins(driver, origins);
+
+            driver.manage().deleteAllCookies();
+            ((JavascriptExecutor) driver).executeScript(
+                    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+            clearOrigins(driver, origins);
+            driver.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            System.out.println("Discarding driver that failed to reset: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Adds the origins of the current window's frames, including cross-origin iframes.
+     */
+    private void collectOrigins(WebDriver driver, Set<String> origins) {
+        if (!(driver instanceof HasCdp)) {
+            return;
+        }
+        try {
+            collectFrameOrigins(((HasCdp) driver).executeCdpCommand("Page.getFrameTree", Map.of()).get("frameTree"), origins);
+        } catch (Exception e) {
+            System.out.println("Could not list the frames of a pooled session: " + e.getMessage());
+        }
+    }
+
+    private static void collectFrameOrigins(Object node, Set<String> origins) {
+        if (!(node instanceof Map)) {
+            return;
+        }
+        Map<?, ?> tree = (Map<?, ?>) node;
+        if (tree.get("frame") instanceof Map) {
+            Object origin = ((Map<?, ?>) tree.get("frame")).get("securityOrigin");
+            if (origin instanceof String && originOf((String) origin) != null) {
+                origins.add((String) origin);
+            }
+        }
+        if (tree.get("childFrames") instanceof List) {
+            for (Object child : (List<?>) tree.get("childFrames")) {
+                collectFrameOrigins(child, origins);
+            }
+        }
+    }
+
+    /**
+     * Storage of origins other than the current page is only reachable through
+     * CDP, one origin at a time.
+     */
+    private void clearOrigins(WebDriver driver, Set<String> origins) {
+        if (!(driver instanceof HasCdp)) {
+            return;
+        }
+        HasCdp cdp = (HasCdp) driver;
+        try {
+            cdp.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+        } catch (Exception e) {
+            System.out.println("Could not clear the cookies of a pooled session: " + e.getMessage());
+        }
+        for (String origin : origins) {
+            try {
+                cdp.executeCdpCommand("Storage.clearDataForOrigin",
+                        Map.of("origin", origin, "storageTypes", "local_storage,session_storage,indexeddb,cache_storage"));
+            } catch (Exception e) {
+                System.out.println("Could not clear the storage of " + origin + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The scheme://host[:port] origin of an http(s) URL, or null.
+     */
+    static String originOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() == null || !("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))) {
+                return null;
+            }
+            return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean isHealthy(WebDriver driver) {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void quietlyQuit(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,192 @@
+package com.gcloud.driver;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.decorators.WebDriverDecorator;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Starts browser sessions on a set of Selenium Grid or standalone nodes,
+ * spreading them by load and by how fast each node has been running tests.
+ * <p>
+ * Each node's speed is the smoothed ratio of actual to predicted test
+ * duration. A node slower than {@code slowRatio} times the fastest node gets
+ * no new sessions while another node has room, and its sessions are retired
+ * when their test ends, so its share of the remaining work moves elsewhere.
+ */
+public class RemoteNodes {
+
+    /**
+     * Weight of the latest test in a node's speed.
+     */
+    static final double SMOOTHING = 0.3;
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<WebDriver, Node> sessions = new IdentityHashMap<>();
+    private final int sessionsPerNode;
+    private final double slowRatio;
+    private final Function<URL, WebDriver> starter;
+
+    /**
+     * @param sessionsPerNode sessions a node runs at once before others are preferred
+     * @param slowRatio       speed ratio to the fastest node at which a node counts as slow
+     */
+    public RemoteNodes(List<URL> urls, Capabilities capabilities, int sessionsPerNode, double slowRatio) {
+        this(urls, sessionsPerNode, slowRatio, url -> new RemoteWebDriver(url, capabilities));
+    }
+
+    /**
+     * @param starter opens a session on the given node
+     */
+    public RemoteNodes(List<URL> urls, int sessionsPerNode, double slowRatio, Function<URL, WebDriver> starter) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one remote node is required.");
+        }
+        urls.forEach(url -> nodes.add(new Node(url)));
+        this.sessionsPerNode = Math.max(1, sessionsPerNode);
+        this.slowRatio = slowRatio;
+        this.starter = starter;
+    }
+
+    /**
+     * Starts a session on the node with the least load, weighted by its speed.
+     */
+    public WebDriver create() {
+        Node node = choose();
+        QuitTracker tracker = new QuitTracker();
+        try {
+            tracker.session = tracker.decorate(starter.apply(node.url));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                node.sessions--;
+            }
+            throw new RuntimeException("Failed to start a session on " + node.url + ": " + e.getMessage(), e);
+        }
+        synchronized (this) {
+            sessions.put(tracker.session, node);
+        }
+        return tracker.session;
+    }
+
+    private synchronized Node choose() {
+        Node best = null;
+        double bestScore = Double.MAX_VALUE;
+        boolean anyRoom = nodes.stream().anyMatch(n -> n.sessions < sessionsPerNode && !isSlow(n));
+        for (Node node : nodes) {
+            if (anyRoom && (node.sessions >= sessionsPerNode || isSlow(node))) {
+                continue;
+            }
+            double score = (node.sessions + 1) * node.speed;
+            if (score < bestScore) {
+                best = node;
+                bestScore = score;
+            }
+        }
+        best.sessions++;
+        best.started++;
+        return best;
+    }
+
+    /**
+     * Updates the speed of the node behind {@code driver} with a finished test.
+     *
+     * @param predictedMillis the test's predicted duration, or -1 without history
+     */
+    public synchronized void testFinished(WebDriver driver, long predictedMillis, long actualMillis) {
+        Node node = nodeOf(driver);
+        if (node == null) {
+            return;
+        }
+        node.tests++;
+        node.busyMillis += actualMillis;
+        if (predictedMillis > 0) {
+            double ratio = (double) actualMillis / predictedMillis;
+            node.speed = node.measured ? node.speed + SMOOTHING * (ratio - node.speed) : ratio;
+            node.measured = true;
+        }
+    }
+
+    /**
+     * True when the session runs on a slow node and should not be reused.
+     */
+    public synchronized boolean shouldRetire(WebDriver driver) {
+        Node node = nodeOf(driver);
+        if (node == null || !isSlow(node)) {
+            return false;
+        }
+        node.retired++;
+        return true;
+    }
+
+    private boolean isSlow(Node node) {
+        if (!node.measured) {
+            return false;
+        }
+        double fastest = nodes.stream().filter(n -> n.measured).mapToDouble(n -> n.speed).min().orElse(node.speed);
+        return node.speed > fastest * slowRatio;
+    }
+
+    private synchronized void quit(WebDriver session) {
+        Node node = sessions.remove(session);
+        if (node != null) {
+            node.sessions--;
+        }
+    }
+
+    private Node nodeOf(WebDriver driver) {
+        return sessions.get(driver);
+    }
+
+    public synchronized List<String> getNodeStats() {
+        List<String> stats = new ArrayList<>();
+        for (Node node : nodes) {
+            stats.add(String.format("%s: tests=%d, busy=%dms, speed=%.2fx%s, sessions started=%d, retired=%d",
+                    node.url, node.tests, node.busyMillis, node.speed, isSlow(node) ? " (slow)" : "",
+                    node.started, node.retired));
+        }
+        return stats;
+    }
+
+    /**
+     * Frees the node's slot when its session quits.
+     */
+    private class QuitTracker extends WebDriverDecorator<WebDriver> {
+        private WebDriver session;
+
+        @Override
+        public Object call(Decorated<?> target, Method method, Object[] args) throws Throwable {
+            if (target.getOriginal() instanceof WebDriver && method.getName().equals("quit")) {
+                try {
+                    return super.call(target, method, args);
+                } finally {
+                    quit(session);
+                }
+            }
+            return super.call(target, method, args);
+        }
+    }
+
+    private static class Node {
+        final URL url;
+        int sessions;
+        int started;
+        int retired;
+        int tests;
+        long busyMillis;
+        double speed = 1.0;
+        boolean measured;
+
+        Node(URL url) {
+            this.url = url;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.gcloud.helpers;
+
+import com.gcloud.metrics.WaitHistory;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Drop-in replacement for {@code WebDriverWait} whose waits are named and
+ * recorded in a {@link WaitHistory}. Once a wait has history, it polls densely
+ * around its usual completion time instead of every 500 ms, and it fails at
+ * the timeout derived from its p99, never later than the constant the caller
+ * passes, the ceiling.
+ * <pre>
+ * wait.until("analytics tab visible", ExpectedConditions.visibilityOfElementLocated(analyticsTab));
+ * </pre>
+ */
+public class AdaptiveWait {
+
+    /**
+     * Polling interval of {@code WebDriverWait}, used when adaptive waits are disabled.
+     */
+    static final long DEFAULT_POLL_MILLIS = 500;
+
+    private final WebDriver driver;
+    private final Duration ceiling;
+    private final WaitHistory history;
+
+    /**
+     * @param ceiling timeout until the wait has history, and the upper bound afterwards
+     */
+    public AdaptiveWait(WebDriver driver, Duration ceiling) {
+        this(driver, ceiling, WaitHistory.shared());
+    }
+
+    public AdaptiveWait(WebDriver driver, Duration ceiling, WaitHistory history) {
+        this.driver = driver;
+        this.ceiling = ceiling;
+        this.history = history;
+    }
+
+    /**
+     * Polls {@code condition} until it returns neither null nor false and returns that value.
+     *
+     * @throws TimeoutException if the condition does not hold within the wait's timeout
+     */
+    public <T> T until(String name, Function<? super WebDriver, T> condition) {
+        Duration timeout = history.timeoutFor(name, ceiling);
+        PollSchedule schedule = scheduleFor(name);
+
+        long start = System.nanoTime();
+        int polls = 0;
+        RuntimeException lastError = null;
+        while (true) {
+            polls++;
+            try {
+                T value = condition.apply(driver);
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    history.record(name, elapsedMillis(start), polls, true, false);
+                    return value;
+                }
+            } catch (NotFoundException | StaleElementReferenceException e) {
+                lastError = e;
+            }
+
+            long elapsed = elapsedMillis(start);
+            long remaining = timeout.toMillis() - elapsed;
+            if (remaining <= 0) {
+                boolean derived = timeout.compareTo(ceiling) < 0;
+                history.record(name, elapsed, polls, false, derived);
+                throw new TimeoutException(String.format("Expected condition failed: waiting for %s"
+                                + " (tried for %d ms with %d polls, timeout %d ms%s, polling %s)",
+                        name, elapsed, polls, timeout.toMillis(),
+                        derived ? " derived from history, ceiling " + ceiling.toMillis() + " ms" : "", schedule), lastError);
+            }
+            sleep(Math.min(schedule.nextDelayMillis(elapsed), remaining));
+        }
+    }
+
+    private PollSchedule scheduleFor(String name) {
+        if (!history.isAdaptive()) {
+            return PollSchedule.fixed(DEFAULT_POLL_MILLIS);
+        }
+        long expected = history.percentile(name, 50);
+        return expected < 0 ? PollSchedule.cold() : PollSchedule.around(expected, history.percentile(name, 95));
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException(e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.gcloud.helpers;
+
+import com.gcloud.driver.BrowserContextHost;
+import com.gcloud.metrics.WaitHistory;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event-driven waits evaluated inside the page. Each wait installs
+ * MutationObserver/IntersectionObserver hooks through executeAsyncScript and
+ * resolves as soon as its predicate holds, instead of sleeping for a fixed time.
+ * <p>
+ * Predicates are JavaScript function bodies with {@code args} and {@code state}
+ * in scope; {@code state.lastMutation} and {@code state.intersecting} are
+ * maintained by the engine. A truthy return value resolves the wait.
+ * <p>
+ * Waits are recorded in the shared {@link WaitHistory}; once a wait has
+ * history, it fails at the timeout derived from its p99, never later than the
+ * given timeout.
+ */
+public class DomWaits {
+
+    /**
+     * A single wait stays below the default 30 s script timeout; longer waits are
+     * split into several slices.
+     */
+    private static final long SLICE_MILLIS = 20_000;
+
+    /**
+     * On a browser shared by several contexts, a slice blocks every other
+     * context, so slices are kept short; the in-page state survives between them.
+     */
+    private static final long SHARED_SLICE_MILLIS = 250;
+
+    private static final AtomicLong WAIT_IDS = new AtomicLong();
+
+    private static final Map<String, String> COMPILED = new ConcurrentHashMap<>();
+
+    private final WebDriver driver;
+    private final List<WaitResult> history = Collections.synchronizedList(new ArrayList<>());
+    private final WaitHistory waitHistory = WaitHistory.shared();
+
+    public DomWaits(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Waits until the predicate returns a truthy value and returns that value.
+     *
+     * @throws TimeoutException if the predicate does not hold within the timeout
+     */
+    public Object until(String name, String predicateBody, Duration timeout, Map<String, ?> args) {
+        return until(name, predicateBody, timeout, args, List.of());
+    }
+
+    /**
+     * Waits until the page has gone {@code quietWindow} without any DOM mutation.
+     */
+    public long waitForDomQuiet(Duration quietWindow, Duration timeout) {
+        until("DOM quiet for " + quietWindow.toMillis() + "ms",
+                "return performance.now() - state.lastMutation >= args.quietMs;",
+                timeout, Map.of("quietMs", quietWindow.toMillis()));
+        return lastMillis();
+    }
+
+    /**
+     * Waits until the element intersects the viewport.
+     */
+    public long waitForInViewport(WebElement element, Duration timeout) {
+        until("element in viewport",
+                "return state.intersecting.size > 0 && Array.from(state.intersecting.values()).every(v => v);",
+                timeout, Map.of(), List.of(element));
+        return lastMillis();
+    }
+
+    private Object until(String name, String predicateBody, Duration timeout, Map<String, ?> args,
+            List<WebElement> observed) {
+        String script = COMPILED.computeIfAbsent(predicateBody, DomWaits::compile);
+        JavascriptExecutor js = (JavascriptExecutor) driver;
+        Duration derived = waitHistory.timeoutFor(name, timeout);
+
+        long slice = sliceMillis(driver);
+        String waitId = "wait-" + WAIT_IDS.incrementAndGet();
+
+        long start = System.nanoTime();
+        long deadline = start + derived.toNanos();
+        String lastError = null;
+        int slices = 0;
+        while (true) {
+            long remaining = (deadline - System.nanoTime()) / 1_000_000;
+            if (remaining <= 0) {
+                break;
+            }
+            slices++;
+            Map<?, ?> result = (Map<?, ?>) js.executeAsyncScript(script, args,
+                    Math.min(remaining, slice), observed, waitId, remaining, remaining <= slice);
+            if (Boolean.TRUE.equals(result.get("ok"))) {
+                record(name, start, slices, true, derived, timeout);
+                return result.get("value");
+            }
+            lastError = (String) result.get("error");
+        }
+
+        record(name, start, slices, false, derived, timeout);
+        throw new TimeoutException("Timed out after " + derived.toMillis() + "ms waiting for " + name
+                + (derived.compareTo(timeout) < 0 ? " (derived from history, ceiling " + timeout.toMillis() + "ms)" : "")
+                + (lastError != null ? " (last error: " + lastError + ")" : ""));
+    }
+
+    /**
+     * How long one in-page call may block the session.
+     */
+    static long sliceMillis(WebDriver driver) {
+        return BrowserContextHost.isShared(driver) ? SHARED_SLICE_MILLIS : SLICE_MILLIS;
+    }
+
+    /**
+     * Predicates may call {@code window.__gcloudShadowFind}, the lookup behind
+     * {@link ShadowBy}; its installer is included only when referenced.
+     */
+    private static String compile(String predicateBody) {
+        String script = Scripts.load("wait-engine.js").replace("/*PREDICATE*/", predicateBody);
+        return predicateBody.contains("__gcloudShadowFind") ? Scripts.load("shadow-find.js") + script : script;
+    }
+
+    private void record(String name, long startNanos, int slices, boolean resolved, Duration derived, Duration ceiling) {
+        WaitResult result = new WaitResult(name, (System.nanoTime() - startNanos) / 1_000_000, resolved);
+        history.add(result);
+        waitHistory.record(name, result.getMillis(), slices, resolved, !resolved && derived.compareTo(ceiling) < 0);
+        System.out.println("[wait] " + result);
+    }
+
+    private long lastMillis() {
+        return history.get(history.size() - 1).getMillis();
+    }
+
+    /**
+     * Every wait issued through this instance, in order.
+     */
+    public List<WaitResult> getHistory() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    public long getTotalWaitMillis() {
+        synchronized (history) {
+            return history.stream().mapToLong(WaitResult::getMillis).sum();
+        }
+    }
+
+    public static class WaitResult {
+        private final String name;
+        private final long millis;
+        private final boolean resolved;
+
+        WaitResult(String name, long millis, boolean resolved) {
+            this.name = name;
+            this.millis = millis;
+            this.resolved = resolved;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public boolean isResolved() {
+            return resolved;
+        }
+
+        @Override
+        public String toString() {
+            return name + (resolved ? " resolved in " : " timed out after ") + millis + "ms";
+        }
+    }
+}
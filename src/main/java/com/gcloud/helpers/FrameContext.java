@@ -0,0 +1,239 @@
+package com.gcloud.helpers;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the window and frame path a driver is focused on and switches only
+ * as far as needed. A switch to the current context sends nothing. A deeper
+ * path descends from where the driver already is, and a shallower one climbs
+ * with {@code parentFrame} when that is cheaper than restarting from the top.
+ * <p>
+ * Frame elements are cached per window and path. A cached element is
+ * revalidated by switching to it, and is looked up again only when that switch
+ * fails because the frame was re-rendered. Scoped calls restore the previous
+ * context afterwards:
+ * <pre>
+ * frames.runIn(() -&gt; uiHelpers.clickAnswerInShadowDOM("7"), By.id("assessment-builder"));
+ * </pre>
+ * Tracking assumes every switch on the driver goes through this instance;
+ * after switching directly, call {@link #invalidate()}.
+ */
+public class FrameContext {
+
+    private static final List<By> TOP = List.of();
+
+    private final WebDriver driver;
+    private final AdaptiveWait wait;
+    private final Map<String, WebElement> frames = new HashMap<>();
+    /**
+     * The focused window and frame path, or null while unknown.
+     */
+    private String window;
+    private List<By> path;
+
+    private long switchesSent;
+    private long switchesAvoided;
+    private long lookupsSent;
+    private long lookupsAvoided;
+    private long staleFrames;
+
+    public FrameContext(WebDriver driver, AdaptiveWait wait) {
+        this.driver = driver;
+        this.wait = wait;
+    }
+
+    /**
+     * Focuses the frame path, given from the top-level document of the current
+     * window, waiting for each frame to become available.
+     */
+    public void enter(By... framePath) {
+        moveTo(List.of(framePath));
+    }
+
+    /**
+     * Focuses the top-level document of the current window.
+     */
+    public void top() {
+        moveTo(TOP);
+    }
+
+    /**
+     * Focuses the top-level document of {@code handle}.
+     */
+    public void window(String handle) {
+        if (handle.equals(window) && path != null) {
+            moveTo(TOP);
+            return;
+        }
+        driver.switchTo().window(handle);
+        switchesSent++;
+        window = handle;
+        path = TOP;
+    }
+
+    /**
+     * Runs {@code block} inside the frame path, then returns to the previous context.
+     */
+    public void runIn(Runnable block, By... framePath) {
+        getIn(() -> {
+            block.run();
+            return null;
+        }, framePath);
+    }
+
+    public <T> T getIn(Supplier<T> block, By... framePath) {
+        return scoped(() -> enter(framePath), block);
+    }
+
+    /**
+     * Runs {@code block} in the top-level document of {@code handle}, then
+     * returns to the previous window and frame.
+     */
+    public void runInWindow(String handle, Runnable block) {
+        scoped(() -> window(handle), () -> {
+            block.run();
+            return null;
+        });
+    }
+
+    /**
+     * Forgets the tracked context after the driver was switched directly; the
+     * next switch starts from the top-level document.
+     */
+    public void invalidate() {
+        window = null;
+        path = null;
+    }
+
+    public long getSwitchesSent() {
+        return switchesSent;
+    }
+
+    /**
+     * Switch commands saved compared with switching to the top-level document
+     * and down the whole path every time.
+     */
+    public long getSwitchesAvoided() {
+        return switchesAvoided;
+    }
+
+    public long getLookupsAvoided() {
+        return lookupsAvoided;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("frame switches: %d sent, %d avoided; frame lookups: %d sent, %d served from cache (%d stale)",
+                switchesSent, switchesAvoided, lookupsSent, lookupsAvoided, staleFrames);
+    }
+
+    private <T> T scoped(Runnable switchIn, Supplier<T> block) {
+        String previousWindow = window;
+        List<By> previousPath = path;
+        switchIn.run();
+        boolean completed = false;
+        try {
+            T value = block.get();
+            completed = true;
+            return value;
+        } finally {
+            restore(previousWindow, previousPath, completed);
+        }
+    }
+
+    /**
+     * Returns to the saved context, or to the top-level document if it was
+     * unknown. A failed restore is rethrown only when it would not hide the
+     * block's own failure.
+     */
+    private void restore(String previousWindow, List<By> previousPath, boolean rethrow) {
+        try {
+            if (previousWindow != null && !previousWindow.equals(window)) {
+                window(previousWindow);
+            }
+            moveTo(previousPath != null ? previousPath : TOP);
+        } catch (RuntimeException e) {
+            invalidate();
+            if (rethrow) {
+                throw e;
+            }
+        }
+    }
+
+    private void moveTo(List<By> target) {
+        int naive = 1 + target.size();
+        int sent = 0;
+        try {
+            int from;
+            if (path == null) {
+                driver.switchTo().defaultContent();
+                sent++;
+                from = 0;
+            } else {
+                int common = 0;
+                while (common < path.size() && common < target.size() && path.get(common).equals(target.get(common))) {
+                    common++;
+                }
+                int climb = path.size() - common;
+                if (climb + target.size() - common <= 1 + target.size()) {
+                    for (int i = 0; i < climb; i++) {
+                        driver.switchTo().parentFrame();
+                        sent++;
+                    }
+                    from = common;
+                } else {
+                    driver.switchTo().defaultContent();
+                    sent++;
+                    from = 0;
+                }
+            }
+            for (int level = from; level < target.size(); level++) {
+                descend(target.subList(0, level + 1));
+                sent++;
+            }
+            path = new ArrayList<>(target);
+        } catch (RuntimeException e) {
+            path = null;
+            throw e;
+        } finally {
+            switchesSent += sent;
+            switchesAvoided += Math.max(0, naive - sent);
+        }
+    }
+
+    /**
+     * Switches from the parent of {@code framePath} into its last frame.
+     */
+    private void descend(List<By> framePath) {
+        String key = window + " " + framePath;
+        WebElement cached = frames.get(key);
+        if (cached != null) {
+            try {
+                driver.switchTo().frame(cached);
+                lookupsAvoided++;
+                return;
+            } catch (StaleElementReferenceException | NotFoundException e) {
+                frames.remove(key);
+                staleFrames++;
+            }
+        }
+        By locator = framePath.get(framePath.size() - 1);
+        lookupsSent++;
+        WebElement frame = wait.until("frame " + locator + " available", d -> {
+            WebElement element = d.findElement(locator);
+            d.switchTo().frame(element);
+            return element;
+        });
+        frames.put(key, frame);
+    }
+}
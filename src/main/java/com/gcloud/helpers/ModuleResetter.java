@@ -0,0 +1,192 @@
+package com.gcloud.helpers;
+
+import com.gcloud.metrics.Span;
+import com.gcloud.metrics.StepTimer;
+import com.gcloud.pages.DevelopmentPage;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Resets an assignment's progress so a test starts from 0%. It prefers one
+ * HTTP call to the reset endpoint, authenticated with the browser's cookies
+ * for the endpoint's URL (which may be on another host than the page). When no endpoint is configured or the call fails, it falls back to
+ * the scripted Development Page reset (row, 3-dot menu, Reset) and then returns
+ * the browser to the page it was on.
+ */
+public class ModuleResetter {
+
+    public static final String MODULE_PLACEHOLDER = "{module}";
+
+    private final WebDriver driver;
+    private final String endpointTemplate;
+    private final String developmentPageUrl;
+    private final HttpClient client;
+
+    /**
+     * @param endpointTemplate   absolute reset URL containing {@value #MODULE_PLACEHOLDER}, or null to reset through the UI only
+     * @param developmentPageUrl absolute URL of the Development Page used by the UI fallback
+     */
+    public ModuleResetter(WebDriver driver, String endpointTemplate, String developmentPageUrl) {
+        this.driver = driver;
+        this.endpointTemplate = endpointTemplate;
+        this.developmentPageUrl = developmentPageUrl;
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    public Result reset(String module) {
+        try (Span span = StepTimer.span("reset module")) {
+            long start = System.nanoTime();
+            if (endpointTemplate != null && !endpointTemplate.isBlank()) {
+                URI uri = endpointFor(module);
+                Collection<Cookie> cookies = cookiesFor(uri);
+                if (cookies.isEmpty()) {
+                    System.out.println("[reset] The browser has no cookies for " + uri.getHost()
+                            + "; the reset endpoint is called without a session.");
+                }
+                int status = resetViaHttp(module, cookies);
+                if (status / 100 == 2) {
+                    return log(new Result(module, "http", elapsedMillis(start)));
+                }
+                System.out.println("[reset] HTTP reset of '" + module + "' failed with status " + status
+                        + (status == 401 || status == 403 ? " (not authenticated with " + cookies.size() + " cookie(s) for "
+                        + uri.getHost() + ")" : "") + "; falling back to the Development Page.");
+                span.markFallback();
+            } else {
+                System.out.println("[reset] No module_reset_url configured; resetting '" + module + "' through the Development Page.");
+            }
+
+            if (developmentPageUrl == null) {
+                throw new RuntimeException("Could not reset '" + module + "': the reset endpoint failed and no development_page_url is configured.");
+            }
+            String returnUrl = driver.getCurrentUrl();
+            new DevelopmentPage(driver).resetModule(developmentPageUrl, module);
+            driver.get(returnUrl);
+            return log(new Result(module, "ui", elapsedMillis(start)));
+        }
+    }
+
+    /**
+     * The browser's cookies that would be sent to {@code uri}, including those
+     * scoped to a parent domain and those of another host than the current
+     * page. They are read through DevTools; without it, only the current
+     * document's cookies are available.
+     */
+    public Collection<Cookie> cookiesFor(URI uri) {
+        WebDriver raw = driver;
+        while (!(raw instanceof HasCdp) && raw instanceof WrapsDriver) {
+            raw = ((WrapsDriver) raw).getWrappedDriver();
+        }
+        if (raw instanceof HasCdp) {
+            try {
+                Object cookies = ((HasCdp) raw).executeCdpCommand("Network.getCookies",
+                        Map.of("urls", List.of(uri.toString()))).get("cookies");
+                List<Cookie> result = new ArrayList<>();
+                if (cookies instanceof List) {
+                    for (Object cookie : (List<?>) cookies) {
+                        Map<?, ?> fields = (Map<?, ?>) cookie;
+                        result.add(new Cookie(String.valueOf(fields.get("name")), String.valueOf(fields.get("value"))));
+                    }
+                }
+                return result;
+            } catch (RuntimeException e) {
+                System.out.println("[reset] Could not read the cookies for " + uri.getHost() + " through DevTools: " + e.getMessage());
+            }
+        }
+        Set<Cookie> current = driver.manage().getCookies();
+        String pageHost = URI.create(driver.getCurrentUrl()).getHost();
+        if (pageHost == null || !pageHost.equalsIgnoreCase(uri.getHost())) {
+            System.out.println("[reset] Sending the cookies of " + pageHost + " to " + uri.getHost()
+                    + "; cookies of " + uri.getHost() + " itself are only readable through DevTools.");
+        }
+        return current;
+    }
+
+    private URI endpointFor(String module) {
+        return URI.create(endpointTemplate.replace(MODULE_PLACEHOLDER,
+                URLEncoder.encode(module, StandardCharsets.UTF_8).replace("+", "%20")));
+    }
+
+    /**
+     * POSTs to the reset endpoint with the given session cookies.
+     *
+     * @return the HTTP status, or -1 if the request could not be sent
+     */
+    public int resetViaHttp(String module, Collection<Cookie> cookies) {
+        URI uri = endpointFor(module);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(20))
+                .POST(HttpRequest.BodyPublishers.noBody());
+        if (!cookies.isEmpty()) {
+            request.header("Cookie", cookies.stream()
+                    .map(c -> c.getName() + "=" + c.getValue())
+                    .collect(Collectors.joining("; ")));
+        }
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            System.out.println("[reset] " + uri + " unreachable: " + e);
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static Result log(Result result) {
+        System.out.println("[reset] " + result);
+        return result;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public static class Result {
+        private final String module;
+        private final String method;
+        private final long millis;
+
+        Result(String module, String method, long millis) {
+            this.module = module;
+            this.method = method;
+            this.millis = millis;
+        }
+
+        public String getModule() {
+            return module;
+        }
+
+        /**
+         * Either {@code http} or {@code ui}.
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return "'" + module + "' reset via " + method + " in " + millis + "ms";
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.gcloud.helpers;
+
+/**
+ * When an {@link AdaptiveWait} polls next, given how long it has waited so far.
+ * <ul>
+ * <li>Without history: a quarter of the time waited so far, between 50 and 500 ms.</li>
+ * <li>With history: one long sleep up to 70% of the usual (p50) duration,
+ * then every 25 ms until the late (p95) duration, then backing off by half of
+ * the overrun, up to one second.</li>
+ * </ul>
+ */
+public class PollSchedule {
+
+    static final long FASTEST_MILLIS = 25;
+    static final long SLOWEST_MILLIS = 1_000;
+    static final long COLD_MIN_MILLIS = 50;
+    static final long COLD_MAX_MILLIS = 500;
+    static final double WINDOW_START = 0.7;
+
+    private final long expectedMillis;
+    private final long lateMillis;
+    private final long fixedMillis;
+
+    private PollSchedule(long expectedMillis, long lateMillis, long fixedMillis) {
+        this.expectedMillis = expectedMillis;
+        this.lateMillis = lateMillis;
+        this.fixedMillis = fixedMillis;
+    }
+
+    /**
+     * @param expectedMillis usual duration (p50)
+     * @param lateMillis     duration only slow runs exceed (p95)
+     */
+    public static PollSchedule around(long expectedMillis, long lateMillis) {
+        return new PollSchedule(expectedMillis, Math.max(expectedMillis, lateMillis), -1);
+    }
+
+    /**
+     * For waits without enough history.
+     */
+    public static PollSchedule cold() {
+        return new PollSchedule(-1, -1, -1);
+    }
+
+    /**
+     * A constant interval, like {@code WebDriverWait}.
+     */
+    public static PollSchedule fixed(long intervalMillis) {
+        return new PollSchedule(-1, -1, intervalMillis);
+    }
+
+    public long nextDelayMillis(long elapsedMillis) {
+        if (fixedMillis >= 0) {
+            return fixedMillis;
+        }
+        if (expectedMillis < 0) {
+            return clamp(elapsedMillis / 4, COLD_MIN_MILLIS, COLD_MAX_MILLIS);
+        }
+        long windowStart = (long) (expectedMillis * WINDOW_START);
+        if (elapsedMillis < windowStart) {
+            return clamp(windowStart - elapsedMillis, FASTEST_MILLIS, SLOWEST_MILLIS);
+        }
+        if (elapsedMillis <= lateMillis) {
+            return FASTEST_MILLIS;
+        }
+        return clamp((elapsedMillis - lateMillis) / 2, FASTEST_MILLIS, SLOWEST_MILLIS);
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public String toString() {
+        if (fixedMillis >= 0) {
+            return "every " + fixedMillis + "ms";
+        }
+        return expectedMillis < 0 ? "cold" : "around " + expectedMillis + "-" + lateMillis + "ms";
+    }
+}
@@ -0,0 +1,117 @@
+package com.gcloud.helpers;
+
+import com.gcloud.artifacts.FlightRecorder;
+import com.gcloud.metrics.Span;
+import com.gcloud.metrics.StepTimer;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follows the {@code wem-game-progress-bar} through an observer installed once
+ * per window. Progress changes are pushed into an in-page queue and drained in
+ * batches, so waiting for a percentage blocks on the change stream instead of
+ * re-reading the page on every poll. Must be called from the top-level document.
+ */
+public class ProgressTracker {
+
+    private final WebDriver driver;
+    private final List<ProgressEvent> transitions = new ArrayList<>();
+    private int latest = -1;
+
+    public ProgressTracker(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Waits until progress reaches at least {@code targetPercent} and returns the
+     * current value.
+     *
+     * @throws TimeoutException if the target is not reached within the timeout
+     */
+    public int waitForAtLeast(int targetPercent, Duration timeout) {
+        try (Span ignored = StepTimer.span("progress >= " + targetPercent + "%")) {
+            // the in-page queue keeps every change between slices
+            long slice = DomWaits.sliceMillis(driver);
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (true) {
+                long remaining = (deadline - System.nanoTime()) / 1_000_000;
+                if (drain(targetPercent, Math.max(0, Math.min(remaining, slice)))) {
+                    return latest;
+                }
+                if (remaining <= slice) {
+                    throw new TimeoutException("Progress did not reach " + targetPercent + "% within "
+                            + timeout.toSeconds() + "s (last seen " + latest + "%).");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the latest known progress, or -1 if the progress bar has not rendered.
+     */
+    public int current() {
+        drain(Integer.MIN_VALUE, 0);
+        return latest;
+    }
+
+    /**
+     * Every observed progress change, in order.
+     */
+    public List<ProgressEvent> getTransitions() {
+        return new ArrayList<>(transitions);
+    }
+
+    private boolean drain(int targetPercent, long timeoutMillis) {
+        Map<?, ?> result = (Map<?, ?>) ((JavascriptExecutor) driver).executeAsyncScript(
+                Scripts.load("progress-observer.js"), targetPercent, timeoutMillis);
+
+        for (Object raw : (List<?>) result.get("events")) {
+            Map<?, ?> event = (Map<?, ?>) raw;
+            ProgressEvent transition = new ProgressEvent(
+                    ((Number) event.get("percent")).intValue(),
+                    String.valueOf(event.get("source")),
+                    Instant.ofEpochMilli(((Number) event.get("at")).longValue()));
+            transitions.add(transition);
+            FlightRecorder.note("progress", transition.toString());
+            System.out.println("[progress] " + transition);
+        }
+        latest = ((Number) result.get("latest")).intValue();
+        return Boolean.TRUE.equals(result.get("reached"));
+    }
+
+    public static class ProgressEvent {
+        private final int percent;
+        private final String source;
+        private final Instant at;
+
+        ProgressEvent(int percent, String source, Instant at) {
+            this.percent = percent;
+            this.source = source;
+            this.at = at;
+        }
+
+        public int getPercent() {
+            return percent;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public Instant getAt() {
+            return at;
+        }
+
+        @Override
+        public String toString() {
+            return at + " " + percent + "% (" + source + ")";
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.gcloud.helpers;
+
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Queues several scripts and runs them in a single executeScript round trip.
+ * Each queued script keeps its own {@code arguments} and its own typed result;
+ * a script that throws fails only its own {@link Result}.
+ * <pre>
+ * ScriptBatch batch = new ScriptBatch(driver);
+ * ScriptBatch.Result&lt;Long&gt; count = batch.add("return document.links.length;", Long.class);
+ * ScriptBatch.Result&lt;Boolean&gt; ready = batch.add("return document.readyState === 'complete';", Boolean.class);
+ * batch.execute();
+ * </pre>
+ */
+public class ScriptBatch {
+
+    private final WebDriver driver;
+    private final List<String> scripts = new ArrayList<>();
+    private final List<List<Object>> arguments = new ArrayList<>();
+    private final List<Result<?>> results = new ArrayList<>();
+
+    public ScriptBatch(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Queues a script whose return value is cast to {@code type}.
+     */
+    public <T> Result<T> add(String script, Class<T> type, Object... args) {
+        return add(script, type::cast, args);
+    }
+
+    /**
+     * Queues a script whose return value is converted by {@code converter}.
+     */
+    public <T> Result<T> add(String script, Function<Object, T> converter, Object... args) {
+        Result<T> result = new Result<>(converter, "batch[" + scripts.size() + "]");
+        scripts.add(script);
+        arguments.add(Arrays.asList(args));
+        results.add(result);
+        return result;
+    }
+
+    public int size() {
+        return scripts.size();
+    }
+
+    /**
+     * Runs every queued script in one round trip, in queue order, and clears the
+     * queue so the batch can be refilled.
+     */
+    public void execute() {
+        if (scripts.isEmpty()) {
+            return;
+        }
+
+        StringBuilder source = new StringBuilder("const all = arguments[0]; const out = [];");
+        for (int i = 0; i < scripts.size(); i++) {
+            source.append("try { out.push({ok: true, value: (function () {")
+                    .append(scripts.get(i))
+                    .append("\n}).apply(null, all[").append(i).append("])}); }")
+                    .append(" catch (e) { out.push({ok: false, error: String(e)}); }");
+        }
+        source.append("return out;");
+
+        List<?> outcomes = (List<?>) ((JavascriptExecutor) driver).executeScript(source.toString(), arguments);
+        for (int i = 0; i < results.size(); i++) {
+            results.get(i).complete((Map<?, ?>) outcomes.get(i));
+        }
+
+        scripts.clear();
+        arguments.clear();
+        results.clear();
+    }
+
+    /**
+     * Converts numeric script results, which arrive as Long or Double, to int.
+     */
+    public static Integer toInt(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    public static class Result<T> {
+        private final Function<Object, T> converter;
+        private final String name;
+        private boolean done;
+        private T value;
+        private String error;
+
+        Result(Function<Object, T> converter, String name) {
+            this.converter = converter;
+            this.name = name;
+        }
+
+        void complete(Map<?, ?> outcome) {
+            done = true;
+            if (Boolean.TRUE.equals(outcome.get("ok"))) {
+                value = converter.apply(outcome.get("value"));
+            } else {
+                error = String.valueOf(outcome.get("error"));
+            }
+        }
+
+        /**
+         * @throws IllegalStateException if the batch has not been executed yet
+         * @throws JavascriptException   if this script threw in the page
+         */
+        public T get() {
+            if (!done) {
+                throw new IllegalStateException(name + " has not been executed yet.");
+            }
+            if (error != null) {
+                throw new JavascriptException(name + " failed: " + error);
+            }
+            return value;
+        }
+
+        /**
+         * Whether the script returned a non-null value.
+         */
+        public boolean isPresent() {
+            return get() != null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.gcloud.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads in-page JavaScript sources bundled under {@code src/main/resources/scripts}.
+ */
+public final class Scripts {
+
+    private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+
+    private Scripts() {
+    }
+
+    public static String load(String name) {
+        return CACHE.computeIfAbsent(name, Scripts::read);
+    }
+
+    private static String read(String name) {
+        try (InputStream input = Scripts.class.getClassLoader().getResourceAsStream("scripts/" + name)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing script resource: scripts/" + name);
+            }
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load script " + name, e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.gcloud.helpers;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsDriver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locators that pierce open shadow roots. Lookups run through
+ * {@link ShadowLocatorEngine}, so they work with {@code findElement},
+ * {@code ExpectedConditions} and {@code WebDriverWait} like any other {@link By}.
+ */
+public class ShadowBy extends By {
+
+    /**
+     * Resolves each selector inside the shadow root of the previous match, e.g.
+     * {@code css("gux-button.complete-assignment", "button")}. The first selector
+     * is searched in the document and every shadow root.
+     */
+    public static ShadowBy css(String... selectors) {
+        return new ShadowBy("chain", List.of(selectors), "ShadowBy.css: " + Arrays.toString(selectors));
+    }
+
+    /**
+     * Elements matching the selector, anywhere in the shadow tree, whose trimmed
+     * text contains {@code text}.
+     */
+    public static ShadowBy textContains(String selector, String text) {
+        return text(selector, text, false);
+    }
+
+    /**
+     * Elements matching the selector, anywhere in the shadow tree, whose trimmed
+     * text equals {@code text}.
+     */
+    public static ShadowBy textEquals(String selector, String text) {
+        return text(selector, text, true);
+    }
+
+    private static ShadowBy text(String selector, String text, boolean exact) {
+        String description = "ShadowBy.text" + (exact ? "Equals" : "Contains") + ": " + selector + " '" + text + "'";
+        return new ShadowBy("text", Map.of("selector", selector, "text", text, "exact", exact), description);
+    }
+
+    private final String mode;
+    private final Object query;
+    private final String description;
+
+    private ShadowBy(String mode, Object query, String description) {
+        this.mode = mode;
+        this.query = query;
+        this.description = description;
+    }
+
+    @Override
+    public WebElement findElement(SearchContext context) {
+        List<WebElement> found = engine(context).find(mode, query, scope(context), true);
+        if (found.isEmpty()) {
+            throw new NoSuchElementException("Cannot locate an element using " + this);
+        }
+        return found.get(0);
+    }
+
+    @Override
+    public List<WebElement> findElements(SearchContext context) {
+        return engine(context).find(mode, query, scope(context), false);
+    }
+
+    private static ShadowLocatorEngine engine(SearchContext context) {
+        if (context instanceof WebDriver) {
+            return ShadowLocatorEngine.forDriver((WebDriver) context);
+        }
+        if (context instanceof WrapsDriver) {
+            return ShadowLocatorEngine.forDriver(((WrapsDriver) context).getWrappedDriver());
+        }
+        throw new IllegalArgumentException("ShadowBy needs a WebDriver or WebElement context, got " + context);
+    }
+
+    private static WebElement scope(SearchContext context) {
+        return context instanceof WebElement ? (WebElement) context : null;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
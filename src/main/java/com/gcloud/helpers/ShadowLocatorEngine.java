@@ -0,0 +1,83 @@
+package com.gcloud.helpers;
+
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptKey;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsDriver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Runs the shadow-piercing lookup script behind {@link ShadowBy}. The script is
+ * pinned once per driver, so the browser keeps it installed across navigations
+ * and each lookup only sends the script key and its arguments.
+ */
+public class ShadowLocatorEngine {
+
+    private static final String LOOKUP = Scripts.load("shadow-find.js")
+            + "return window.__gcloudShadowFind(arguments[0], arguments[1], arguments[2], arguments[3]);";
+
+    /**
+     * Pinned script keys belong to the browser session, so they are shared by
+     * every decorated view of the same underlying driver.
+     */
+    private static final Map<WebDriver, ScriptKey> PINNED = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final WebDriver driver;
+    private final JavascriptExecutor js;
+
+    private ShadowLocatorEngine(WebDriver driver) {
+        this.driver = driver;
+        this.js = (JavascriptExecutor) driver;
+    }
+
+    public static ShadowLocatorEngine forDriver(WebDriver driver) {
+        return new ShadowLocatorEngine(driver);
+    }
+
+    /**
+     * Finds elements for a query. {@code scope} may be null to search the whole
+     * document including every open shadow root.
+     */
+    public List<WebElement> find(String mode, Object query, WebElement scope, boolean first) {
+        Object result = execute(mode, query, scope, first);
+        List<WebElement> elements = new ArrayList<>();
+        if (result instanceof List) {
+            for (Object item : (List<?>) result) {
+                elements.add((WebElement) item);
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Lookup counters kept by the in-page cache of the current document.
+     */
+    public Map<?, ?> getPageStats() {
+        Object stats = js.executeScript("return window.__gcloudShadowCache ? window.__gcloudShadowCache.stats : null;");
+        return stats instanceof Map ? (Map<?, ?>) stats : Map.of();
+    }
+
+    private Object execute(String mode, Object query, WebElement scope, boolean first) {
+        try {
+            return js.executeScript(pinnedKey(), mode, query, scope, first);
+        } catch (JavascriptException | UnsupportedOperationException e) {
+            // documents that existed before pinning (e.g. iframes) lack the pinned function
+            return js.executeScript(LOOKUP, mode, query, scope, first);
+        }
+    }
+
+    private ScriptKey pinnedKey() {
+        WebDriver raw = driver;
+        while (raw instanceof WrapsDriver) {
+            raw = ((WrapsDriver) raw).getWrappedDriver();
+        }
+        return PINNED.computeIfAbsent(raw, d -> js.pin(LOOKUP));
+    }
+}
@@ -0,0 +1,246 @@
+package com.gcloud.helpers;
+
+import com.gcloud.artifacts.FlightRecorder;
+import com.gcloud.metrics.Span;
+import com.gcloud.metrics.StepTimer;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs a flow as named, idempotent stages. Each stage may declare a check that
+ * tells whether its work is already done (for example, progress has already
+ * passed its checkpoint), and done stages are skipped. When a stage fails on
+ * the browser side ({@link WebDriverException}: timeouts, stale elements, lost
+ * windows), the flow restarts from the top of the same session. Assertion
+ * failures and other exceptions are rethrown at once. The checks skip every
+ * completed stage, so the retry resumes where the failure happened. The time
+ * that skipped stages took in earlier attempts is reported as time saved.
+ * <pre>
+ * new StagedFlow("assignment", 2)
+ *         .stage("scroll to 33%", () -&gt; progressAtLeast(33), this::readModule)
+ *         .always("verify results", this::verifyResultsPage)
+ *         .run();
+ * </pre>
+ */
+public class StagedFlow {
+
+    private final String name;
+    private final int maxAttempts;
+    private final List<Stage> stages = new ArrayList<>();
+
+    /**
+     * @param maxAttempts how many times the flow may be run in total, including the first run
+     */
+    public StagedFlow(String name, int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.name = name;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Adds a stage that is skipped while {@code isDone} returns true. A check
+     * that throws counts as not done.
+     */
+    public StagedFlow stage(String stageName, BooleanSupplier isDone, Runnable action) {
+        stages.add(new Stage(stageName, isDone, action));
+        return this;
+    }
+
+    /**
+     * Adds a stage that runs on every attempt; its action must be idempotent.
+     */
+    public StagedFlow always(String stageName, Runnable action) {
+        return stage(stageName, () -> false, action);
+    }
+
+    /**
+     * Runs the stages, retrying from the first unfinished stage after a
+     * {@link WebDriverException}.
+     *
+     * @throws RuntimeException or {@link AssertionError} from the failed stage,
+     *                          once it is not a WebDriverException or no attempt is left
+     */
+    public Result run() {
+        Result result = new Result(name);
+        Map<String, Long> completedMillis = new HashMap<>();
+
+        for (int attempt = 1; ; attempt++) {
+            result.attempts = attempt;
+            long attemptSaved = 0;
+            int skipped = 0;
+            String failedStage = null;
+
+            for (Stage stage : stages) {
+                if (isDone(stage)) {
+                    long saved = completedMillis.getOrDefault(stage.name, 0L);
+                    attemptSaved += saved;
+                    skipped++;
+                    result.outcomes.add(new StageOutcome(attempt, stage.name, Status.SKIPPED, 0, saved, null));
+                    continue;
+                }
+
+                if (attempt > 1 && skipped > 0 && !result.resumedAt.containsKey(attempt)) {
+                    result.resumedAt.put(attempt, stage.name);
+                }
+                long start = System.nanoTime();
+                FlightRecorder.note("stage", name + ": " + stage.name + " (attempt " + attempt + ")");
+                try (Span span = StepTimer.span("stage: " + stage.name)) {
+                    if (attempt > 1) {
+                        span.markRetry();
+                    }
+                    stage.action.run();
+                } catch (RuntimeException | AssertionError e) {
+                    long millis = (System.nanoTime() - start) / 1_000_000;
+                    result.outcomes.add(new StageOutcome(attempt, stage.name, Status.FAILED, millis, 0, e.toString()));
+                    failedStage = stage.name;
+                    FlightRecorder.note("stage failed", name + ": " + stage.name + ": " + e);
+                    // a failed check must fail the test: a retry would skip the stage as done
+                    if (!(e instanceof WebDriverException) || attempt >= maxAttempts) {
+                        result.savedMillis += attemptSaved;
+                        System.out.println("[flow] " + result);
+                        throw e;
+                    }
+                    System.out.println("[flow] " + name + " attempt " + attempt + " failed at stage '"
+                            + stage.name + "': " + e.getMessage());
+                    break;
+                }
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                completedMillis.put(stage.name, millis);
+                result.outcomes.add(new StageOutcome(attempt, stage.name, Status.COMPLETED, millis, 0, null));
+            }
+
+            result.savedMillis += attemptSaved;
+            if (attempt > 1) {
+                System.out.println("[flow] " + name + " attempt " + attempt + " skipped " + skipped
+                        + " completed stage(s), saving ~" + attemptSaved + "ms");
+            }
+            if (failedStage == null) {
+                System.out.println("[flow] " + result);
+                return result;
+            }
+        }
+    }
+
+    private static boolean isDone(Stage stage) {
+        try {
+            return stage.isDone.getAsBoolean();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static class Stage {
+        private final String name;
+        private final BooleanSupplier isDone;
+        private final Runnable action;
+
+        Stage(String name, BooleanSupplier isDone, Runnable action) {
+            this.name = name;
+            this.isDone = isDone;
+            this.action = action;
+        }
+    }
+
+    public enum Status {
+        COMPLETED, SKIPPED, FAILED
+    }
+
+    public static class StageOutcome {
+        private final int attempt;
+        private final String stage;
+        private final Status status;
+        private final long millis;
+        private final long savedMillis;
+        private final String error;
+
+        StageOutcome(int attempt, String stage, Status status, long millis, long savedMillis, String error) {
+            this.attempt = attempt;
+            this.stage = stage;
+            this.status = status;
+            this.millis = millis;
+            this.savedMillis = savedMillis;
+            this.error = error;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * For a skipped stage, how long it took when it completed in an earlier
+         * attempt; 0 if it was already done before the flow started.
+         */
+        public long getSavedMillis() {
+            return savedMillis;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + attempt + " " + stage + " " + status
+                    + (status == Status.SKIPPED ? " (saved " + savedMillis + "ms)" : " in " + millis + "ms")
+                    + (error != null ? ": " + error : "");
+        }
+    }
+
+    public static class Result {
+        private final String flow;
+        private final List<StageOutcome> outcomes = new ArrayList<>();
+        private final Map<Integer, String> resumedAt = new HashMap<>();
+        private int attempts;
+        private long savedMillis;
+
+        Result(String flow) {
+            this.flow = flow;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * Time not spent re-running stages that an earlier attempt had completed.
+         */
+        public long getSavedMillis() {
+            return savedMillis;
+        }
+
+        public List<StageOutcome> getOutcomes() {
+            return new ArrayList<>(outcomes);
+        }
+
+        /**
+         * The first stage that ran on the given retry attempt, if it skipped any.
+         */
+        public String getResumedAt(int attempt) {
+            return resumedAt.get(attempt);
+        }
+
+        @Override
+        public String toString() {
+            return flow + ": " + attempts + " attempt(s), " + savedMillis + "ms saved by resuming " + outcomes;
+        }
+    }
+}
@@ -1,18 +1,41 @@
 package com.gcloud.helpers;
 
+import com.gcloud.metrics.Span;
+import com.gcloud.metrics.StepTimer;
 import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 public class UIHelpers {
 
+    private static final Duration SCROLL_QUIET_WINDOW = Duration.ofMillis(300);
+
     private final WebDriver driver;
-    private final WebDriverWait wait;
+    private final AdaptiveWait wait;
+    private final DomWaits domWaits;
+    private final ProgressTracker progress;
+    private final Duration timeout;
 
     public UIHelpers(WebDriver driver, int timeoutSeconds) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+        this.wait = new AdaptiveWait(driver, timeout);
+        this.domWaits = new DomWaits(driver);
+        this.progress = new ProgressTracker(driver);
+    }
+
+    public DomWaits getDomWaits() {
+        return domWaits;
+    }
+
+    /**
+     * The progress tracker shared by every progress wait of these helpers, so
+     * its transition log covers the whole flow.
+     */
+    public ProgressTracker getProgressTracker() {
+        return progress;
     }
 
     /**
@@ -38,112 +61,107 @@ public class UIHelpers {
     }
 
     /**
-     * Scrolls all scrollable elements and the page itself to the bottom.
+     * Scrolls all scrollable elements and the page itself to the bottom, then
+     * waits until content loaded by the scroll has settled. Pages that never
+     * go quiet, e.g. with a running animation, only cost the timeout.
      * Useful for ensuring elements are in view before interacting.
      */
     public void scrollToBottom() {
-        JavascriptExecutor js = (JavascriptExecutor) driver;
-        js.executeScript(
-                "const scrolls = Array.from(document.querySelectorAll('*')).filter(el => getComputedStyle(el).overflowY === 'auto' || getComputedStyle(el).overflowY === 'scroll');"
-                        + "if (scrolls.length > 0) { scrolls.forEach(el => el.scrollTop = el.scrollHeight); }"
-                        + "window.scrollTo(0, document.body.scrollHeight);");
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException ignored) {
+        try (Span ignored = StepTimer.span("UIHelpers.scrollToBottom")) {
+            JavascriptExecutor js = (JavascriptExecutor) driver;
+            js.executeScript(
+                    "const scrolls = Array.from(document.querySelectorAll('*')).filter(el => getComputedStyle(el).overflowY === 'auto' || getComputedStyle(el).overflowY === 'scroll');"
+                            + "if (scrolls.length > 0) { scrolls.forEach(el => el.scrollTop = el.scrollHeight); }"
+                            + "window.scrollTo(0, document.body.scrollHeight);");
+            try {
+                domWaits.waitForDomQuiet(SCROLL_QUIET_WINDOW, timeout);
+            } catch (TimeoutException e) {
+                System.out.println("[wait] Page did not settle after scrolling to the bottom; continuing");
+            }
         }
     }
 
     /**
      * Clicks a button in the shadow DOM based on one or more text values.
-     * Tries multiple times if the element is not immediately found.
+     * Resolves as soon as a matching button is rendered.
+     *
+     * @throws TimeoutException if no matching button appears within the timeout
      */
     public void clickShadowDomButton(String... texts) {
-        JavascriptExecutor js = (JavascriptExecutor) driver;
-        for (int i = 0; i < 10; i++) {
-            for (String text : texts) {
-                Object result = js.executeScript(
-                        "function find(root) {" +
-                                "const b = Array.from(root.querySelectorAll('gux-button, button')).find(el => el.textContent.includes('"
-                                + text + "'));" +
-                                "if(b){ b.click(); return true; }" +
-                                "const srs = Array.from(root.querySelectorAll('*')).map(e => e.shadowRoot).filter(r=>r);"
-                                +
-                                "for(const sr of srs){ if(find(sr)) return true; } return false;" +
-                                "} return find(document);");
-                if ((Boolean) result)
-                    return;
-            }
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException ignored) {
-            }
+        try (Span ignored = StepTimer.span("UIHelpers.clickShadowDomButton")) {
+            domWaits.until("shadow button " + String.join("/", texts),
+                    "for (const text of args.texts) {"
+                            + "  const b = window.__gcloudShadowFind('text',"
+                            + "      {selector: 'gux-button, button', text: text, exact: false}, document, true)[0];"
+                            + "  if (b) { b.click(); return true; }"
+                            + "}"
+                            + "return false;",
+                    timeout, Map.of("texts", List.of(texts)));
         }
     }
 
     /**
-     * Selects and clicks a radio button answer within a shadow DOM or fallback DOM.
+     * Selects and clicks a radio button answer within a shadow DOM or fallback DOM,
+     * then waits until the answer is registered as checked.
+     *
+     * @throws TimeoutException if the answer cannot be found or selected
      */
     public void clickAnswerInShadowDOM(String answerText) {
-        JavascriptExecutor js = (JavascriptExecutor) driver;
-        String script = "const targetText = arguments[0];" +
-                "const fields = document.querySelectorAll('gux-form-field-radio');" +
-                "for (let field of fields) {" +
-                "  const label = field.querySelector('label');" +
-                "  if(label && label.textContent.trim() === targetText) {" +
-                "    const input = field.shadowRoot.querySelector('input[type=\"radio\"]');" +
-                "    if(input){ input.scrollIntoView({block:'center'}); input.click(); return true; }" +
-                "  }" +
-                "}" +
-                "const fallback = Array.from(document.querySelectorAll('label')).find(l => l.textContent.trim() === targetText);"
-                +
-                "if(fallback){ fallback.scrollIntoView({block:'center'}); fallback.click(); return true; } return false;";
-        js.executeScript(script, answerText);
-        try {
-            Thread.sleep(1500);
-        } catch (InterruptedException ignored) {
+        try (Span ignored = StepTimer.span("UIHelpers.clickAnswerInShadowDOM")) {
+            domWaits.until("answer '" + answerText + "' selected",
+                    "if (!state.target) {"
+                            + "  const label = window.__gcloudShadowFind('text',"
+                            + "      {selector: 'gux-form-field-radio label', text: args.text, exact: true}, document, true)[0]"
+                            + "    || window.__gcloudShadowFind('text', {selector: 'label', text: args.text, exact: true}, document, true)[0];"
+                            + "  if (!label) return false;"
+                            + "  const field = label.closest('gux-form-field-radio');"
+                            + "  state.input = field && field.shadowRoot ? field.shadowRoot.querySelector('input[type=\"radio\"]') : label.control;"
+                            + "  state.target = field && state.input ? state.input : label;"
+                            + "  state.target.scrollIntoView({block:'center'});"
+                            + "  state.target.click();"
+                            + "}"
+                            + "return state.input ? state.input.checked : true;",
+                    timeout, Map.of("text", answerText));
         }
     }
 
     /**
-     * Safely clicks an element using WebDriverWait or falls back to JavaScript
-     * click.
+     * Safely clicks an element once it is clickable, or falls back to a
+     * JavaScript click.
      */
     public void safeClick(By locator) {
-        try {
-            wait.until(ExpectedConditions.elementToBeClickable(locator)).click();
-        } catch (Exception e) {
-            ((JavascriptExecutor) driver).executeScript("arguments[0].click();", driver.findElement(locator));
+        try (Span span = StepTimer.span("UIHelpers.safeClick")) {
+            try {
+                wait.until("clickable " + locator, ExpectedConditions.elementToBeClickable(locator)).click();
+            } catch (Exception e) {
+                span.markFallback();
+                ((JavascriptExecutor) driver).executeScript("arguments[0].click();", driver.findElement(locator));
+            }
         }
     }
 
     /**
-     * Waits until the progress bar reaches a target percentage using JavaScript.
+     * Waits until the progress bar reaches a target percentage, driven by the
+     * progress observer instead of polling.
      */
     public void waitForProgress(int targetPercent, int timeoutSeconds) {
-        new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds)).until(d -> {
-            Object raw = ((JavascriptExecutor) driver).executeScript(
-                    "const bar = document.querySelector('wem-game-progress-bar');" +
-                            "if(!bar) return '-1';" +
-                            "const text = bar.shadowRoot ? bar.shadowRoot.textContent : bar.textContent;" +
-                            "const match = text.match(/(\\d+)%/);" +
-                            "return match ? match[1] : '-1';");
-            if (raw == null)
-                return false;
-            int progress = Integer.parseInt(raw.toString());
-            return progress >= targetPercent;
-        });
+        progress.waitForAtLeast(targetPercent, Duration.ofSeconds(timeoutSeconds));
     }
 
     /**
      * Clicks a link based on its text content using JavaScript.
-     * Useful for dynamically loaded links in the page.
+     * Useful for dynamically loaded links in the page. The lookup and the click
+     * share one round trip per poll.
      */
     public void clickLinkByText(String linkText) {
-        JavascriptExecutor js = (JavascriptExecutor) driver;
-        WebElement link = (WebElement) new WebDriverWait(driver, Duration.ofSeconds(20))
-                .until(d -> (WebElement) js.executeScript(
-                        "return Array.from(document.querySelectorAll('a')).find(a => a.textContent.includes(arguments[0]));",
-                        linkText));
-        js.executeScript("arguments[0].click();", link);
+        try (Span ignored = StepTimer.span("UIHelpers.clickLinkByText")) {
+            JavascriptExecutor js = (JavascriptExecutor) driver;
+            new AdaptiveWait(driver, Duration.ofSeconds(20))
+                    .until("link containing '" + linkText + "' clicked", d -> (Boolean) js.executeScript(
+                            "const link = Array.from(document.querySelectorAll('a')).find(a => a.textContent.includes(arguments[0]));"
+                                    + "if (link) { link.click(); return true; }"
+                                    + "return false;",
+                            linkText));
+        }
     }
 }
@@ -0,0 +1,59 @@
+package com.gcloud.metrics;
+
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the WebDriver commands sent to the browser through a driver decorated
+ * with {@code EventFiringDecorator}. Accessors that only return a local handle
+ * ({@code manage()}, {@code switchTo()}, ...) are not counted since they never
+ * reach chromedriver.
+ */
+public class CommandCounter implements WebDriverListener {
+
+    private static final Set<String> LOCAL_METHODS = Set.of(
+            "manage", "navigate", "switchTo", "timeouts", "window", "logs",
+            "getWrappedDriver", "getWrappedElement", "getPinnedScripts",
+            "toString", "hashCode", "equals");
+
+    private final AtomicLong total = new AtomicLong();
+    private final Map<String, AtomicLong> byCommand = new ConcurrentHashMap<>();
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        if (LOCAL_METHODS.contains(method.getName())) {
+            return;
+        }
+        total.incrementAndGet();
+        byCommand.computeIfAbsent(method.getName(), k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Command counts keyed by the WebDriver method name, sorted by name.
+     */
+    public Map<String, Long> getByCommand() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        byCommand.forEach((name, count) -> snapshot.put(name, count.get()));
+        return snapshot;
+    }
+
+    public void reset() {
+        total.set(0);
+        byCommand.clear();
+    }
+
+    @Override
+    public String toString() {
+        return total.get() + " WebDriver commands " + getByCommand();
+    }
+}
@@ -0,0 +1,122 @@
+package com.gcloud.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Browser memory per concurrent flow, so execution modes can be compared on
+ * the same suite. Each flow start and end samples the resident memory of every
+ * process started by this JVM (drivers and browsers). The summary divides the
+ * peak sample by the number of flows running at that moment.
+ */
+public class FlowFootprint {
+
+    private final String mode;
+    private final LongSupplier rssBytes;
+    private final AtomicInteger active = new AtomicInteger();
+    private int flows;
+    private int peakFlows;
+    private long peakRss = -1;
+    private int flowsAtPeakRss;
+
+    public FlowFootprint(String mode) {
+        this(mode, FlowFootprint::processTreeRss);
+    }
+
+    /**
+     * @param rssBytes resident memory of the browser processes, or -1 when it cannot be measured
+     */
+    public FlowFootprint(String mode, LongSupplier rssBytes) {
+        this.mode = mode;
+        this.rssBytes = rssBytes;
+    }
+
+    public void flowStarted() {
+        int running = active.incrementAndGet();
+        synchronized (this) {
+            flows++;
+            peakFlows = Math.max(peakFlows, running);
+        }
+        sample(running);
+    }
+
+    /**
+     * Call before the flow's browser is released, while its pages are still loaded.
+     */
+    public void flowEnded() {
+        sample(active.getAndDecrement());
+    }
+
+    public synchronized int getFlows() {
+        return flows;
+    }
+
+    public synchronized int getPeakFlows() {
+        return peakFlows;
+    }
+
+    /**
+     * Highest resident memory sampled, or -1 when it could not be measured.
+     */
+    public synchronized long getPeakRssBytes() {
+        return peakRss;
+    }
+
+    /**
+     * Peak resident memory divided by the flows running when it was sampled, or -1.
+     */
+    public synchronized long getBytesPerFlow() {
+        return peakRss < 0 || flowsAtPeakRss == 0 ? -1 : peakRss / flowsAtPeakRss;
+    }
+
+    @Override
+    public synchronized String toString() {
+        String memory = peakRss < 0
+                ? "browser memory not measurable on this platform"
+                : String.format("peak browser RSS %d MB with %d flows open (%d MB per flow)",
+                peakRss >> 20, flowsAtPeakRss, getBytesPerFlow() >> 20);
+        return String.format("mode=%s, %d flows, peak concurrency %d, %s", mode, flows, peakFlows, memory);
+    }
+
+    private void sample(int running) {
+        long rss = rssBytes.getAsLong();
+        if (rss < 0) {
+            return;
+        }
+        synchronized (this) {
+            if (rss > peakRss) {
+                peakRss = rss;
+                flowsAtPeakRss = running;
+            }
+        }
+    }
+
+    /**
+     * Sum of VmRSS over all descendants of this JVM, read from /proc. Returns
+     * -1 on platforms without /proc.
+     */
+    static long processTreeRss() {
+        if (!Files.isDirectory(Path.of("/proc/self"))) {
+            return -1;
+        }
+        return ProcessHandle.current().descendants()
+                .mapToLong(p -> vmRssBytes(Path.of("/proc", String.valueOf(p.pid()), "status")))
+                .sum();
+    }
+
+    private static long vmRssBytes(Path status) {
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // the process exited between listing and reading
+        }
+        return 0;
+    }
+}
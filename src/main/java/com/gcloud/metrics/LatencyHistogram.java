@@ -0,0 +1,56 @@
+package com.gcloud.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency samples for one step with nearest-rank percentiles.
+ */
+public class LatencyHistogram {
+
+    private final List<Long> samples = new ArrayList<>();
+    private boolean sorted = true;
+
+    public synchronized void record(long millis) {
+        samples.add(millis);
+        sorted = false;
+    }
+
+    public synchronized int count() {
+        return samples.size();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the sample at that percentile, or -1 when empty
+     */
+    public synchronized long percentile(double percentile) {
+        if (samples.isEmpty()) {
+            return -1;
+        }
+        if (!sorted) {
+            Collections.sort(samples);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * samples.size());
+        return samples.get(Math.max(0, Math.min(samples.size() - 1, rank - 1)));
+    }
+
+    public synchronized long total() {
+        return samples.stream().mapToLong(Long::longValue).sum();
+    }
+
+    public synchronized Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", samples.size());
+        summary.put("p50", percentile(50));
+        summary.put("p95", percentile(95));
+        summary.put("p99", percentile(99));
+        summary.put("max", percentile(100));
+        summary.put("totalMillis", total());
+        return summary;
+    }
+}
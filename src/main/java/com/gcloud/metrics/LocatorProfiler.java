@@ -0,0 +1,231 @@
+package com.gcloud.metrics;
+
+import com.gcloud.helpers.Scripts;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.decorators.WebDriverDecorator;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Profiler mode for locators and page scripts. A driver decorated with it
+ * times every {@code findElement(s)} and {@code executeScript} call inside the
+ * page with {@code performance.now()} and counts the DOM nodes involved, so
+ * whole-document scans stand out:
+ * <ul>
+ * <li>Lookups with a standard strategy are repeated in the page by a timing
+ * script before the real lookup. Nodes are the subtree searched, or the whole
+ * document for absolute XPaths.</li>
+ * <li>Scripts, sync and async, are wrapped so the page reports their run time
+ * until they complete and the nodes returned by {@code querySelectorAll},
+ * walked by XPath or styled with {@code getComputedStyle}.</li>
+ * <li>Custom locators such as {@code ShadowBy} and pinned scripts only get
+ * their round-trip time.</li>
+ * </ul>
+ * The extra timing script makes profiled lookups slower; this is a diagnostic
+ * mode, not one to leave on.
+ */
+public class LocatorProfiler extends WebDriverDecorator<WebDriver> {
+
+    private static final ThreadLocal<LocatorProfiler> CURRENT = new ThreadLocal<>();
+    private static final int DESCRIPTION_LENGTH = 100;
+
+    private final long budgetMillis;
+    private final Map<String, Cost> costs = new ConcurrentHashMap<>();
+    private final List<String> overBudget = new ArrayList<>();
+
+    /**
+     * @param budgetMillis in-page time a single lookup or script may take, or 0 for no budget
+     */
+    public LocatorProfiler(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Binds a new profiler to the current thread and returns it.
+     */
+    public static LocatorProfiler begin(long budgetMillis) {
+        LocatorProfiler profiler = new LocatorProfiler(budgetMillis);
+        CURRENT.set(profiler);
+        return profiler;
+    }
+
+    public static LocatorProfiler current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public Object call(Decorated<?> target, Method method, Object[] args) throws Throwable {
+        Object original = target.getOriginal();
+        String name = method.getName();
+        if ((original instanceof WebDriver || original instanceof WebElement)
+                && (name.equals("findElement") || name.equals("findElements")) && args[0] instanceof By) {
+            return profileLookup(target, method, args, (By) args[0],
+                    original instanceof WebElement ? (WebElement) original : null);
+        }
+        if (original instanceof JavascriptExecutor && (name.equals("executeScript") || name.equals("executeAsyncScript"))
+                && args[0] instanceof String) {
+            return profileScript(target, method, args, name.equals("executeAsyncScript"));
+        }
+        return super.call(target, method, args);
+    }
+
+    private Object profileLookup(Decorated<?> target, Method method, Object[] args, By by, WebElement scope)
+            throws Throwable {
+        Map<?, ?> page = null;
+        if (by instanceof By.Remotable) {
+            By.Remotable.Parameters parameters = ((By.Remotable) by).getRemoteParameters();
+            try {
+                page = (Map<?, ?>) js().executeScript(Scripts.load("profile-lookup.js"),
+                        parameters.using(), parameters.value(), scope);
+            } catch (RuntimeException e) {
+                // the real lookup below reports invalid selectors
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            return super.call(target, method, args);
+        } finally {
+            record("locator " + by, page, start, true);
+        }
+    }
+
+    /**
+     * An async script is measured until it calls back. That time includes
+     * waiting for the page, as in {@link com.gcloud.helpers.DomWaits}, so async
+     * scripts are ranked but not held to the budget.
+     */
+    private Object profileScript(Decorated<?> target, Method method, Object[] args, boolean async) throws Throwable {
+        String script = (String) args[0];
+        Object[] wrapped = args.clone();
+        wrapped[0] = Scripts.load("profile-script.js").replace("/*ASYNC*/false", String.valueOf(async))
+                .replace("/*SCRIPT*/", script);
+        long start = System.nanoTime();
+        Map<?, ?> page = null;
+        try {
+            Object result = super.call(target, method, wrapped);
+            if (result instanceof Map && Boolean.TRUE.equals(((Map<?, ?>) result).get("__gcloudProfile"))) {
+                page = (Map<?, ?>) result;
+                return redecorate(page.get("value"));
+            }
+            return result;
+        } finally {
+            record((async ? "async script " : "script ") + script.replaceAll("\\s+", " ").trim(), page, start, !async);
+        }
+    }
+
+    /**
+     * Elements inside the wrapper's result map came back undecorated.
+     */
+    private Object redecorate(Object value) {
+        if (value instanceof WebElement) {
+            return createProxy(createDecorated((WebElement) value), WebElement.class);
+        }
+        if (value instanceof List) {
+            List<Object> decorated = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                decorated.add(redecorate(item));
+            }
+            return decorated;
+        }
+        return value;
+    }
+
+    private void record(String description, Map<?, ?> page, long startNanos, boolean budgeted) {
+        double roundTripMillis = (System.nanoTime() - startNanos) / 1_000_000.0;
+        String key = description.length() > DESCRIPTION_LENGTH
+                ? description.substring(0, DESCRIPTION_LENGTH) + "..." : description;
+        double pageMillis = page != null ? ((Number) page.get("millis")).doubleValue() : -1;
+        long nodes = page != null ? ((Number) page.get("nodes")).longValue() : -1;
+        costs.computeIfAbsent(key, Cost::new).add(pageMillis, roundTripMillis, nodes);
+
+        if (budgeted && budgetMillis > 0 && pageMillis > budgetMillis) {
+            synchronized (overBudget) {
+                overBudget.add(String.format("%s took %.1fms in the page over %d nodes (budget %dms)",
+                        key, pageMillis, nodes, budgetMillis));
+            }
+        }
+    }
+
+    private JavascriptExecutor js() {
+        return (JavascriptExecutor) getDecoratedDriver().getOriginal();
+    }
+
+    /**
+     * Locators and scripts by cumulative in-page time, then round-trip time, most expensive first.
+     */
+    public List<Map<String, Object>> getRanking() {
+        List<Cost> sorted = new ArrayList<>(costs.values());
+        sorted.sort(Comparator.comparingDouble((Cost c) -> c.pageMillis).thenComparingDouble(c -> c.roundTripMillis).reversed());
+        List<Map<String, Object>> ranking = new ArrayList<>();
+        for (Cost cost : sorted) {
+            ranking.add(cost.toMap());
+        }
+        return ranking;
+    }
+
+    /**
+     * Calls whose in-page time exceeded the budget, in order.
+     */
+    public List<String> getOverBudget() {
+        synchronized (overBudget) {
+            return new ArrayList<>(overBudget);
+        }
+    }
+
+    private static class Cost {
+        private final String description;
+        private long calls;
+        private double pageMillis;
+        private double maxPageMillis;
+        private double roundTripMillis;
+        private long nodes;
+        private long maxNodes = -1;
+
+        Cost(String description) {
+            this.description = description;
+        }
+
+        synchronized void add(double page, double roundTrip, long visited) {
+            calls++;
+            roundTripMillis += roundTrip;
+            if (page >= 0) {
+                pageMillis += page;
+                maxPageMillis = Math.max(maxPageMillis, page);
+            }
+            if (visited >= 0) {
+                nodes += visited;
+                maxNodes = Math.max(maxNodes, visited);
+            }
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", description);
+            map.put("calls", calls);
+            map.put("pageMillis", round(pageMillis));
+            map.put("maxPageMillis", round(maxPageMillis));
+            map.put("roundTripMillis", round(roundTripMillis));
+            map.put("nodes", nodes);
+            map.put("maxNodes", maxNodes);
+            return map;
+        }
+
+        private static double round(double millis) {
+            return Math.round(millis * 10) / 10.0;
+        }
+    }
+}
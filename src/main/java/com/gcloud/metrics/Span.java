@@ -0,0 +1,57 @@
+package com.gcloud.metrics;
+
+/**
+ * An open step timing. Close it, typically with try-with-resources, to record it.
+ */
+public class Span implements AutoCloseable {
+
+    private final StepTimer.Context context;
+    private final Span parent;
+    private final String name;
+    private final String path;
+    private final long startNanos = System.nanoTime();
+    private final long startEpochMillis = System.currentTimeMillis();
+    private final long startCommands;
+    private int retries;
+    private boolean fallback;
+    private boolean closed;
+
+    Span(StepTimer.Context context, Span parent, String name) {
+        this.context = context;
+        this.parent = parent;
+        this.name = name;
+        this.path = parent != null ? parent.path + " > " + name : name;
+        this.startCommands = context.commands();
+    }
+
+    /**
+     * Notes that the step had to retry an action.
+     */
+    public Span markRetry() {
+        retries++;
+        return this;
+    }
+
+    /**
+     * Notes that the step took its fallback path, e.g. a JavaScript click.
+     */
+    public Span markFallback() {
+        fallback = true;
+        return this;
+    }
+
+    Span getParent() {
+        return parent;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        context.finish(this, new SpanRecord(context.test(), name, path, startEpochMillis, millis,
+                context.commands() - startCommands, retries, fallback));
+    }
+}
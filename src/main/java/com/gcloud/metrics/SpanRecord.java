@@ -0,0 +1,86 @@
+package com.gcloud.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A finished step: where it ran, how long it took, how many WebDriver commands
+ * it sent and whether a retry or fallback path was taken.
+ */
+public class SpanRecord {
+
+    private final String test;
+    private final String name;
+    private final String path;
+    private final long startEpochMillis;
+    private final long millis;
+    private final long commands;
+    private final int retries;
+    private final boolean fallback;
+
+    public SpanRecord(String test, String name, String path, long startEpochMillis, long millis,
+            long commands, int retries, boolean fallback) {
+        this.test = test;
+        this.name = name;
+        this.path = path;
+        this.startEpochMillis = startEpochMillis;
+        this.millis = millis;
+        this.commands = commands;
+        this.retries = retries;
+        this.fallback = fallback;
+    }
+
+    public String getTest() {
+        return test;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Names of the enclosing spans and this one, joined with " > ".
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public long getCommands() {
+        return commands;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("test", test);
+        map.put("name", name);
+        map.put("path", path);
+        map.put("start", startEpochMillis);
+        map.put("millis", millis);
+        map.put("commands", commands);
+        map.put("retries", retries);
+        map.put("fallback", fallback);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return path + " " + millis + "ms, " + commands + " commands"
+                + (retries > 0 ? ", " + retries + " retries" : "") + (fallback ? ", fallback" : "");
+    }
+}
@@ -0,0 +1,138 @@
+package com.gcloud.metrics;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes step timings in machine-readable form:
+ * <ul>
+ * <li>{@code steps-<run>.json}: every span of this run plus per-step percentiles</li>
+ * <li>{@code step-history.csv}: one row per span, appended across runs</li>
+ * <li>{@code step-summary.json}: per-step p50/p95/p99 over the whole history</li>
+ * </ul>
+ */
+public class StepReport {
+
+    static final String HISTORY_FILE = "step-history.csv";
+    static final String SUMMARY_FILE = "step-summary.json";
+    private static final String HEADER = "run,test,name,path,start,millis,commands,retries,fallback";
+
+    private final Path directory;
+
+    public StepReport(Path directory) {
+        this.directory = directory;
+    }
+
+    public void write(String runId, List<SpanRecord> records) throws IOException {
+        Files.createDirectories(directory);
+        Json json = new Json();
+
+        Map<String, LatencyHistogram> runHistograms = new TreeMap<>();
+        List<Map<String, Object>> spans = new ArrayList<>();
+        for (SpanRecord record : records) {
+            spans.add(record.toMap());
+            runHistograms.computeIfAbsent(record.getName(), k -> new LatencyHistogram()).record(record.getMillis());
+        }
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("run", runId);
+        run.put("steps", summarize(runHistograms));
+        run.put("spans", spans);
+        Files.writeString(directory.resolve("steps-" + runId + ".json"), json.toJson(run), StandardCharsets.UTF_8);
+
+        appendHistory(runId, records);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("lastRun", runId);
+        summary.put("steps", summarize(readHistory()));
+        Files.writeString(directory.resolve(SUMMARY_FILE), json.toJson(summary), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Per-step latency histograms over every run recorded in the history file.
+     */
+    public Map<String, LatencyHistogram> readHistory() throws IOException {
+        Map<String, LatencyHistogram> histograms = new TreeMap<>();
+        Path history = directory.resolve(HISTORY_FILE);
+        if (!Files.exists(history)) {
+            return histograms;
+        }
+        List<String> lines = Files.readAllLines(history, StandardCharsets.UTF_8);
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> fields = parseCsv(line);
+            if (fields.size() >= 6) {
+                histograms.computeIfAbsent(fields.get(2), k -> new LatencyHistogram())
+                        .record(Long.parseLong(fields.get(5)));
+            }
+        }
+        return histograms;
+    }
+
+    private void appendHistory(String runId, List<SpanRecord> records) throws IOException {
+        Path history = directory.resolve(HISTORY_FILE);
+        StringBuilder rows = new StringBuilder();
+        if (!Files.exists(history)) {
+            rows.append(HEADER).append('\n');
+        }
+        for (SpanRecord r : records) {
+            rows.append(String.join(",", csv(runId), csv(r.getTest()), csv(r.getName()), csv(r.getPath()),
+                    String.valueOf(r.getStartEpochMillis()), String.valueOf(r.getMillis()),
+                    String.valueOf(r.getCommands()), String.valueOf(r.getRetries()),
+                    String.valueOf(r.isFallback()))).append('\n');
+        }
+        Files.writeString(history, rows, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static Map<String, Object> summarize(Map<String, LatencyHistogram> histograms) {
+        Map<String, Object> steps = new LinkedHashMap<>();
+        histograms.forEach((name, histogram) -> steps.put(name, histogram.summary()));
+        return steps;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"").replace("\n", " ") + "\"";
+        }
+        return value;
+    }
+
+    private static List<String> parseCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,94 @@
+package com.gcloud.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records named spans for page-object actions and waits. Each test thread binds
+ * its name and command counter once; spans opened on that thread nest under one
+ * another and are collected JVM-wide for {@link StepReport}.
+ * <pre>
+ * try (Span span = StepTimer.span("AssignmentPage.navigateToAssignment")) {
+ *     ...
+ *     span.markRetry();
+ * }
+ * </pre>
+ */
+public final class StepTimer {
+
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(() -> new Context("unbound", null));
+    private static final ConcurrentLinkedQueue<SpanRecord> RECORDS = new ConcurrentLinkedQueue<>();
+
+    private StepTimer() {
+    }
+
+    /**
+     * Binds the current thread to a test; spans recorded afterwards carry its name
+     * and the commands counted by {@code counter}.
+     */
+    public static void beginTest(String test, CommandCounter counter) {
+        CONTEXT.set(new Context(test, counter));
+    }
+
+    public static void endTest() {
+        CONTEXT.remove();
+    }
+
+    public static Span span(String name) {
+        Context context = CONTEXT.get();
+        Span span = new Span(context, context.current, name);
+        context.current = span;
+        return span;
+    }
+
+    /**
+     * Every span recorded in this JVM, in completion order.
+     */
+    public static List<SpanRecord> getRecords() {
+        return new ArrayList<>(RECORDS);
+    }
+
+    /**
+     * Latency histograms of the spans recorded in this JVM, keyed by span name.
+     */
+    public static Map<String, LatencyHistogram> histograms() {
+        Map<String, LatencyHistogram> histograms = new TreeMap<>();
+        for (SpanRecord record : RECORDS) {
+            histograms.computeIfAbsent(record.getName(), k -> new LatencyHistogram()).record(record.getMillis());
+        }
+        return histograms;
+    }
+
+    public static void clear() {
+        RECORDS.clear();
+    }
+
+    static final class Context {
+        private final String test;
+        private final CommandCounter counter;
+        private Span current;
+
+        Context(String test, CommandCounter counter) {
+            this.test = test;
+            this.counter = counter;
+        }
+
+        String test() {
+            return test;
+        }
+
+        long commands() {
+            return counter != null ? counter.getTotal() : 0;
+        }
+
+        void finish(Span span, SpanRecord record) {
+            if (current == span) {
+                current = span.getParent();
+            }
+            RECORDS.add(record);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.gcloud.metrics;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * How long each test took in previous runs, kept in a JSON file. A test is a
+ * test method, or a {@code <test>} of the suite; data-driven methods keep one
+ * sample per invocation plus their invocation count of the last run.
+ * <p>
+ * Predictions come from previous runs only, so they stay fixed while the
+ * suite runs, and are the median of the kept samples. Tests without history are
+ * predicted at the median of the known tests, so a new test is neither run
+ * first nor left for last.
+ */
+public class TestDurations {
+
+    /**
+     * Samples kept per test; older samples are dropped first.
+     */
+    static final int MAX_SAMPLES = 20;
+
+    private final Path file;
+    private final Map<String, Deque<Long>> samples = new TreeMap<>();
+    private final Map<String, Integer> invocations = new TreeMap<>();
+    private final Map<String, List<Long>> run = new TreeMap<>();
+
+    /**
+     * @param file history file, loaded when it exists, or null to keep the history in memory
+     */
+    public TestDurations(Path file) {
+        this.file = file;
+        if (file != null && Files.exists(file)) {
+            load();
+        }
+    }
+
+    /**
+     * Records one invocation of a test.
+     */
+    public synchronized void record(String test, long millis) {
+        run.computeIfAbsent(test, k -> new ArrayList<>()).add(millis);
+    }
+
+    public synchronized boolean isKnown(String test) {
+        return samples.containsKey(test);
+    }
+
+    /**
+     * The median duration of one invocation, or -1 without history.
+     */
+    public synchronized long predictInvocation(String test) {
+        Deque<Long> kept = samples.get(test);
+        if (kept == null || kept.isEmpty()) {
+            return -1;
+        }
+        List<Long> sorted = new ArrayList<>(kept);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    /**
+     * The predicted duration of all invocations of a test.
+     */
+    public synchronized long predict(String test) {
+        long invocation = predictInvocation(test);
+        if (invocation < 0) {
+            return fallback();
+        }
+        return invocation * invocations.getOrDefault(test, 1);
+    }
+
+    private long fallback() {
+        List<Long> known = new ArrayList<>();
+        for (String test : samples.keySet()) {
+            known.add(predictInvocation(test) * invocations.getOrDefault(test, 1));
+        }
+        if (known.isEmpty()) {
+            return 0;
+        }
+        Collections.sort(known);
+        return known.get(known.size() / 2);
+    }
+
+    /**
+     * The tests ordered by predicted duration, longest first. Ties keep their order.
+     */
+    public <T> List<T> longestFirst(List<T> tests, Function<T, String> name) {
+        Map<T, Long> predicted = new LinkedHashMap<>();
+        for (T test : tests) {
+            predicted.put(test, predict(name.apply(test)));
+        }
+        List<T> ordered = new ArrayList<>(tests);
+        ordered.sort(Comparator.comparingLong((T t) -> predicted.get(t)).reversed());
+        return ordered;
+    }
+
+    /**
+     * Wall time of running the given durations in order on {@code workers}
+     * workers, each taking the next test as soon as it is free. For a
+     * longest-first order this is the LPT bin-packing bound, at most 4/3 of the
+     * optimum.
+     */
+    public static long makespan(List<Long> durations, int workers) {
+        PriorityQueue<Long> finish = new PriorityQueue<>();
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            finish.add(0L);
+        }
+        for (long duration : durations) {
+            finish.add(finish.poll() + duration);
+        }
+        return Collections.max(finish);
+    }
+
+    /**
+     * Writes the history, including this run's samples, back to its file.
+     */
+    public synchronized void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Map<String, Object> tests = new TreeMap<>();
+        samples.forEach((test, kept) -> tests.put(test, entry(kept, invocations.getOrDefault(test, 1))));
+        run.forEach((test, millis) -> {
+            Deque<Long> kept = new ArrayDeque<>(samples.getOrDefault(test, new ArrayDeque<>()));
+            millis.forEach(kept::addLast);
+            while (kept.size() > MAX_SAMPLES) {
+                kept.removeFirst();
+            }
+            tests.put(test, entry(kept, millis.size()));
+        });
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, "durations", ".tmp");
+        Files.writeString(tmp, new Json().toJson(Map.of("tests", tests)), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Map<String, Object> entry(Deque<Long> kept, int invocations) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("samples", new ArrayList<>(kept));
+        entry.put("invocations", invocations);
+        return entry;
+    }
+
+    private void load() {
+        try {
+            Map<String, Object> root = new Json().toType(Files.readString(file, StandardCharsets.UTF_8), Json.MAP_TYPE);
+            Map<?, ?> tests = (Map<?, ?>) root.getOrDefault("tests", Map.of());
+            tests.forEach((test, raw) -> {
+                Map<?, ?> entry = (Map<?, ?>) raw;
+                Deque<Long> kept = new ArrayDeque<>();
+                for (Object sample : (List<?>) entry.get("samples")) {
+                    kept.addLast(((Number) sample).longValue());
+                }
+                while (kept.size() > MAX_SAMPLES) {
+                    kept.removeFirst();
+                }
+                samples.put((String) test, kept);
+                invocations.put((String) test, ((Number) entry.get("invocations")).intValue());
+            });
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[schedule] Ignoring unreadable duration history " + file + ": " + e.getMessage());
+            samples.clear();
+            invocations.clear();
+        }
+    }
+}
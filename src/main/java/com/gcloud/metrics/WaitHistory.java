@@ -0,0 +1,259 @@
+package com.gcloud.metrics;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * How long each named wait took, kept across runs in a JSON file. Waits use it
+ * to poll around their usual completion time and to derive their timeout from
+ * the slowest runs instead of a hardcoded constant. Per-run totals show which
+ * waits dominate a run.
+ * <p>
+ * Resolved waits count towards the percentiles. A wait that fails at its
+ * derived timeout, before the caller's ceiling, counts too: it took at least
+ * that long, and as a sample it raises the next derived timeout, so the
+ * history catches up with a slower application within a failure or two.
+ * Waits that fail at the ceiling are left out; they would only pin the
+ * timeout to the ceiling.
+ * <p>
+ * The file keeps one history per environment (base URL or profile), so runs
+ * against a fast local app do not shorten the timeouts of a slow real one.
+ */
+public class WaitHistory {
+
+    /**
+     * Resolved samples kept per wait; older samples are dropped first.
+     */
+    static final int MAX_SAMPLES = 200;
+    /**
+     * Samples a wait needs before its history is trusted.
+     */
+    public static final int MIN_SAMPLES = 5;
+    static final double TIMEOUT_PERCENTILE = 99;
+    static final double TIMEOUT_FACTOR = 3;
+    static final long MIN_TIMEOUT_MILLIS = 2_000;
+
+    static final String DEFAULT_ENVIRONMENT = "default";
+
+    private static volatile WaitHistory shared = new WaitHistory(null, true);
+
+    private final Path file;
+    private final String environment;
+    private final boolean adaptive;
+    /**
+     * The histories of other environments, written back unchanged.
+     */
+    private final Map<String, Object> otherEnvironments = new TreeMap<>();
+    private final Map<String, Deque<Long>> samples = new TreeMap<>();
+    private final Map<String, Long> pastTimeouts = new TreeMap<>();
+    private final Map<String, RunStats> run = new TreeMap<>();
+
+    public WaitHistory(Path file, boolean adaptive) {
+        this(file, DEFAULT_ENVIRONMENT, adaptive);
+    }
+
+    /**
+     * @param file        history file, loaded when it exists, or null to keep the history in memory
+     * @param environment the environment whose history is read and written
+     * @param adaptive    false to only record, keeping the callers' own timeouts and fixed polling
+     */
+    public WaitHistory(Path file, String environment, boolean adaptive) {
+        this.file = file;
+        this.environment = environment;
+        this.adaptive = adaptive;
+        if (file != null && Files.exists(file)) {
+            load();
+        }
+    }
+
+    /**
+     * The history used by page objects and helpers. Starts as an in-memory
+     * history until the suite installs one backed by a file.
+     */
+    public static WaitHistory shared() {
+        return shared;
+    }
+
+    public static void share(WaitHistory history) {
+        shared = history;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public void record(String name, long millis, int polls, boolean resolved) {
+        record(name, millis, polls, resolved, false);
+    }
+
+    /**
+     * @param derivedTimeout true if the wait failed at a derived timeout shorter than its ceiling
+     */
+    public synchronized void record(String name, long millis, int polls, boolean resolved, boolean derivedTimeout) {
+        if (resolved || derivedTimeout) {
+            Deque<Long> kept = samples.computeIfAbsent(name, k -> new ArrayDeque<>());
+            kept.addLast(millis);
+            if (kept.size() > MAX_SAMPLES) {
+                kept.removeFirst();
+            }
+        }
+        run.computeIfAbsent(name, k -> new RunStats()).add(millis, polls, resolved, derivedTimeout);
+    }
+
+    public synchronized int getSampleCount(String name) {
+        Deque<Long> kept = samples.get(name);
+        return kept != null ? kept.size() : 0;
+    }
+
+    /**
+     * The given percentile of the wait's resolved durations, or -1 until it has
+     * {@link #MIN_SAMPLES} of them.
+     */
+    public synchronized long percentile(String name, double percentile) {
+        Deque<Long> kept = samples.get(name);
+        if (kept == null || kept.size() < MIN_SAMPLES) {
+            return -1;
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        kept.forEach(histogram::record);
+        return histogram.percentile(percentile);
+    }
+
+    /**
+     * Three times the wait's p99, at least two seconds and at most
+     * {@code ceiling}, after which the wait fails. The ceiling, the caller's
+     * former hardcoded timeout, applies as is while the history is too short.
+     */
+    public Duration timeoutFor(String name, Duration ceiling) {
+        long p99 = adaptive ? percentile(name, TIMEOUT_PERCENTILE) : -1;
+        if (p99 < 0) {
+            return ceiling;
+        }
+        long derived = Math.max(MIN_TIMEOUT_MILLIS, (long) (p99 * TIMEOUT_FACTOR));
+        return Duration.ofMillis(Math.min(derived, ceiling.toMillis()));
+    }
+
+    /**
+     * Waits of this run by total time spent, longest first.
+     */
+    public synchronized List<Map<String, Object>> getDominantWaits() {
+        long runTotal = run.values().stream().mapToLong(s -> s.histogram.total()).sum();
+        List<Map<String, Object>> ranked = new ArrayList<>();
+        run.forEach((name, stats) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("name", name);
+            row.put("totalMillis", stats.histogram.total());
+            row.put("share", runTotal > 0 ? Math.round(1000.0 * stats.histogram.total() / runTotal) / 10.0 : 0.0);
+            row.put("count", stats.histogram.count());
+            row.put("timeouts", stats.timeouts);
+            row.put("derivedTimeouts", stats.derivedTimeouts);
+            row.put("p50", stats.histogram.percentile(50));
+            row.put("p95", stats.histogram.percentile(95));
+            row.put("pollsPerWait", Math.round(10.0 * stats.polls / stats.histogram.count()) / 10.0);
+            ranked.add(row);
+        });
+        ranked.sort((a, b) -> Long.compare((Long) b.get("totalMillis"), (Long) a.get("totalMillis")));
+        return ranked;
+    }
+
+    /**
+     * Writes the history, including this run's samples, back to its file.
+     */
+    public synchronized void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Map<String, Object> waits = new TreeMap<>();
+        samples.forEach((name, kept) -> waits.put(name, entry(new ArrayList<>(kept), timeouts(name))));
+        pastTimeouts.forEach((name, count) -> waits.putIfAbsent(name, entry(List.of(), timeouts(name))));
+        run.forEach((name, stats) -> waits.putIfAbsent(name, entry(List.of(), timeouts(name))));
+
+        Map<String, Object> environments = new TreeMap<>(otherEnvironments);
+        environments.put(environment, Map.of("waits", waits));
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, "waits", ".tmp");
+        Files.writeString(tmp, new Json().toJson(Map.of("environments", environments)), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long timeouts(String name) {
+        RunStats stats = run.get(name);
+        return pastTimeouts.getOrDefault(name, 0L) + (stats != null ? stats.timeouts : 0);
+    }
+
+    private static Map<String, Object> entry(List<Long> kept, long timeouts) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("samples", kept);
+        entry.put("timeouts", timeouts);
+        return entry;
+    }
+
+    private void load() {
+        try {
+            Map<String, Object> root = new Json().toType(Files.readString(file, StandardCharsets.UTF_8), Json.MAP_TYPE);
+            // a file without environments predates them; its samples may come from any of them
+            Map<?, ?> environments = (Map<?, ?>) root.getOrDefault("environments", Map.of());
+            environments.forEach((name, history) -> {
+                if (!environment.equals(name)) {
+                    otherEnvironments.put((String) name, history);
+                }
+            });
+            Map<?, ?> current = (Map<?, ?>) environments.get(environment);
+            Map<?, ?> waits = current != null ? (Map<?, ?>) current.get("waits") : Map.of();
+            waits.forEach((name, raw) -> {
+                Map<?, ?> entry = (Map<?, ?>) raw;
+                Deque<Long> kept = new ArrayDeque<>();
+                for (Object sample : (List<?>) entry.get("samples")) {
+                    kept.addLast(((Number) sample).longValue());
+                }
+                while (kept.size() > MAX_SAMPLES) {
+                    kept.removeFirst();
+                }
+                samples.put((String) name, kept);
+                pastTimeouts.put((String) name, ((Number) entry.get("timeouts")).longValue());
+            });
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[wait] Ignoring unreadable wait history " + file + ": " + e.getMessage());
+            samples.clear();
+            pastTimeouts.clear();
+            otherEnvironments.clear();
+        }
+    }
+
+    private static class RunStats {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long polls;
+        private long timeouts;
+        private long derivedTimeouts;
+
+        void add(long millis, int polls, boolean resolved, boolean derivedTimeout) {
+            histogram.record(millis);
+            this.polls += polls;
+            if (!resolved) {
+                timeouts++;
+            }
+            if (derivedTimeout) {
+                derivedTimeouts++;
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.gcloud.network;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of immutable static assets shared by every browser session in the
+ * JVM. Bodies are stored once per SHA-256 of their content under
+ * {@code objects/}, and an index maps each URL to its content hash. When the
+ * cache grows past {@code maxBytes}, the least recently used bodies are
+ * evicted. Access times are kept as file modification times, so the LRU order
+ * survives across runs.
+ */
+public class AssetCache {
+
+    private static final String INDEX_FILE = "index.properties";
+
+    private final Path directory;
+    private final Path objects;
+    private final long maxBytes;
+    private final Map<String, Entry> byUrl = new LinkedHashMap<>();
+    /**
+     * Content hash to body size, in access order (eldest first).
+     */
+    private final LinkedHashMap<String, Long> lru = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    public AssetCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.objects = directory.resolve("objects");
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    /**
+     * The cached body for {@code url}, marking it as recently used.
+     */
+    public synchronized Optional<Asset> get(String url) {
+        Entry entry = byUrl.get(url);
+        if (entry == null || !lru.containsKey(entry.hash)) {
+            return Optional.empty();
+        }
+        Path blob = objects.resolve(entry.hash);
+        try {
+            byte[] body = Files.readAllBytes(blob);
+            lru.get(entry.hash);
+            Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(new Asset(entry.contentType, entry.allowOrigin, body));
+        } catch (IOException e) {
+            forget(entry.hash);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores {@code body} for {@code url}. Identical bodies under different URLs
+     * share one blob. Bodies larger than the whole cache are ignored.
+     */
+    public synchronized void put(String url, String contentType, String allowOrigin, byte[] body) {
+        if (body.length > maxBytes) {
+            return;
+        }
+        String hash = sha256(body);
+        try {
+            if (!lru.containsKey(hash)) {
+                Files.createDirectories(objects);
+                Path tmp = Files.createTempFile(objects, hash, ".tmp");
+                Files.write(tmp, body);
+                Files.move(tmp, objects.resolve(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                sizeBytes += body.length;
+            }
+            lru.put(hash, (long) body.length);
+            byUrl.put(url, new Entry(hash, contentType, allowOrigin));
+            evict();
+            writeIndex();
+        } catch (IOException e) {
+            System.out.println("[network] Could not cache " + url + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int getAssetCount() {
+        return lru.size();
+    }
+
+    private void evict() {
+        var eldest = lru.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> victim = eldest.next();
+            eldest.remove();
+            sizeBytes -= victim.getValue();
+            byUrl.values().removeIf(e -> e.hash.equals(victim.getKey()));
+            try {
+                Files.deleteIfExists(objects.resolve(victim.getKey()));
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void forget(String hash) {
+        Long size = lru.remove(hash);
+        if (size != null) {
+            sizeBytes -= size;
+        }
+        byUrl.values().removeIf(e -> e.hash.equals(hash));
+    }
+
+    private void load() {
+        if (Files.isDirectory(objects)) {
+            List<Path> blobs = new ArrayList<>();
+            try (Stream<Path> files = Files.list(objects)) {
+                files.filter(p -> !p.getFileName().toString().endsWith(".tmp")).forEach(blobs::add);
+            } catch (IOException e) {
+                System.out.println("[network] Ignoring unreadable asset cache " + objects + ": " + e.getMessage());
+            }
+            blobs.sort(Comparator.comparing(AssetCache::lastModified));
+            for (Path blob : blobs) {
+                try {
+                    long size = Files.size(blob);
+                    lru.put(blob.getFileName().toString(), size);
+                    sizeBytes += size;
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        Path index = directory.resolve(INDEX_FILE);
+        if (Files.exists(index)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(index)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.out.println("[network] Ignoring unreadable asset index " + index + ": " + e.getMessage());
+            }
+            for (String url : properties.stringPropertyNames()) {
+                String[] fields = properties.getProperty(url).split("\t", -1);
+                if (fields.length == 3 && lru.containsKey(fields[0])) {
+                    byUrl.put(url, new Entry(fields[0], fields[1].isEmpty() ? null : fields[1],
+                            fields[2].isEmpty() ? null : fields[2]));
+                }
+            }
+        }
+        evict();
+    }
+
+    private void writeIndex() throws IOException {
+        Properties properties = new Properties();
+        byUrl.forEach((url, e) -> properties.setProperty(url,
+                e.hash + "\t" + (e.contentType != null ? e.contentType : "") + "\t" + (e.allowOrigin != null ? e.allowOrigin : "")));
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, "index", ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "asset URL -> content hash, content type, allowed origin");
+        }
+        Files.move(tmp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        private final String hash;
+        private final String contentType;
+        private final String allowOrigin;
+
+        Entry(String hash, String contentType, String allowOrigin) {
+            this.hash = hash;
+            this.contentType = contentType;
+            this.allowOrigin = allowOrigin;
+        }
+    }
+
+    public static class Asset {
+        private final String contentType;
+        private final String allowOrigin;
+        private final byte[] body;
+
+        Asset(String contentType, String allowOrigin, byte[] body) {
+            this.contentType = contentType;
+            this.allowOrigin = allowOrigin;
+            this.body = body;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * The Access-Control-Allow-Origin header of the original response, or null.
+         */
+        public String getAllowOrigin() {
+            return allowOrigin;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
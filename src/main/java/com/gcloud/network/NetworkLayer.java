@@ -0,0 +1,201 @@
+package com.gcloud.network;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.devtools.NetworkInterceptor;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Optional DevTools network layer for a browser session. Requests whose URL
+ * matches a block pattern are answered with an empty 204 and never hit the
+ * network. Immutable static assets (responses marked {@code immutable} or
+ * cacheable for at least a day, or URLs matching a cache pattern) are stored
+ * in a shared {@link AssetCache} and served from disk afterwards. Counters
+ * report the requests and bytes saved since the last {@link #resetStats()}.
+ * <p>
+ * Patterns are globs over the full URL, e.g. {@code *.png} or
+ * {@code *://*.google-analytics.com/*}.
+ */
+public class NetworkLayer implements Filter {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final long ONE_DAY_SECONDS = 86_400;
+    private static final Map<WebDriver, NetworkLayer> ATTACHED = new WeakHashMap<>();
+
+    private final List<Pattern> blockPatterns;
+    private final List<Pattern> cachePatterns;
+    private final AssetCache cache;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheStores = new AtomicLong();
+    private final AtomicLong bytesFromCache = new AtomicLong();
+    private final AtomicLong bytesFromNetwork = new AtomicLong();
+
+    /**
+     * @param cache shared asset cache, or null to only block requests
+     */
+    public NetworkLayer(List<String> blockPatterns, List<String> cachePatterns, AssetCache cache) {
+        this.blockPatterns = compile(blockPatterns);
+        this.cachePatterns = compile(cachePatterns);
+        this.cache = cache;
+    }
+
+    /**
+     * Installs a layer on the browser behind {@code driver} the first time it is
+     * seen and returns it; pooled sessions keep their layer across leases.
+     */
+    public static NetworkLayer attach(WebDriver driver, List<String> blockPatterns, List<String> cachePatterns,
+                                      AssetCache cache) {
+        WebDriver raw = driver;
+        while (raw instanceof WrapsDriver) {
+            raw = ((WrapsDriver) raw).getWrappedDriver();
+        }
+        synchronized (ATTACHED) {
+            NetworkLayer layer = ATTACHED.get(raw);
+            if (layer == null) {
+                layer = new NetworkLayer(blockPatterns, cachePatterns, cache);
+                // the interceptor lives as long as the browser session
+                new NetworkInterceptor(raw, layer);
+                ATTACHED.put(raw, layer);
+            }
+            return layer;
+        }
+    }
+
+    @Override
+    public HttpHandler apply(HttpHandler next) {
+        return request -> {
+            requests.incrementAndGet();
+            String url = request.getUri();
+
+            if (matches(blockPatterns, url)) {
+                blocked.incrementAndGet();
+                return new HttpResponse().setStatus(204);
+            }
+
+            boolean get = request.getMethod() == HttpMethod.GET;
+            if (get && cache != null) {
+                AssetCache.Asset asset = cache.get(url).orElse(null);
+                if (asset != null) {
+                    cacheHits.incrementAndGet();
+                    bytesFromCache.addAndGet(asset.getBody().length);
+                    return cachedResponse(asset);
+                }
+            }
+
+            HttpResponse response = next.execute(request);
+            if (get && cache != null && isImmutableAsset(url, response)) {
+                byte[] body = Contents.bytes(response.getContent());
+                response.setContent(Contents.bytes(body));
+                bytesFromNetwork.addAndGet(body.length);
+                cache.put(url, response.getHeader("Content-Type"), response.getHeader("Access-Control-Allow-Origin"), body);
+                cacheStores.incrementAndGet();
+            }
+            return response;
+        };
+    }
+
+    /**
+     * Requests and bytes saved since the last reset.
+     */
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "requests", requests.get(),
+                "blocked", blocked.get(),
+                "cacheHits", cacheHits.get(),
+                "cacheStores", cacheStores.get(),
+                "requestsSaved", blocked.get() + cacheHits.get(),
+                "bytesSaved", bytesFromCache.get(),
+                "bytesCached", bytesFromNetwork.get());
+    }
+
+    public void resetStats() {
+        requests.set(0);
+        blocked.set(0);
+        cacheHits.set(0);
+        cacheStores.set(0);
+        bytesFromCache.set(0);
+        bytesFromNetwork.set(0);
+    }
+
+    @Override
+    public String toString() {
+        Map<String, Long> stats = getStats();
+        return String.format("%d requests, %d blocked, %d served from cache (%d bytes saved), %d stored",
+                stats.get("requests"), stats.get("blocked"), stats.get("cacheHits"), stats.get("bytesSaved"),
+                stats.get("cacheStores"));
+    }
+
+    private boolean isImmutableAsset(String url, HttpResponse response) {
+        if (response.getStatus() != 200 || response.getHeader("Set-Cookie") != null) {
+            return false;
+        }
+        if (matches(cachePatterns, url)) {
+            return true;
+        }
+        String cacheControl = response.getHeader("Cache-Control");
+        if (cacheControl == null || cacheControl.contains("no-store") || cacheControl.contains("private")) {
+            return false;
+        }
+        if (cacheControl.contains("immutable")) {
+            return true;
+        }
+        Matcher maxAge = MAX_AGE.matcher(cacheControl);
+        return maxAge.find() && Long.parseLong(maxAge.group(1)) >= ONE_DAY_SECONDS;
+    }
+
+    private static HttpResponse cachedResponse(AssetCache.Asset asset) {
+        HttpResponse response = new HttpResponse().setStatus(200);
+        if (asset.getContentType() != null) {
+            response.setHeader("Content-Type", asset.getContentType());
+        }
+        if (asset.getAllowOrigin() != null) {
+            response.setHeader("Access-Control-Allow-Origin", asset.getAllowOrigin());
+        }
+        response.setHeader("Cache-Control", "public, max-age=31536000, immutable");
+        response.setContent(Contents.bytes(asset.getBody()));
+        return response;
+    }
+
+    private static boolean matches(List<Pattern> patterns, String url) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(url).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Pattern> compile(List<String> globs) {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String glob : globs) {
+            if (!glob.isBlank()) {
+                String[] parts = glob.trim().split("\\*", -1);
+                StringBuilder regex = new StringBuilder();
+                for (int i = 0; i < parts.length; i++) {
+                    if (i > 0) {
+                        regex.append(".*");
+                    }
+                    regex.append(Pattern.quote(parts[i]));
+                }
+                patterns.add(Pattern.compile(regex.toString()));
+            }
+        }
+        return patterns;
+    }
+}
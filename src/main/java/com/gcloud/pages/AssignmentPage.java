@@ -1,103 +1,265 @@
 package com.gcloud.pages;
 
+import com.gcloud.helpers.AdaptiveWait;
+import com.gcloud.helpers.FrameContext;
+import com.gcloud.helpers.ProgressTracker;
+import com.gcloud.helpers.ScriptBatch;
+import com.gcloud.helpers.ShadowBy;
+import com.gcloud.helpers.StagedFlow;
 import com.gcloud.helpers.UIHelpers;
+import com.gcloud.metrics.Span;
+import com.gcloud.metrics.StepTimer;
 import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.testng.Assert;
 import java.time.Duration;
+import java.util.Optional;
 
 public class AssignmentPage {
 
     private final WebDriver driver;
-    private final WebDriverWait wait;
+    private final AdaptiveWait wait;
     private final UIHelpers uiHelpers;
+    private final ProgressTracker progress;
+    private final FrameContext frames;
+    private final Duration progressTimeout = Duration.ofSeconds(20);
+    private final int maxAttempts;
+    private String moduleWindow;
 
     private final By menuButton = By.id("navigation-menu");
     private final By analyticsTab = By.id("navBar.commandView.analytics.title");
     private final By workspaceTab = By.id("navBar.commandView.analytics.subMenu.analyticsWorkspace");
-    private final By progressTextLabel = By.xpath("//*[contains(text(), '% complete')]");
+    private final By completeAssignmentButton = ShadowBy.css("gux-button.complete-assignment", "button");
+    private final By submitButton = ShadowBy.textEquals("button, gux-button", "Submit");
+    private final By analyticsIframe = By.cssSelector("frame-router.main-iframe.visible iframe, iframe[title='Analytics UI']");
+    private final By assessmentIframe = By.id("assessment-builder");
+    // XPaths for the stage checks, which test presence in one script call
+    private static final String ASSESSMENT_IFRAME = "//*[@id='assessment-builder']";
+    private static final String GROUP_2_DOCUMENT = "//wem-document-viewer-legacy";
+    private static final String RESULTS_HEADER = "//*[contains(text(), 'Congratulations')]";
 
     public AssignmentPage(WebDriver driver) {
+        this(driver, 2);
+    }
+
+    /**
+     * @param maxAttempts how many times {@link #completeAssignmentFlow()} may run
+     *                    its stages, including the first run
+     */
+    public AssignmentPage(WebDriver driver, int maxAttempts) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(20));
+        this.maxAttempts = maxAttempts;
+        this.wait = new AdaptiveWait(driver, Duration.ofSeconds(20));
         this.uiHelpers = new UIHelpers(driver, 20);
+        this.progress = uiHelpers.getProgressTracker();
+        this.frames = new FrameContext(driver, wait);
     }
 
-    public void navigateToAssignment() {
-        driver.switchTo().defaultContent();
-        boolean menuOpened = false;
-        for (int i = 0; i < 3; i++) {
-            uiHelpers.safeClick(menuButton);
-            try {
-                wait.until(ExpectedConditions.visibilityOfElementLocated(analyticsTab));
-                menuOpened = true;
-                break;
-            } catch (TimeoutException ignored) {
-            }
-        }
-        if (!menuOpened)
-            throw new RuntimeException("Failed to open the navigation menu.");
-
-        uiHelpers.safeClick(analyticsTab);
-        uiHelpers.safeClick(workspaceTab);
+    /**
+     * Progress changes observed so far, with page timestamps.
+     */
+    public ProgressTracker getProgressTracker() {
+        return progress;
+    }
 
-        By analyticsIframe = By.cssSelector("frame-router.main-iframe.visible iframe, iframe[title='Analytics UI']");
-        wait.until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(analyticsIframe));
+    /**
+     * Window and frame switches made by this page, including those avoided.
+     */
+    public FrameContext getFrameContext() {
+        return frames;
+    }
 
-        JavascriptExecutor js = (JavascriptExecutor) driver;
-        WebElement assignmentLink = wait.until(d -> (WebElement) js.executeScript(
-                "return Array.from(document.querySelectorAll('a')).find(a => a.textContent.includes('Test Assignment'));"));
-        js.executeScript("arguments[0].click();", assignmentLink);
+    public void navigateToAssignment() {
+        navigateToAssignment("Test Assignment");
     }
 
-    public void completeAssignmentFlow() {
+    /**
+     * Opens the assignment named {@code moduleName} from the Analytics Workspace.
+     */
+    public void navigateToAssignment(String moduleName) {
+        try (Span ignored = StepTimer.span("AssignmentPage.navigateToAssignment")) {
+            frames.top();
+            openNavigationMenu();
 
-        String originalWindow = driver.getWindowHandle();
-        wait.until(ExpectedConditions.numberOfWindowsToBe(2));
-        for (String handle : driver.getWindowHandles()) {
-            if (!handle.equals(originalWindow)) {
-                driver.switchTo().window(handle);
-                break;
+            uiHelpers.safeClick(analyticsTab);
+            uiHelpers.safeClick(workspaceTab);
+
+            try (Span frame = StepTimer.span("switch to analytics iframe")) {
+                frames.enter(analyticsIframe);
             }
-        }
 
-        uiHelpers.clickShadowDomButton("Start Module");
+            uiHelpers.clickLinkByText(moduleName);
+        }
+    }
 
-        wait.until(ExpectedConditions.visibilityOfElementLocated(progressTextLabel));
-        wait.until(d -> uiHelpers.getProgressPercentage(progressTextLabel) >= 0);
-        Assert.assertEquals(uiHelpers.getProgressPercentage(progressTextLabel), 0, "Initial progress should be 0%.");
+    private void openNavigationMenu() {
+        try (Span span = StepTimer.span("open navigation menu")) {
+            for (int i = 0; i < 3; i++) {
+                if (i > 0) {
+                    span.markRetry();
+                }
+                uiHelpers.safeClick(menuButton);
+                try {
+                    wait.until("navigation menu open", ExpectedConditions.visibilityOfElementLocated(analyticsTab));
+                    return;
+                } catch (TimeoutException ignored) {
+                }
+            }
+            throw new RuntimeException("Failed to open the navigation menu.");
+        }
+    }
 
-        // scroll to bottom to trigger loading of progress bar updates
-        uiHelpers.scrollToBottom();
+    /**
+     * Runs {@code block} in the assessment-builder iframe of the module window,
+     * returning to its top-level document afterwards.
+     */
+    private void inAssessmentFrame(Runnable block) {
+        frames.runIn(block, assessmentIframe);
+    }
 
-        // wait for progress to update to 33% after scrolling
-        wait.until(d -> uiHelpers.getProgressPercentage(progressTextLabel) == 33);
+    /**
+     * Completes the assignment as checkpointed stages. Each stage checks the
+     * module's progress or page state first and is skipped when its work is
+     * already done. A failed stage is retried in the same session, resuming
+     * from the last completed stage instead of starting again from 0%.
+     */
+    public StagedFlow.Result completeAssignmentFlow() {
+        try (Span ignored = StepTimer.span("AssignmentPage.completeAssignmentFlow")) {
+            return assignmentFlow().run();
+        }
+    }
 
-        // after scrolling, click next to trigger progress update
-        uiHelpers.clickShadowDomButton("Next");
+    private StagedFlow assignmentFlow() {
+        By startButton = ShadowBy.textContains("gux-button, button", "Start Module");
+
+        return new StagedFlow("assignment", maxAttempts)
+                .always("switch to module window", this::switchToModuleWindow)
+                .stage("start module", () -> moduleStarted(startButton),
+                        () -> {
+                            uiHelpers.clickShadowDomButton("Start Module");
+                            Assert.assertEquals(progress.waitForAtLeast(0, progressTimeout), 0, "Initial progress should be 0%.");
+                        })
+                .stage("read module to 33%", () -> progressAtLeast(33), () -> {
+                    // scroll to bottom to trigger loading of progress bar updates
+                    uiHelpers.scrollToBottom();
+                    Assert.assertEquals(progress.waitForAtLeast(33, progressTimeout), 33, "Progress should be 33% after scrolling.");
+                })
+                .stage("next past 33%", () -> progressAtLeast(34), () -> {
+                    uiHelpers.clickShadowDomButton("Next");
+                    progress.waitForAtLeast(34, progressTimeout);
+                })
+                .stage("open assessment", () -> progressAtLeast(75) || present(ASSESSMENT_IFRAME),
+                        () -> uiHelpers.clickShadowDomButton("Next"))
+                .stage("answer radio question (75%)", () -> progressAtLeast(75), () -> {
+                    inAssessmentFrame(() -> uiHelpers.clickAnswerInShadowDOM("7"));
+                    progress.waitForAtLeast(75, progressTimeout);
+                })
+                .stage("enter text answer (83%)", () -> progressAtLeast(83), () -> {
+                    inAssessmentFrame(() -> {
+                        try (Span ignored = StepTimer.span("enter text answer")) {
+                            enterTextAnswer();
+                        }
+                    });
+                    int progressAt83 = progress.waitForAtLeast(83, progressTimeout);
+                    Assert.assertTrue(progressAt83 >= 83, "Progress should be at least 83% after text entry.");
+                })
+                .stage("answer final radio question (91%)", () -> progressAtLeast(91), () -> {
+                    inAssessmentFrame(() -> uiHelpers.clickAnswerInShadowDOM("Yes"));
+                    progress.waitForAtLeast(91, progressTimeout);
+                })
+                .stage("answer Group 2 question (100%)", () -> progressAtLeast(100), () -> {
+                    openGroup2();
+                    inAssessmentFrame(() -> {
+                        try (Span ignored = StepTimer.span("answer Group 2 question")) {
+                            By eastOption = By.xpath("//span[text()='East']/ancestor::gux-form-field-radio//input[@type='radio']");
+                            WebElement eastRadio = wait.until("Group 2 answer clickable", ExpectedConditions.elementToBeClickable(eastOption));
+                            ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView({block:'center'});", eastRadio);
+                            eastRadio.click();
+                            wait.until("Group 2 answer selected", ExpectedConditions.elementToBeSelected(eastRadio));
+                        }
+                    });
+                    Assert.assertEquals(progress.waitForAtLeast(100, progressTimeout), 100, "Progress bar did not reach 100%");
+                })
+                .stage("submit assignment", () -> present(RESULTS_HEADER), () -> {
+                    uiHelpers.safeClick(completeAssignmentButton);
+                    uiHelpers.safeClick(submitButton);
+                })
+                .always("verify results page", () -> {
+                    try (Span ignored = StepTimer.span("verify results page")) {
+                        verifyResultsPage();
+                    }
+                });
+    }
 
-        wait.until(d -> uiHelpers.getProgressPercentage(progressTextLabel) > 33);
+    /**
+     * Switches to the module window opened by the assignment link, and stays
+     * there when called again.
+     */
+    private void switchToModuleWindow() {
+        try (Span ignored = StepTimer.span("switch to module window")) {
+            if (moduleWindow != null && driver.getWindowHandles().contains(moduleWindow)) {
+                frames.window(moduleWindow);
+                return;
+            }
+            String originalWindow = driver.getWindowHandle();
+            wait.until("module window opened", ExpectedConditions.numberOfWindowsToBe(2));
+            for (String handle : driver.getWindowHandles()) {
+                if (!handle.equals(originalWindow)) {
+                    frames.window(handle);
+                    moduleWindow = handle;
+                    break;
+                }
+            }
+        }
+    }
 
-        uiHelpers.clickShadowDomButton("Next");
+    private void openGroup2() {
+        if (present(GROUP_2_DOCUMENT)) {
+            return;
+        }
+        try (Span ignored = StepTimer.span("open Group 2")) {
+            WebElement group2Sidebar = wait.until("Group 2 sidebar clickable", ExpectedConditions.elementToBeClickable(
+                    By.xpath("//*[contains(text(), '2. Group 2')]//ancestor::button | //*[text()='2. Group 2']")));
+            group2Sidebar.click();
 
-        // ANSWER RADIO QUESTION
-        By assessmentIframe = By.id("assessment-builder");
-        wait.until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(assessmentIframe));
+            wait.until("Group 2 document shown", ExpectedConditions.presenceOfElementLocated(By.tagName("wem-document-viewer-legacy")));
+        }
+    }
 
-        uiHelpers.clickAnswerInShadowDOM("7");
+    /**
+     * Stage checks run from the top-level document of the module window.
+     */
+    private boolean progressAtLeast(int percent) {
+        frames.top();
+        return progress.current() >= percent;
+    }
 
-        // FIRST CHECK (75%)
-        driver.switchTo().defaultContent();
-        wait.until(d -> {
-            String text = String.valueOf(((JavascriptExecutor) d).executeScript(
-                    "return document.body.innerText + (document.querySelector('wem-game-progress-bar')?.shadowRoot?.textContent || '')"));
-            return text.contains("75");
-        });
+    /**
+     * Waits for the module page to render either its Start button or its
+     * progress bar; only the progress bar without a Start button means started.
+     */
+    private boolean moduleStarted(By startButton) {
+        frames.top();
+        return wait.until("Start Module button or progress shown", d -> {
+            if (d.findElements(startButton).stream().anyMatch(WebElement::isDisplayed)) {
+                return Optional.of(false);
+            }
+            return progress.current() >= 0 ? Optional.of(true) : null;
+        }).get();
+    }
 
-        // ENTER TEXT IN IFRAME
-        wait.until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(By.id("assessment-builder")));
+    /**
+     * Whether the top-level document has a node matching {@code xpath}, in one
+     * script call. Stage checks usually find nothing yet, and findElements
+     * would wait out the implicit wait every time.
+     */
+    private boolean present(String xpath) {
+        frames.top();
+        return Boolean.TRUE.equals(((JavascriptExecutor) driver).executeScript(
+                "return document.evaluate(arguments[0], document, null, XPathResult.BOOLEAN_TYPE, null).booleanValue;", xpath));
+    }
 
+    private void enterTextAnswer() {
         WebElement textArea = (WebElement) ((JavascriptExecutor) driver).executeScript(
                 "const labelText = 'What is WHO?';" +
                         "const fields = Array.from(document.querySelectorAll('gux-form-field-textarea'));" +
@@ -120,83 +282,22 @@ public class AssignmentPage {
                             "arguments[0].dispatchEvent(new Event('blur', { bubbles: true }));",
                     textArea);
         }
+    }
 
-        // SECOND CHECK (83%)
-        driver.switchTo().defaultContent();
-        wait.until(d -> {
-            String text = String.valueOf(((JavascriptExecutor) d).executeScript(
-                    "return document.body.innerText + (document.querySelector('wem-game-progress-bar')?.shadowRoot?.textContent || '')"));
-            return text.contains("83");
-        });
-
-        Object rawProgress83 = ((JavascriptExecutor) driver).executeScript(
-                "const text = document.body.innerText + (document.querySelector('wem-game-progress-bar')?.shadowRoot?.textContent || '');"
-                        +
-                        "const match = text.match(/(\\d+)%?\\s*complete/i) || text.match(/(\\d+)/);" +
-                        "return match ? match[1] : '-1';");
-
-        int progressAt83 = Integer.parseInt(rawProgress83.toString());
-        Assert.assertTrue(progressAt83 >= 83, "Progress should be at least 83% after text entry.");
-
-        // FINAL RADIO QUESTION
-        wait.until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(By.id("assessment-builder")));
-        uiHelpers.clickAnswerInShadowDOM("Yes");
-
-        // 91% STATE CHECK
-        driver.switchTo().defaultContent();
-        wait.until(d -> {
-            String text = String.valueOf(((JavascriptExecutor) d).executeScript(
-                    "return document.body.innerText + (document.querySelector('wem-game-progress-bar')?.shadowRoot?.textContent || '')"));
-            return text.contains("91");
-        });
-
-        // CLICK GROUP 2 NAVIGATION
-        WebElement group2Sidebar = wait.until(ExpectedConditions.elementToBeClickable(
-                By.xpath("//*[contains(text(), '2. Group 2')]//ancestor::button | //*[text()='2. Group 2']")));
-        group2Sidebar.click();
-
-        wait.until(ExpectedConditions.presenceOfElementLocated(By.tagName("wem-document-viewer-legacy")));
-
-        wait.until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(By.id("assessment-builder")));
-
-        By eastOption = By.xpath("//span[text()='East']/ancestor::gux-form-field-radio//input[@type='radio']");
-        WebElement eastRadio = wait.until(ExpectedConditions.elementToBeClickable(eastOption));
-        ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView({block:'center'});", eastRadio);
-        eastRadio.click();
-        wait.until(ExpectedConditions.elementToBeSelected(eastRadio));
-
-        driver.switchTo().defaultContent();
-
-        By progressBar = By.cssSelector("wem-game-progress-bar[fill-percent='100']");
-        wait.until(ExpectedConditions.presenceOfElementLocated(progressBar));
-
-        WebElement progress = driver.findElement(progressBar);
-        String percent = progress.getAttribute("fill-percent");
-        Assert.assertEquals(percent, "100", "Progress bar did not reach 100%");
-
-        driver.switchTo().defaultContent();
-
-        ((JavascriptExecutor) driver).executeScript(
-                "const guxButton = document.querySelector('gux-button.complete-assignment');" +
-                        "const internalButton = guxButton.shadowRoot.querySelector('button');" +
-                        "internalButton.click();");
-
-        wait.until(d -> (boolean) ((JavascriptExecutor) d).executeScript(
-                "const submitBtn = Array.from(document.querySelectorAll('button, gux-button'))" +
-                        ".find(btn => btn.innerText.trim() === 'Submit');" +
-                        "if (submitBtn) { submitBtn.click(); return true; }" +
-                        "return false;"));
-
-        driver.switchTo().defaultContent();
-
-        WebElement resultsHeader = wait.until(ExpectedConditions.visibilityOfElementLocated(
-                By.xpath("//*[contains(text(), 'Congratulations')]")));
-        assert resultsHeader.isDisplayed() : "Results page header not found!";
-
-        wait.until(d -> {
-            String script = "const elements = Array.from(document.querySelectorAll('*'));" +
-                    "return elements.some(el => el.innerText && el.innerText.includes('100%'));";
-            return (Boolean) ((JavascriptExecutor) d).executeScript(script);
+    private void verifyResultsPage() {
+        // results header and final score are read together, one round trip per poll
+        ScriptBatch results = new ScriptBatch(driver);
+        wait.until("results page with Congratulations header and 100% score", d -> {
+            ScriptBatch.Result<Boolean> headerShown = results.add(
+                    "const header = document.evaluate(arguments[0], document, null,"
+                            + " XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;"
+                            + "return !!header && header.getClientRects().length > 0;",
+                    Boolean.class, RESULTS_HEADER);
+            ScriptBatch.Result<Boolean> scoreShown = results.add(
+                    "return Array.from(document.querySelectorAll('*')).some(el => el.innerText && el.innerText.includes('100%'));",
+                    Boolean.class);
+            results.execute();
+            return headerShown.get() && scoreShown.get();
         });
     }
 }
@@ -0,0 +1,94 @@
+package com.gcloud.pages;
+
+import com.gcloud.helpers.AdaptiveWait;
+import com.gcloud.metrics.Span;
+import com.gcloud.metrics.StepTimer;
+import org.openqa.selenium.*;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The Development Page, where an assignment's progress can be reset from the
+ * 3-dot menu of its row.
+ */
+public class DevelopmentPage {
+
+    /**
+     * Finds the visible row with a text node equal to {@code arguments[0]};
+     * the name is passed as an argument so quotes in it need no escaping.
+     */
+    private static final String FIND_ROW =
+            "const name = arguments[0];"
+                    + "for (const row of document.querySelectorAll('tr, [role=\"row\"]')) {"
+                    + "  if (row.getClientRects().length === 0) continue;"
+                    + "  const walker = document.createTreeWalker(row, NodeFilter.SHOW_TEXT);"
+                    + "  while (walker.nextNode()) {"
+                    + "    if (walker.currentNode.textContent.replace(/\\s+/g, ' ').trim() === name) return row;"
+                    + "  }"
+                    + "}"
+                    + "return null;";
+
+    private static final String RESET_ACTION =
+            "//*[@role='menuitem' or self::button or self::gux-button][normalize-space(.)='Reset' or @aria-label='Reset']";
+
+    private final WebDriver driver;
+    private final AdaptiveWait wait;
+
+    // every row has a Reset item; within the opened row only its own matches
+    private final By resetInRow = By.xpath("." + RESET_ACTION);
+    private final By resetAnywhere = By.xpath(RESET_ACTION);
+    private final By confirmButton = By.xpath(
+            "//*[@role='dialog' or self::dialog]//*[self::button or self::gux-button][normalize-space(.)='Reset' or normalize-space(.)='Confirm']");
+
+    public DevelopmentPage(WebDriver driver) {
+        this.driver = driver;
+        this.wait = new AdaptiveWait(driver, Duration.ofSeconds(20));
+    }
+
+    /**
+     * Opens the page and resets the progress of the assignment named {@code moduleName}.
+     */
+    public void resetModule(String pageUrl, String moduleName) {
+        try (Span ignored = StepTimer.span("DevelopmentPage.resetModule")) {
+            driver.get(pageUrl);
+
+            WebElement moduleRow = wait.until("development page: module row visible",
+                    d -> (WebElement) ((JavascriptExecutor) d).executeScript(FIND_ROW, moduleName));
+
+            // the 3-dot menu sits in the last cell of the row
+            WebElement menu = moduleRow.findElement(By.xpath(
+                    "(.//*[self::button or self::gux-button][contains(@aria-label, 'More') or contains(@aria-label, 'menu')"
+                            + " or normalize-space(.)='⋮' or normalize-space(.)='...'])[last()]"));
+            ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView({block:'center'});", menu);
+            menu.click();
+
+            // menus rendered outside the row (popovers) are found among the displayed items of the page
+            WebElement reset = wait.until("development page: Reset clickable", d -> {
+                WebElement item = displayed(moduleRow.findElements(resetInRow));
+                if (item == null) {
+                    item = displayed(d.findElements(resetAnywhere));
+                }
+                return item != null && item.isEnabled() ? item : null;
+            });
+            reset.click();
+
+            // some environments ask for confirmation before resetting
+            WebElement confirm = displayed(driver.findElements(confirmButton));
+            if (confirm != null) {
+                confirm.click();
+            }
+
+            wait.until("development page: Reset menu closed", ExpectedConditions.invisibilityOf(reset));
+        }
+    }
+
+    private static WebElement displayed(List<WebElement> elements) {
+        for (WebElement element : elements) {
+            if (element.isDisplayed()) {
+                return element;
+            }
+        }
+        return null;
+    }
+}
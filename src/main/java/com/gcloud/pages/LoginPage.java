@@ -1,5 +1,8 @@
 package com.gcloud.pages;
 
+import com.gcloud.helpers.AdaptiveWait;
+import com.gcloud.metrics.Span;
+import com.gcloud.metrics.StepTimer;
 import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.*;
 import java.time.Duration;
@@ -7,7 +10,7 @@ import java.time.Duration;
 public class LoginPage {
 
     private WebDriver driver;
-    private WebDriverWait wait;
+    private AdaptiveWait wait;
 
     private By moreLoginOptions = By.linkText("More Login Options");
     private By org = By.id("org");
@@ -19,28 +22,41 @@ public class LoginPage {
 
     public LoginPage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(15));
+        this.wait = new AdaptiveWait(driver, Duration.ofSeconds(15));
     }
 
     public void login(String user, String pass, String organization) {
+        try (Span ignored = StepTimer.span("LoginPage.login")) {
 
-        // click "More Login Options"
-        wait.until(ExpectedConditions.elementToBeClickable(moreLoginOptions)).click();
+            // click "More Login Options"
+            wait.until("login: More Login Options clickable", ExpectedConditions.elementToBeClickable(moreLoginOptions)).click();
 
-        // enter Organization name and click next
-        WebElement orgInput = wait.until(ExpectedConditions.visibilityOfElementLocated(org));
-        orgInput.clear();
-        orgInput.sendKeys(organization);
+            // enter Organization name and click next
+            WebElement orgInput = wait.until("login: organization field visible", ExpectedConditions.visibilityOfElementLocated(org));
+            orgInput.clear();
+            orgInput.sendKeys(organization);
 
-        wait.until(ExpectedConditions.elementToBeClickable(nextButton)).click();
+            wait.until("login: Next clickable", ExpectedConditions.elementToBeClickable(nextButton)).click();
 
-        // enter Email and Password on final page
-        wait.until(ExpectedConditions.visibilityOfElementLocated(email)).sendKeys(user);
-        driver.findElement(password).sendKeys(pass);
-        driver.findElement(loginButton).click();
+            // enter Email and Password on final page
+            wait.until("login: email field visible", ExpectedConditions.visibilityOfElementLocated(email)).sendKeys(user);
+            driver.findElement(password).sendKeys(pass);
+            driver.findElement(loginButton).click();
+        }
     }
 
     public void verifyLandingPageLoaded() {
-        wait.until(ExpectedConditions.visibilityOfElementLocated(menuButton));
+        try (Span ignored = StepTimer.span("LoginPage.verifyLandingPageLoaded")) {
+            wait.until("landing page loaded", ExpectedConditions.visibilityOfElementLocated(menuButton));
+        }
+    }
+
+    public boolean isLandingPageLoaded(Duration timeout) {
+        try {
+            new AdaptiveWait(driver, timeout).until("landing page restored", ExpectedConditions.visibilityOfElementLocated(menuButton));
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
     }
 }
@@ -0,0 +1,39 @@
+package com.gcloud.session;
+
+/**
+ * An (account, module) pair checked out of an {@link AccountPool} for one test method.
+ */
+public class AccountLease {
+
+    private final TestAccount account;
+    private final long waitMillis;
+    private final long acquiredNanos = System.nanoTime();
+
+    AccountLease(TestAccount account, long waitMillis) {
+        this.account = account;
+        this.waitMillis = waitMillis;
+    }
+
+    public TestAccount getAccount() {
+        return account;
+    }
+
+    /**
+     * Time spent blocked until the pair was free.
+     */
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * Time the pair has been held so far.
+     */
+    public long getHeldMillis() {
+        return (System.nanoTime() - acquiredNanos) / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("account lease[%s, wait=%dms]", account, waitMillis);
+    }
+}
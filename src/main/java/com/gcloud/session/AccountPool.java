@@ -0,0 +1,139 @@
+package com.gcloud.session;
+
+import com.gcloud.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out exclusive (account, module) pairs to parallel workers, so no two
+ * workers drive the same account through the same module at once. Callers
+ * block while the pool is exhausted. Wait and hold times are recorded per
+ * lease, so the pool can be sized from real contention.
+ */
+public class AccountPool {
+
+    private final List<TestAccount> accounts;
+    private final Set<TestAccount> free;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+    private final LatencyHistogram waits = new LatencyHistogram();
+    private final LatencyHistogram holds = new LatencyHistogram();
+    private int contended;
+    private int inUse;
+    private int maxInUse;
+
+    public AccountPool(List<TestAccount> accounts) {
+        if (accounts.isEmpty()) {
+            throw new IllegalArgumentException("Account pool needs at least one (account, module) pair.");
+        }
+        this.accounts = List.copyOf(new LinkedHashSet<>(accounts));
+        this.free = new LinkedHashSet<>(this.accounts);
+    }
+
+    /**
+     * Every pair in the pool, in configuration order.
+     */
+    public List<TestAccount> getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Leases whichever pair frees up first.
+     */
+    public AccountLease acquire(Duration timeout) {
+        return acquire(null, timeout);
+    }
+
+    /**
+     * Leases {@code account}, or any free pair when it is null, blocking up to
+     * {@code timeout} until one is available.
+     */
+    public AccountLease acquire(TestAccount account, Duration timeout) {
+        if (account != null && !accounts.contains(account)) {
+            throw new IllegalArgumentException(account + " is not in the account pool.");
+        }
+        long start = System.nanoTime();
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            while (true) {
+                TestAccount leased = account != null
+                        ? (free.contains(account) ? account : null)
+                        : free.stream().findFirst().orElse(null);
+                if (leased != null) {
+                    free.remove(leased);
+                    inUse++;
+                    maxInUse = Math.max(maxInUse, inUse);
+                    long waitMillis = (System.nanoTime() - start) / 1_000_000;
+                    waits.record(waitMillis);
+                    if (waitMillis > 0) {
+                        contended++;
+                    }
+                    return new AccountLease(leased, waitMillis);
+                }
+                if (remaining <= 0) {
+                    throw new RuntimeException("Timed out after " + timeout.toSeconds() + "s waiting for "
+                            + (account != null ? account : "a free account") + " (pool of " + accounts.size() + ").");
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an account.", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(AccountLease lease) {
+        lock.lock();
+        try {
+            if (free.add(lease.getAccount())) {
+                inUse--;
+                holds.record(lease.getHeldMillis());
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lease counts plus wait and hold percentiles in milliseconds.
+     */
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("pairs", accounts.size());
+            stats.put("leases", waits.count());
+            stats.put("contended", contended);
+            stats.put("maxInUse", maxInUse);
+            stats.put("wait", waits.summary());
+            stats.put("hold", holds.summary());
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pairs that are currently free.
+     */
+    public List<TestAccount> getFree() {
+        lock.lock();
+        try {
+            return new ArrayList<>(free);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
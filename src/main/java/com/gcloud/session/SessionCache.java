@@ -0,0 +1,238 @@
+package com.gcloud.session;
+
+import org.openqa.selenium.json.Json;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores session snapshots per credential set. Snapshots are always kept in
+ * memory; when a passphrase is given (configured, or a {@link #localKey local
+ * key}) they are also written to disk encrypted with AES-GCM so later JVMs can
+ * reuse them.
+ * <p>
+ * Each file carries a check value of its key, so a file written with another
+ * passphrase is told apart from a corrupted one: the first is left alone for
+ * the JVMs that still use that passphrase, only the second is deleted.
+ */
+public class SessionCache {
+
+    private static final byte[] MAGIC = "GSC1".getBytes(StandardCharsets.US_ASCII);
+    private static final int SALT_BYTES = 16;
+    private static final int IV_BYTES = 12;
+    private static final int CHECK_BYTES = 16;
+    private static final int KEY_ITERATIONS = 65536;
+
+    private final Path directory;
+    private final char[] passphrase;
+    private final Map<String, SessionSnapshot> memory = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final Json json = new Json();
+
+    /**
+     * @param directory  where encrypted snapshot files are written
+     * @param passphrase encryption passphrase, or null to keep snapshots in memory only
+     */
+    public SessionCache(Path directory, String passphrase) {
+        this.directory = directory;
+        this.passphrase = passphrase == null || passphrase.isEmpty() ? null : passphrase.toCharArray();
+    }
+
+    /**
+     * The passphrase stored in {@code file}, generated on first use and readable
+     * only by its owner, or null when it cannot be read or created. Runs on the
+     * same machine share it without configuring session_cache_key, while the
+     * snapshots alone (for example in archived build output) stay unreadable.
+     */
+    public static String localKey(Path file) {
+        try {
+            if (!Files.exists(file)) {
+                byte[] secret = new byte[32];
+                new SecureRandom().nextBytes(secret);
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "session-cache", ".tmp");
+                restrictToOwner(tmp);
+                Files.writeString(tmp, HexFormat.of().formatHex(secret));
+                try {
+                    // a parallel JVM may have created it meanwhile; the first one wins
+                    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+                    System.out.println("Generated session cache key " + file);
+                } catch (FileAlreadyExistsException e) {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+            String key = Files.readString(file).trim();
+            return key.isEmpty() ? null : key;
+        } catch (IOException | UnsupportedOperationException e) {
+            System.out.println("No local session cache key at " + file + "; keeping sessions in memory only: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void restrictToOwner(Path file) throws IOException {
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        }
+    }
+
+    /**
+     * Derives the cache key for a credential set without exposing the credentials.
+     */
+    public static String keyFor(String user, String organization) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((organization + "|" + user).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the unexpired snapshot for the key, if any. Expired and corrupted
+     * entries are evicted; files this cache cannot read are ignored.
+     */
+    public Optional<SessionSnapshot> load(String key) {
+        SessionSnapshot snapshot = memory.get(key);
+        if (snapshot == null && passphrase != null) {
+            snapshot = readFile(key);
+        }
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        if (snapshot.isExpired()) {
+            invalidate(key);
+            return Optional.empty();
+        }
+        memory.put(key, snapshot);
+        return Optional.of(snapshot);
+    }
+
+    public void save(String key, SessionSnapshot snapshot) {
+        memory.put(key, snapshot);
+        if (passphrase != null) {
+            writeFile(key, snapshot);
+        }
+    }
+
+    public void invalidate(String key) {
+        memory.remove(key);
+        try {
+            Files.deleteIfExists(fileFor(key));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private SessionSnapshot readFile(String key) {
+        Path file = fileFor(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        byte[] plain;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            byte[] magic = new byte[MAGIC.length];
+            if (buffer.remaining() > MAGIC.length + SALT_BYTES + IV_BYTES + CHECK_BYTES) {
+                buffer.get(magic);
+            }
+            if (!Arrays.equals(magic, MAGIC)) {
+                System.out.println("Ignoring session cache " + file + ": not written by this cache version");
+                return null;
+            }
+            byte[] salt = new byte[SALT_BYTES];
+            byte[] iv = new byte[IV_BYTES];
+            byte[] check = new byte[CHECK_BYTES];
+            buffer.get(salt).get(iv).get(check);
+            byte[] cipherText = new byte[buffer.remaining()];
+            buffer.get(cipherText);
+
+            byte[] keyBytes = deriveKey(salt);
+            if (!MessageDigest.isEqual(check, keyCheck(keyBytes))) {
+                System.out.println("Ignoring session cache " + file + ": written with another session_cache_key");
+                return null;
+            }
+            plain = cipher(Cipher.DECRYPT_MODE, keyBytes, iv).doFinal(cipherText);
+        } catch (AEADBadTagException e) {
+            System.out.println("Deleting corrupted session cache " + file);
+            invalidate(key);
+            return null;
+        } catch (IOException | GeneralSecurityException e) {
+            System.out.println("Ignoring unreadable session cache " + file + ": " + e.getMessage());
+            return null;
+        }
+        try {
+            return SessionSnapshot.fromMap(json.toType(new String(plain, StandardCharsets.UTF_8), Json.MAP_TYPE));
+        } catch (RuntimeException e) {
+            System.out.println("Deleting malformed session cache " + file + ": " + e.getMessage());
+            invalidate(key);
+            return null;
+        }
+    }
+
+    private void writeFile(String key, SessionSnapshot snapshot) {
+        try {
+            byte[] salt = new byte[SALT_BYTES];
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(salt);
+            random.nextBytes(iv);
+
+            byte[] keyBytes = deriveKey(salt);
+            Cipher cipher = cipher(Cipher.ENCRYPT_MODE, keyBytes, iv);
+            byte[] cipherText = cipher.doFinal(json.toJson(snapshot.toMap()).getBytes(StandardCharsets.UTF_8));
+
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tmp, ByteBuffer.allocate(MAGIC.length + SALT_BYTES + IV_BYTES + CHECK_BYTES + cipherText.length)
+                    .put(MAGIC).put(salt).put(iv).put(keyCheck(keyBytes)).put(cipherText).array());
+            Files.move(tmp, fileFor(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | GeneralSecurityException e) {
+            System.out.println("Failed to persist session snapshot: " + e.getMessage());
+        }
+    }
+
+    private byte[] deriveKey(byte[] salt) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(passphrase, salt, KEY_ITERATIONS, 256);
+        return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+    }
+
+    /**
+     * Identifies the key without revealing it: an HMAC of a fixed label.
+     */
+    private static byte[] keyCheck(byte[] keyBytes) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(keyBytes, "HmacSHA256"));
+        byte[] check = mac.doFinal("session-cache-key-check".getBytes(StandardCharsets.US_ASCII));
+        return Arrays.copyOf(check, CHECK_BYTES);
+    }
+
+    private static Cipher cipher(int mode, byte[] keyBytes, byte[] iv) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, new SecretKeySpec(keyBytes, "AES"), new GCMParameterSpec(128, iv));
+        return cipher;
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + ".session");
+    }
+}
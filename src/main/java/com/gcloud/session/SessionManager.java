@@ -0,0 +1,161 @@
+package com.gcloud.session;
+
+import com.gcloud.pages.LoginPage;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.json.Json;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs in once per credential set and replays the captured session into every
+ * later driver, falling back to a real login when the snapshot has expired or
+ * is rejected by the application.
+ */
+public class SessionManager {
+
+    private static final Set<String> COOKIE_PARAMS = Set.of(
+            "name", "value", "domain", "path", "secure", "httpOnly", "sameSite", "expires");
+    private static final Duration RESTORE_CHECK_TIMEOUT = Duration.ofSeconds(10);
+
+    private final SessionCache cache;
+    private final Duration ttl;
+    private final Map<String, Object> loginLocks = new ConcurrentHashMap<>();
+
+    public SessionManager(SessionCache cache, Duration ttl) {
+        this.cache = cache;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Leaves the driver on the landing page, authenticated as the given user.
+     */
+    public void authenticate(WebDriver driver, String user, String pass, String organization) {
+        String key = SessionCache.keyFor(user, organization);
+        if (tryRestore(driver, key)) {
+            return;
+        }
+
+        // one real login per credential set; other threads wait and replay its snapshot
+        synchronized (loginLocks.computeIfAbsent(key, k -> new Object())) {
+            if (tryRestore(driver, key)) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            LoginPage loginPage = new LoginPage(driver);
+            loginPage.login(user, pass, organization);
+            loginPage.verifyLandingPageLoaded();
+            cache.save(key, capture(driver));
+            System.out.println("Logged in and captured session in " + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    private boolean tryRestore(WebDriver driver, String key) {
+        Optional<SessionSnapshot> snapshot = cache.load(key);
+        if (snapshot.isEmpty()) {
+            return false;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            restore(driver, snapshot.get());
+            if (new LoginPage(driver).isLandingPageLoaded(RESTORE_CHECK_TIMEOUT)) {
+                System.out.println("Restored cached session in " + (System.currentTimeMillis() - start) + "ms");
+                return true;
+            }
+        } catch (Exception e) {
+            System.out.println("Session restore failed: " + e.getMessage());
+        }
+
+        System.out.println("Cached session was rejected, falling back to a real login.");
+        cache.invalidate(key);
+        return false;
+    }
+
+    /**
+     * Captures cookies for every domain plus the storage of the current origin.
+     */
+    public SessionSnapshot capture(WebDriver driver) {
+        List<Map<String, Object>> cookies = new ArrayList<>();
+        if (driver instanceof HasCdp) {
+            Object all = ((HasCdp) driver).executeCdpCommand("Network.getAllCookies", Map.of()).get("cookies");
+            for (Object raw : (List<?>) all) {
+                Map<String, Object> cookie = new LinkedHashMap<>();
+                ((Map<?, ?>) raw).forEach((k, v) -> {
+                    if (COOKIE_PARAMS.contains(k) && !("expires".equals(k) && ((Number) v).doubleValue() < 0)) {
+                        cookie.put((String) k, v);
+                    }
+                });
+                cookies.add(cookie);
+            }
+        } else {
+            for (Cookie c : driver.manage().getCookies()) {
+                Map<String, Object> cookie = new LinkedHashMap<>(c.toJson());
+                cookie.remove("expiry");
+                if (c.getExpiry() != null) {
+                    cookie.put("expires", c.getExpiry().getTime() / 1000.0);
+                }
+                cookies.add(cookie);
+            }
+        }
+
+        String storage = String.valueOf(((JavascriptExecutor) driver).executeScript(
+                "return JSON.stringify({local: Object.assign({}, window.localStorage),"
+                        + " session: Object.assign({}, window.sessionStorage)});"));
+        Map<String, Object> parsed = new Json().toType(storage, Json.MAP_TYPE);
+
+        return new SessionSnapshot(driver.getCurrentUrl(), cookies,
+                stringMap(parsed.get("local")), stringMap(parsed.get("session")),
+                Instant.now().plus(ttl));
+    }
+
+    private void restore(WebDriver driver, SessionSnapshot snapshot) {
+        if (driver instanceof HasCdp) {
+            ((HasCdp) driver).executeCdpCommand("Network.setCookies", Map.of("cookies", snapshot.getCookies()));
+            driver.get(snapshot.getLandingUrl());
+        } else {
+            // without CDP, cookies can only be added for the domain currently loaded
+            driver.get(snapshot.getLandingUrl());
+            for (Map<String, Object> c : snapshot.getCookies()) {
+                Cookie.Builder builder = new Cookie.Builder((String) c.get("name"), (String) c.get("value"))
+                        .domain((String) c.get("domain"))
+                        .path((String) c.getOrDefault("path", "/"))
+                        .isSecure(Boolean.TRUE.equals(c.get("secure")))
+                        .isHttpOnly(Boolean.TRUE.equals(c.get("httpOnly")));
+                if (c.get("expires") != null) {
+                    builder.expiresOn(new Date((long) (((Number) c.get("expires")).doubleValue() * 1000)));
+                }
+                try {
+                    driver.manage().addCookie(builder.build());
+                } catch (Exception ignored) {
+                    // cookie belongs to another domain
+                }
+            }
+        }
+
+        ((JavascriptExecutor) driver).executeScript(
+                "Object.entries(arguments[0]).forEach(([k, v]) => window.localStorage.setItem(k, v));"
+                        + "Object.entries(arguments[1]).forEach(([k, v]) => window.sessionStorage.setItem(k, v));",
+                snapshot.getLocalStorage(), snapshot.getSessionStorage());
+        driver.navigate().refresh();
+    }
+
+    private static Map<String, String> stringMap(Object raw) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (raw instanceof Map) {
+            ((Map<?, ?>) raw).forEach((k, v) -> result.put(String.valueOf(k), String.valueOf(v)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package com.gcloud.session;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authenticated browser state captured after a real login: cookies for every
+ * domain plus the localStorage and sessionStorage of the landing page origin.
+ */
+public class SessionSnapshot {
+
+    private final String landingUrl;
+    private final List<Map<String, Object>> cookies;
+    private final Map<String, String> localStorage;
+    private final Map<String, String> sessionStorage;
+    private final Instant expiresAt;
+
+    public SessionSnapshot(String landingUrl, List<Map<String, Object>> cookies,
+            Map<String, String> localStorage, Map<String, String> sessionStorage, Instant expiresAt) {
+        this.landingUrl = landingUrl;
+        this.cookies = List.copyOf(cookies);
+        this.localStorage = Map.copyOf(localStorage);
+        this.sessionStorage = Map.copyOf(sessionStorage);
+        this.expiresAt = expiresAt;
+    }
+
+    public String getLandingUrl() {
+        return landingUrl;
+    }
+
+    public List<Map<String, Object>> getCookies() {
+        return cookies;
+    }
+
+    public Map<String, String> getLocalStorage() {
+        return localStorage;
+    }
+
+    public Map<String, String> getSessionStorage() {
+        return sessionStorage;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return !Instant.now().isBefore(expiresAt);
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("landingUrl", landingUrl);
+        map.put("cookies", cookies);
+        map.put("localStorage", localStorage);
+        map.put("sessionStorage", sessionStorage);
+        map.put("expiresAt", expiresAt.toEpochMilli());
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    static SessionSnapshot fromMap(Map<String, Object> map) {
+        return new SessionSnapshot(
+                (String) map.get("landingUrl"),
+                new ArrayList<>((List<Map<String, Object>>) map.get("cookies")),
+                (Map<String, String>) map.get("localStorage"),
+                (Map<String, String>) map.get("sessionStorage"),
+                Instant.ofEpochMilli(((Number) map.get("expiresAt")).longValue()));
+    }
+}
@@ -0,0 +1,60 @@
+package com.gcloud.session;
+
+import java.util.Objects;
+
+/**
+ * One (account, module) pair a worker can lease: the login for the account and
+ * the assignment module it works on.
+ */
+public class TestAccount {
+
+    private final String user;
+    private final String password;
+    private final String organization;
+    private final String module;
+
+    public TestAccount(String user, String password, String organization, String module) {
+        this.user = Objects.requireNonNull(user, "user");
+        this.password = password;
+        this.organization = organization;
+        this.module = Objects.requireNonNull(module, "module");
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getOrganization() {
+        return organization;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TestAccount)) {
+            return false;
+        }
+        TestAccount other = (TestAccount) o;
+        return user.equals(other.user) && Objects.equals(organization, other.organization) && module.equals(other.module);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(user, organization, module);
+    }
+
+    /**
+     * Never includes the password, so it is safe to log and to use as a test name.
+     */
+    @Override
+    public String toString() {
+        return user + "@" + organization + " / " + module;
+    }
+}
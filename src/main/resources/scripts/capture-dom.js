@@ -0,0 +1,36 @@
+// Snapshot of the current document for failure artifacts: the markup with
+// open shadow roots inlined as declarative <template shadowrootmode="open">,
+// plus URL, title and the progress bar text.
+const serialize = node => {
+    if (node.nodeType === Node.TEXT_NODE) {
+        const span = document.createElement('span');
+        span.textContent = node.textContent;
+        return span.innerHTML;
+    }
+    if (node.nodeType === Node.COMMENT_NODE) {
+        return '<!--' + node.textContent + '-->';
+    }
+    if (node.nodeType !== Node.ELEMENT_NODE) {
+        return '';
+    }
+    const tag = node.localName;
+    const attributes = Array.from(node.attributes)
+        .map(a => ' ' + a.name + '="' + a.value.replace(/&/g, '&amp;').replace(/"/g, '&quot;') + '"').join('');
+    let inner = '';
+    if (node.shadowRoot) {
+        inner += '<template shadowrootmode="open">'
+            + Array.from(node.shadowRoot.childNodes).map(serialize).join('') + '</template>';
+    }
+    const children = tag === 'template' ? node.content.childNodes : node.childNodes;
+    inner += Array.from(children).map(serialize).join('');
+    return /^(area|base|br|col|embed|hr|img|input|link|meta|source|track|wbr)$/.test(tag)
+        ? '<' + tag + attributes + '>'
+        : '<' + tag + attributes + '>' + inner + '</' + tag + '>';
+};
+const progressBar = document.querySelector('wem-game-progress-bar');
+return {
+    url: location.href,
+    title: document.title,
+    html: '<!DOCTYPE html>\n' + serialize(document.documentElement),
+    progress: progressBar ? (progressBar.shadowRoot || progressBar).textContent.trim() : null
+};
@@ -0,0 +1,30 @@
+// Times one WebDriver lookup strategy in the page and counts the nodes it has
+// to consider: the scope's subtree, the whole document for absolute XPaths,
+// and a single node for lookups by id.
+// arguments: [using, value, scope or null]
+const using = arguments[0];
+const value = arguments[1];
+const scope = arguments[2] || document;
+
+const subtreeSize = root => root.getElementsByTagName('*').length + 1;
+const start = performance.now();
+let found = 0;
+let nodes = subtreeSize(scope.nodeType === 9 ? scope.documentElement : scope);
+if (using === 'xpath') {
+    found = document.evaluate(value, scope, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null).snapshotLength;
+    if (value.startsWith('/') || value.startsWith('(/')) {
+        nodes = subtreeSize(document.documentElement);
+    }
+} else if (using === 'css selector') {
+    found = scope.querySelectorAll(value).length;
+    // By.id sends an escaped id selector, e.g. #navBar\.commandView\.analytics\.title
+    if (/^#(?:[\w-]|\\[0-9a-fA-F]{1,6} ?|\\[^0-9a-fA-F\n])+$/.test(value)) {
+        nodes = 1;
+    }
+} else if (using === 'link text' || using === 'partial link text') {
+    found = Array.from(scope.querySelectorAll('a'))
+        .filter(a => using === 'link text' ? a.innerText.trim() === value : a.innerText.includes(value)).length;
+} else if (using === 'tag name') {
+    found = scope.getElementsByTagName(value).length;
+}
+return { millis: performance.now() - start, nodes: nodes, found: found };
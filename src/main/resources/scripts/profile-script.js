@@ -0,0 +1,55 @@
+// Runs SCRIPT and reports its time in the page and the DOM nodes it touched:
+// elements returned by querySelectorAll, nodes an XPath had to walk, and
+// getComputedStyle calls. The patched DOM methods stay installed until the
+// script completes: when it returns, when its returned promise settles, or,
+// for an async script, when it calls back.
+// arguments: as passed to SCRIPT
+const patched = [];
+let nodes = 0;
+const count = (owner, name, measure) => {
+    const original = owner[name];
+    patched.push([owner, name, original]);
+    owner[name] = function () {
+        const result = original.apply(this, arguments);
+        nodes += measure(result, arguments);
+        return result;
+    };
+};
+const subtreeSize = root => root ? root.getElementsByTagName('*').length + 1 : 0;
+count(Document.prototype, 'querySelectorAll', r => r.length);
+count(Element.prototype, 'querySelectorAll', r => r.length);
+count(DocumentFragment.prototype, 'querySelectorAll', r => r.length);
+count(Document.prototype, 'evaluate', (r, args) => String(args[0]).startsWith('/') || !args[1] || args[1].nodeType === 9
+    ? subtreeSize(document.documentElement) : subtreeSize(args[1]));
+count(window, 'getComputedStyle', () => 1);
+
+const restore = () => patched.splice(0).reverse().forEach(([owner, name, original]) => owner[name] = original);
+const start = performance.now();
+const report = value => {
+    restore();
+    return { __gcloudProfile: true, value: value === undefined ? null : value,
+             millis: performance.now() - start, nodes: nodes };
+};
+const asyncScript = /*ASYNC*/false;
+const args = Array.prototype.slice.call(arguments);
+if (asyncScript) {
+    const callback = args[args.length - 1];
+    args[args.length - 1] = value => callback(report(value));
+}
+let value;
+try {
+    value = (function () { /*SCRIPT*/ }).apply(this, args);
+} catch (e) {
+    restore();
+    throw e;
+}
+if (asyncScript) {
+    return;
+}
+if (value && typeof value.then === 'function') {
+    return value.then(report, e => {
+        restore();
+        throw e;
+    });
+}
+return report(value);
@@ -0,0 +1,71 @@
+// Installs a push-based watcher for wem-game-progress-bar once per window and
+// waits until its progress reaches a target. Changes to the fill-percent
+// attribute and to the bar's shadow text are appended to an in-page queue,
+// which every call drains and returns as one batch.
+// arguments: [targetPercent, timeoutMs, callback]
+const target = arguments[0];
+const timeoutMs = arguments[1];
+const done = arguments[arguments.length - 1];
+
+if (!window.__gcloudProgress) {
+    const progress = window.__gcloudProgress = { latest: -1, queue: [], listeners: [], bar: null };
+
+    const publish = (percent, source) => {
+        if (isNaN(percent) || percent === progress.latest) return;
+        progress.latest = percent;
+        progress.queue.push({ percent: percent, source: source, at: Date.now() });
+        progress.listeners.slice().forEach(l => l(percent));
+    };
+
+    const read = (bar) => {
+        const attr = parseInt(bar.getAttribute('fill-percent'), 10);
+        if (!isNaN(attr)) return [attr, 'fill-percent'];
+        const text = (bar.shadowRoot || bar).textContent || '';
+        const match = text.match(/(\d+)\s*%/);
+        return match ? [parseInt(match[1], 10), 'shadow-text'] : [NaN, null];
+    };
+
+    const attach = (bar) => {
+        if (progress.bar === bar) return;
+        if (progress.barObserver) progress.barObserver.disconnect();
+        progress.bar = bar;
+        const onChange = () => publish(...read(bar));
+        const mo = new MutationObserver(onChange);
+        mo.observe(bar, { attributes: true, attributeFilter: ['fill-percent'] });
+        if (bar.shadowRoot) {
+            mo.observe(bar.shadowRoot, { subtree: true, childList: true, characterData: true });
+        }
+        progress.barObserver = mo;
+        onChange();
+    };
+
+    const locate = () => {
+        const bar = document.querySelector('wem-game-progress-bar');
+        if (bar && bar !== progress.bar) attach(bar);
+    };
+    new MutationObserver(locate).observe(document, { subtree: true, childList: true });
+    locate();
+}
+
+const progress = window.__gcloudProgress;
+const finish = (reached) => {
+    const batch = progress.queue.splice(0, progress.queue.length);
+    done({ reached: reached, latest: progress.latest, events: batch });
+};
+
+if (progress.latest >= target) {
+    finish(true);
+} else {
+    let timer = null;
+    const listener = (percent) => {
+        if (percent < target) return;
+        progress.listeners.splice(progress.listeners.indexOf(listener), 1);
+        clearTimeout(timer);
+        finish(true);
+    };
+    progress.listeners.push(listener);
+    timer = setTimeout(() => {
+        progress.listeners.splice(progress.listeners.indexOf(listener), 1);
+        finish(false);
+    }, timeoutMs);
+}
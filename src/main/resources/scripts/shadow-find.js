@@ -0,0 +1,118 @@
+// Shadow-piercing element lookup used by ShadowBy and DomWaits. Installs
+// window.__gcloudShadowFind(mode, query, scope, first) once per document;
+// queries are always passed as arguments, never spliced into source.
+//   mode 'chain': query = array of CSS selectors, each resolved inside the
+//                 shadow root (or subtree) of the previous match
+//   mode 'text':  query = {selector, text, exact}
+// Shadow roots discovered by full walks and the root each query last matched in
+// are cached alongside the function, so the cache lives exactly as long as the
+// document.
+if (!window.__gcloudShadowFind) {
+    window.__gcloudShadowFind = (function () {
+        const cache = window.__gcloudShadowCache = {
+            roots: [],
+            hits: new Map(),
+            stats: { lookups: 0, cacheHits: 0, fullWalks: 0, nodesVisited: 0 }
+        };
+
+        const connected = (root) => root === document || (root.host && root.host.isConnected);
+
+        function walkRoots(start) {
+            const found = [];
+            const stack = [start];
+            if (start.shadowRoot) { found.push(start.shadowRoot); stack.push(start.shadowRoot); }
+            while (stack.length) {
+                const root = stack.pop();
+                const all = root.querySelectorAll('*');
+                cache.stats.nodesVisited += all.length;
+                for (let i = 0; i < all.length; i++) {
+                    const sr = all[i].shadowRoot;
+                    if (sr) { found.push(sr); stack.push(sr); }
+                }
+            }
+            return found;
+        }
+
+        function matchIn(root, selector, text, exact, first) {
+            const candidates = root.querySelectorAll(selector);
+            const matches = [];
+            for (let i = 0; i < candidates.length; i++) {
+                const el = candidates[i];
+                if (text != null) {
+                    const content = (el.textContent || '').trim();
+                    if (exact ? content !== text : !content.includes(text)) continue;
+                }
+                matches.push(el);
+                if (first) break;
+            }
+            return matches;
+        }
+
+        function deepFind(start, selector, text, exact, key, first) {
+            const hit = key && cache.hits.get(key);
+            if (hit && connected(hit)) {
+                const quick = matchIn(hit, selector, text, exact, first);
+                if (first && quick.length) { cache.stats.cacheHits++; return quick; }
+            }
+
+            if (first) {
+                let roots = [start];
+                if (start === document) {
+                    cache.roots = cache.roots.filter(connected);
+                    roots = roots.concat(cache.roots);
+                }
+                const matches = searchRoots(roots, selector, text, exact, key, first);
+                if (matches.length) return matches;
+            }
+
+            cache.stats.fullWalks++;
+            const discovered = walkRoots(start);
+            if (start === document) cache.roots = discovered;
+            return searchRoots([start].concat(discovered), selector, text, exact, key, first);
+        }
+
+        function searchRoots(roots, selector, text, exact, key, first) {
+            const all = [];
+            for (const root of roots) {
+                const matches = matchIn(root, selector, text, exact, first);
+                if (matches.length) {
+                    if (key) cache.hits.set(key, root);
+                    if (first) return matches;
+                    matches.forEach(m => { if (!all.includes(m)) all.push(m); });
+                }
+            }
+            return all;
+        }
+
+        return function (mode, query, scope, first) {
+            scope = scope || document;
+            cache.stats.lookups++;
+
+            if (mode === 'text') {
+                const key = scope === document ? 'text|' + query.selector + '|' + query.exact + '|' + query.text : null;
+                return deepFind(scope, query.selector, query.text, query.exact, key, first);
+            }
+
+            if (mode === 'chain') {
+                let current = [scope];
+                for (let i = 0; i < query.length; i++) {
+                    const next = [];
+                    for (const node of current) {
+                        const root = node === document ? document : (node.shadowRoot || node);
+                        const key = i === 0 && scope === document ? 'chain|' + query[0] : null;
+                        const matches = i === 0
+                            ? deepFind(root, query[i], null, false, key, first)
+                            : Array.from(first ? [root.querySelector(query[i])].filter(e => e) : root.querySelectorAll(query[i]));
+                        matches.forEach(m => next.push(m));
+                        if (first && next.length) break;
+                    }
+                    current = next;
+                    if (!current.length) break;
+                }
+                return first ? current.slice(0, 1) : current;
+            }
+
+            throw new Error('Unknown shadow locator mode: ' + mode);
+        };
+    })();
+}
@@ -0,0 +1,115 @@
+// Resolves as soon as PREDICATE returns a truthy value. Re-evaluates on DOM
+// mutations (including inside open shadow roots), on interaction events and on
+// intersection changes, with a cheap in-page poll for property-only changes.
+// A wait may span several calls ("slices"): its observers and state stay
+// installed under waitId until it resolves, its last slice ends, or totalMs
+// has passed, so short slices neither miss mutations nor restart the state.
+// arguments: [args, sliceMs, observedElements, waitId, totalMs, lastSlice, callback]
+const args = arguments[0];
+const sliceMs = arguments[1];
+const observedElements = arguments[2] || [];
+const waitId = arguments[3];
+const totalMs = arguments[4];
+const lastSlice = arguments[5];
+const done = arguments[arguments.length - 1];
+
+const waits = window.__gcloudWaits || (window.__gcloudWaits = {});
+const events = ['click', 'change', 'input', 'scroll', 'transitionend', 'animationend'];
+
+const dispose = (w) => {
+    if (w.disposed) return;
+    w.disposed = true;
+    w.observers.forEach(o => o.disconnect());
+    events.forEach(e => document.removeEventListener(e, w.check, true));
+    clearInterval(w.poll);
+};
+
+const forget = (w) => {
+    dispose(w);
+    clearTimeout(w.expiry);
+    if (waits[waitId] === w) delete waits[waitId];
+};
+
+const reply = (w, ok, value) => {
+    const callback = w.done;
+    w.done = null;
+    clearTimeout(w.slice);
+    if (callback) {
+        callback({ ok: ok, value: value === undefined ? null : value, error: w.state.lastError || null,
+                   elapsed: Math.round(performance.now() - w.sliceStart) });
+    }
+};
+
+let w = waits[waitId];
+if (!w) {
+    const start = performance.now();
+    const state = { lastMutation: start, intersecting: new Map() };
+    const predicate = (args, state) => { /*PREDICATE*/ };
+    const watched = new WeakSet();
+    w = waits[waitId] = { state: state, observers: [], done: null, resolved: false, value: null };
+
+    w.check = () => {
+        if (w.resolved || w.disposed) return;
+        try {
+            const value = predicate(args, state);
+            if (value) {
+                // a result reached between slices is kept for the next one
+                w.resolved = true;
+                w.value = value;
+                dispose(w);
+                if (w.done) {
+                    forget(w);
+                    reply(w, true, value);
+                }
+            }
+        } catch (e) {
+            state.lastError = String(e);
+        }
+    };
+
+    const watchShadowRoots = (el) => {
+        if (el.shadowRoot) watch(el.shadowRoot);
+        el.querySelectorAll('*').forEach(c => { if (c.shadowRoot) watch(c.shadowRoot); });
+    };
+
+    function watch(root) {
+        if (watched.has(root)) return;
+        watched.add(root);
+        const mo = new MutationObserver(records => {
+            state.lastMutation = performance.now();
+            records.forEach(r => r.addedNodes.forEach(n => { if (n.nodeType === 1) watchShadowRoots(n); }));
+            w.check();
+        });
+        mo.observe(root, { subtree: true, childList: true, attributes: true, characterData: true });
+        w.observers.push(mo);
+        root.querySelectorAll('*').forEach(c => { if (c.shadowRoot) watch(c.shadowRoot); });
+    }
+
+    if (observedElements.length > 0) {
+        const io = new IntersectionObserver(entries => {
+            entries.forEach(e => state.intersecting.set(e.target, e.isIntersecting));
+            w.check();
+        });
+        observedElements.forEach(el => io.observe(el));
+        w.observers.push(io);
+    }
+
+    watch(document);
+    events.forEach(e => document.addEventListener(e, w.check, true));
+    w.poll = setInterval(w.check, 50);
+    // a caller that never sends the last slice must not leave observers behind
+    w.expiry = setTimeout(() => forget(w), totalMs + 5000);
+}
+
+w.done = done;
+w.sliceStart = performance.now();
+if (w.resolved) {
+    forget(w);
+    reply(w, true, w.value);
+} else {
+    w.slice = setTimeout(() => {
+        if (lastSlice) forget(w);
+        reply(w, false, null);
+    }, sliceMs);
+    w.check();
+}
@@ -0,0 +1,41 @@
+package com.gcloud.base;
+
+import com.gcloud.artifacts.FlightRecorder;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestResult;
+
+/**
+ * Captures failure artifacts right after a test method fails. The listener
+ * runs before {@code @AfterMethod}, so the test's browser is still attached.
+ * Each test's capture overhead is printed: recording alone for passing tests,
+ * recording plus the raw grab for failed ones.
+ * <p>
+ * Registered in testng.xml; disabled with artifact_capture=false.
+ */
+public class ArtifactListener implements IInvokedMethodListener, ISuiteListener {
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!method.isTestMethod() || !BaseTest.isArtifactCaptureEnabled()) {
+            return;
+        }
+        FlightRecorder recorder = FlightRecorder.current();
+        long recordingNanos = recorder != null ? recorder.getOverheadNanos() : 0;
+        long captureNanos = 0;
+        String test = result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+        if (result.getStatus() == ITestResult.FAILURE) {
+            captureNanos = BaseTest.getArtifactCapture().capture(test, BaseTest.getDriver(), recorder, result.getThrowable());
+        }
+        System.out.printf("[artifacts] %s overhead %.2fms (recording %.2fms over %d entries, capture %.2fms)%n",
+                test, (recordingNanos + captureNanos) / 1e6, recordingNanos / 1e6,
+                recorder != null ? recorder.getRecorded() : 0, captureNanos / 1e6);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        BaseTest.shutdownArtifactCapture();
+    }
+}
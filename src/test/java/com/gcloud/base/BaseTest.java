@@ -1,109 +1,664 @@
 package com.gcloud.base;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import com.gcloud.artifacts.ArtifactCapture;
+import com.gcloud.artifacts.FlightRecorder;
+import com.gcloud.config.ConfigSchema;
+import com.gcloud.config.ConfigSnapshot;
+import com.gcloud.driver.BrowserContext;
+import com.gcloud.driver.BrowserContextHost;
+import com.gcloud.driver.DriverBinaryResolver;
+import com.gcloud.driver.DriverFactory;
+import com.gcloud.driver.DriverLease;
+import com.gcloud.driver.DriverPool;
+import com.gcloud.driver.RemoteNodes;
+import com.gcloud.fixtures.LocalAppServer;
+import com.gcloud.helpers.ModuleResetter;
+import com.gcloud.metrics.CommandCounter;
+import com.gcloud.metrics.FlowFootprint;
+import com.gcloud.metrics.LocatorProfiler;
+import com.gcloud.metrics.StepReport;
+import com.gcloud.metrics.StepTimer;
+import com.gcloud.metrics.TestDurations;
+import com.gcloud.metrics.WaitHistory;
+import com.gcloud.network.AssetCache;
+import com.gcloud.network.NetworkLayer;
+import com.gcloud.pages.LoginPage;
+import com.gcloud.session.AccountLease;
+import com.gcloud.session.AccountPool;
+import com.gcloud.session.SessionCache;
+import com.gcloud.session.SessionManager;
+import com.gcloud.session.TestAccount;
+import org.openqa.selenium.PageLoadStrategy;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.Properties;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public class BaseTest {
 
+    private static ThreadLocal<DriverLease> lease = new ThreadLocal<>();
     private static ThreadLocal<WebDriver> driver = new ThreadLocal<>();
+    private static ThreadLocal<CommandCounter> commandCounter = new ThreadLocal<>();
+    private static ThreadLocal<AccountLease> accountLease = new ThreadLocal<>();
+    private static ThreadLocal<NetworkLayer> networkLayer = new ThreadLocal<>();
+    private static ThreadLocal<BrowserContext> browserContext = new ThreadLocal<>();
+    private static DriverPool driverPool;
+    private static BrowserContextHost contextHost;
+    private static FlowFootprint footprint;
+    private static ArtifactCapture artifactCapture;
+    private static RemoteNodes remoteNodes;
+    private static TestDurations testDurations;
+    private static SessionManager sessionManager;
+    private static AccountPool accountPool;
+    private static AssetCache assetCache;
+    private static LocalAppServer localAppServer;
 
-    public static Properties config = new Properties();
-    public static Properties credentials = new Properties();
+    // Resolved once when the suite loads BaseTest, then shared by all threads
+    private static final ConfigSnapshot settings = ConfigSnapshot.load(FrameworkConfig.SETTINGS, "config", null);
+    private static final ConfigSnapshot credentials = ConfigSnapshot.load(
+            FrameworkConfig.CREDENTIALS, "credentials", settings.getProfile());
+    // Checked before anything reads a typed value; suite entry points fail on them
+    private static final List<String> configProblems = checkConfig();
 
-    // Load property files
-    static {
-        loadProperties("config.properties", config);
-        loadProperties("credentials.properties", credentials);
+    // Property Access Methods
+    /**
+     * The typed configuration: config.properties, the profile's file,
+     * environment variables and system properties, with defaults applied.
+     */
+    public static ConfigSnapshot getSettings() {
+        return settings;
     }
 
-    private static void loadProperties(String fileName, Properties props) {
-        try (InputStream input = BaseTest.class.getClassLoader().getResourceAsStream(fileName)) {
-            if (input != null) {
-                props.load(input);
-                System.out.println("Loaded " + fileName);
-            } else {
-                System.out.println(fileName + " not found. Falling back to environment variables.");
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load " + fileName, e);
+    public static String getConfig(String key) {
+        return settings.getString(key);
+    }
+
+    public static String getCredential(String key) {
+        String value = credentials.getString(key);
+        // the local fixture app accepts any login, so runs against it need no secrets
+        if ((value == null || value.isEmpty()) && isLocalApp() && key.startsWith("user_")) {
+            return "local-" + key;
         }
+        return value;
     }
 
-    // Property Access Methods
-    public static String getConfig(String key) {
-        String envKey = key.toUpperCase().replace(".", "_");
-        String envValue = System.getenv(envKey);
-        return envValue != null ? envValue : config.getProperty(key);
+    private static boolean isLocalApp() {
+        return settings.getBoolean("local_app");
     }
 
-    public static String getCredential(String key) {
-        String envKey = key.toUpperCase();
-        String envValue = System.getenv(envKey);
-        return envValue != null ? envValue : credentials.getProperty(key);
+    /**
+     * The configured base_url, or the URL of the bundled fixture server when
+     * local_app is enabled. The fixture server is started on first use.
+     */
+    public static synchronized String getBaseUrl() {
+        if (isLocalApp()) {
+            if (localAppServer == null) {
+                long start = System.nanoTime();
+                localAppServer = LocalAppServer.start();
+                System.out.println("Local app server started at " + localAppServer.getBaseUrl()
+                        + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+            }
+            return localAppServer.getBaseUrl();
+        }
+        return getConfig("base_url");
     }
 
     public static WebDriver getDriver() {
         return driver.get();
     }
 
-    // Test Setup
-    @BeforeMethod
-    public void initializeDriver() {
+    /**
+     * WebDriver commands sent by the current test so far.
+     */
+    public static CommandCounter getCommandCounter() {
+        return commandCounter.get();
+    }
 
-        String browser = getConfig("browser") != null ? getConfig("browser") : "chrome";
-        boolean headless = Boolean.parseBoolean(
-                getConfig("headless") != null ? getConfig("headless") : "false");
+    /**
+     * The (account, module) pair this worker leased for the current test. No
+     * other worker uses it at the same time, so resetting its module is safe.
+     */
+    public static TestAccount getAccount() {
+        AccountLease current = accountLease.get();
+        return current != null ? current.getAccount() : null;
+    }
 
-        if (browser.equalsIgnoreCase("chrome")) {
+    public static String getModule() {
+        TestAccount account = getAccount();
+        return account != null ? account.getModule() : null;
+    }
+
+    /**
+     * The pool of (account, module) pairs. Pairs come from numbered
+     * credentials ({@code pool.N.user_email}, {@code pool.N.user_password},
+     * {@code pool.N.user_org} and optionally {@code pool.N.modules}), each
+     * combined with its modules. Without pool entries, the single user_email
+     * account is combined with every module in assignment_modules.
+     */
+    public static synchronized AccountPool getAccountPool() {
+        if (accountPool == null) {
+            String defaultModules = settings.getString("assignment_modules");
+            List<TestAccount> pairs = new ArrayList<>();
+            for (int i = 1; getCredential("pool." + i + ".user_email") != null
+                    && !getCredential("pool." + i + ".user_email").isBlank(); i++) {
+                String prefix = "pool." + i + ".";
+                String modules = getCredential(prefix + "modules") != null ? getCredential(prefix + "modules") : defaultModules;
+                addPairs(pairs, getCredential(prefix + "user_email"), getCredential(prefix + "user_password"),
+                        getCredential(prefix + "user_org"), modules);
+            }
+            if (pairs.isEmpty()) {
+                addPairs(pairs, getCredential("user_email"), getCredential("user_password"),
+                        getCredential("user_org"), defaultModules);
+            }
+            accountPool = new AccountPool(pairs);
+            System.out.println("Account pool ready: " + pairs);
+        }
+        return accountPool;
+    }
+
+    private static void addPairs(List<TestAccount> pairs, String user, String pass, String org, String modules) {
+        for (String name : modules.split(",")) {
+            if (!name.isBlank()) {
+                pairs.add(new TestAccount(user, pass, org, name.trim()));
+            }
+        }
+    }
+
+    /**
+     * Logs in with the given credentials, replaying a cached session when
+     * session_replay is enabled and a valid snapshot exists. With module_reset
+     * enabled, the worker's module is then reset so the test starts from 0%.
+     */
+    public static void login(String user, String pass, String organization) {
+        if (settings.getBoolean("session_replay")) {
+            getSessionManager().authenticate(getDriver(), user, pass, organization);
+        } else {
+            new LoginPage(getDriver()).login(user, pass, organization);
+        }
+
+        if (settings.getBoolean("module_reset")) {
+            resetModule();
+        }
+    }
+
+    /**
+     * Resets the worker's module through the reset API, falling back to the
+     * Development Page. Requires an authenticated session.
+     */
+    public static ModuleResetter.Result resetModule() {
+        String endpoint = settings.isSet("module_reset_url")
+                ? getConfig("module_reset_url")
+                : isLocalApp() ? LocalAppServer.RESET_PATH.substring(1) + ModuleResetter.MODULE_PLACEHOLDER + "/reset" : null;
+        String developmentPage = settings.isSet("development_page_url")
+                ? getConfig("development_page_url")
+                : isLocalApp() ? "development.html" : null;
+        if (endpoint == null && developmentPage == null) {
+            throw new RuntimeException("module_reset needs module_reset_url or development_page_url in config.properties.");
+        }
+        return new ModuleResetter(getDriver(), absoluteUrl(endpoint), absoluteUrl(developmentPage)).reset(getModule());
+    }
+
+    private static String absoluteUrl(String url) {
+        if (url == null || url.startsWith("http://") || url.startsWith("https://")) {
+            return url;
+        }
+        String baseUrl = getBaseUrl();
+        return (baseUrl.endsWith("/") ? baseUrl : baseUrl + "/") + (url.startsWith("/") ? url.substring(1) : url);
+    }
+
+    private static synchronized SessionManager getSessionManager() {
+        if (sessionManager == null) {
+            String passphrase = getCredential("session_cache_key");
+            if (passphrase == null) {
+                passphrase = SessionCache.localKey(Path.of(System.getProperty("user.home"), ".gcloud", "session-cache.key"));
+            }
+            SessionCache cache = new SessionCache(Path.of(getConfig("session_cache_dir")), passphrase);
+            sessionManager = new SessionManager(cache, Duration.ofMinutes(settings.getLong("session_ttl_minutes")));
+        }
+        return sessionManager;
+    }
+
+    /**
+     * The DevTools network layer of the session behind {@code browser}, or null
+     * when network_layer is disabled. The asset cache is shared by all sessions.
+     */
+    private static NetworkLayer getNetworkLayer(WebDriver browser) {
+        if (!settings.getBoolean("network_layer")) {
+            return null;
+        }
+        synchronized (BaseTest.class) {
+            if (assetCache == null) {
+                long maxMb = settings.getLong("asset_cache_max_mb");
+                assetCache = new AssetCache(Path.of(getConfig("asset_cache_dir")), maxMb * 1024 * 1024);
+            }
+        }
+        return NetworkLayer.attach(browser, settings.getList("network_block_patterns"),
+                settings.getList("asset_cache_patterns"), assetCache);
+    }
+
+    /**
+     * True when execution_mode=contexts: every worker gets an isolated browser
+     * context of one shared Chrome instead of a browser of its own.
+     */
+    private static boolean isContextMode() {
+        return "contexts".equalsIgnoreCase(getConfig("execution_mode"));
+    }
+
+    public static boolean isArtifactCaptureEnabled() {
+        return settings.getBoolean("artifact_capture");
+    }
+
+    /**
+     * The failure artifact writer shared by all test threads, created on first use.
+     */
+    public static synchronized ArtifactCapture getArtifactCapture() {
+        if (artifactCapture == null) {
+            artifactCapture = new ArtifactCapture(Path.of(getConfig("artifact_dir")), settings.getInt("artifact_queue_size"));
+        }
+        return artifactCapture;
+    }
+
+    /**
+     * Writes the captures still queued and prints the capture totals.
+     */
+    public static synchronized void shutdownArtifactCapture() {
+        if (artifactCapture != null) {
+            artifactCapture.shutdown(Duration.ofSeconds(60));
+            System.out.println("[artifacts] " + artifactCapture.getStats());
+            artifactCapture = null;
+        }
+    }
+
+    /**
+     * Test durations of previous runs, loaded from duration_history_file. This
+     * run's durations are added when the suite ends.
+     */
+    public static synchronized TestDurations getTestDurations() {
+        if (testDurations == null) {
+            testDurations = new TestDurations(Path.of(getConfig("duration_history_file")));
+        }
+        return testDurations;
+    }
 
-            WebDriverManager.chromedriver().setup();
-            ChromeOptions options = new ChromeOptions();
+    /**
+     * True when remote_nodes lists Selenium Grid or standalone URLs to run
+     * the browsers on instead of a local ChromeDriver.
+     */
+    private static boolean isRemote() {
+        return !settings.getList("remote_nodes").isEmpty();
+    }
+
+    private static synchronized RemoteNodes getRemoteNodes() {
+        if (remoteNodes == null) {
+            List<URL> urls = new ArrayList<>();
+            for (String node : settings.getList("remote_nodes")) {
+                try {
+                    urls.add(new URL(node));
+                } catch (MalformedURLException e) {
+                    throw new RuntimeException("Invalid URL in remote_nodes: " + node, e);
+                }
+            }
+            remoteNodes = new RemoteNodes(urls, newDriverFactory().chromeOptions(),
+                    settings.getInt("remote_node_sessions"), settings.getDouble("slow_node_ratio"));
+            System.out.println("Remote nodes ready: " + urls);
+        }
+        return remoteNodes;
+    }
 
-            if (headless) {
-                options.addArguments("--headless=new");
-                options.addArguments("--window-size=1920,1080");
+    private static synchronized FlowFootprint getFootprint() {
+        if (footprint == null) {
+            footprint = new FlowFootprint(isContextMode() ? "contexts" : "driver_per_thread");
+        }
+        return footprint;
+    }
+
+    // Driver Pool
+    @BeforeSuite(alwaysRun = true)
+    public void initializeDriverPool(ITestContext context) {
+        requireValidConfig();
+        if (isContextMode()) {
+            getContextHost();
+            return;
+        }
+        int threadCount = context.getSuite().getXmlSuite().getThreadCount();
+        getDriverPool(threadCount);
+    }
+
+    /**
+     * Whether config and credentials resolved without problems. Data
+     * providers check it so an invalid configuration yields no tests
+     * instead of half-built ones.
+     */
+    public static boolean isConfigValid() {
+        return configProblems.isEmpty();
+    }
+
+    /**
+     * Fails the suite on invalid or missing values, listing every problem.
+     * Each suite entry point calls it before reading typed values.
+     */
+    private static void requireValidConfig() {
+        if (!configProblems.isEmpty()) {
+            throw new IllegalStateException("Invalid configuration:\n  " + String.join("\n  ", configProblems));
+        }
+    }
+
+    /**
+     * Reports unknown keys and aliases once, when BaseTest loads, and
+     * collects invalid or missing values. Logins need user_email and
+     * user_password unless pool entries or local_app replace them.
+     */
+    private static List<String> checkConfig() {
+        System.out.println("[config] " + settings);
+        List<String> problems = new ArrayList<>(settings.getProblems());
+        problems.addAll(credentials.getProblems());
+        settings.getWarnings().forEach(warning -> System.out.println("[config] Warning: " + warning));
+        credentials.getWarnings().forEach(warning -> System.out.println("[config] Warning: " + warning));
+
+        // read as text: an unparsable local_app is already a problem above
+        boolean localApp = "true".equalsIgnoreCase(settings.getString("local_app"));
+        if (credentials.isSet("pool.1.user_email")) {
+            for (int i = 1; credentials.isSet("pool." + i + ".user_email"); i++) {
+                if (!credentials.isSet("pool." + i + ".user_password") && !localApp) {
+                    problems.add("Missing pool." + i + ".user_password for pool." + i + ".user_email");
+                }
+            }
+        } else if (!localApp) {
+            for (String key : List.of("user_email", "user_password")) {
+                if (!credentials.isSet(key)) {
+                    problems.add("Missing required credential " + key + " (environment variable "
+                            + ConfigSchema.envName(key) + "; or add pool.N entries, or set local_app=true)");
+                }
+            }
+        }
+        return problems;
+    }
+
+    private static synchronized DriverPool getDriverPool(int threadCount) {
+        if (driverPool == null) {
+            int size = settings.isSet("driver_pool_size") ? settings.getInt("driver_pool_size") : Math.max(1, threadCount);
+            int maxReuse = settings.getInt("driver_max_reuse");
+
+            if (isRemote()) {
+                RemoteNodes nodes = getRemoteNodes();
+                driverPool = new DriverPool(nodes::create, size, maxReuse, nodes::shouldRetire);
             } else {
-                options.addArguments("--start-maximized");
+                driverPool = new DriverPool(newDriverFactory()::create, size, maxReuse);
+            }
+            if (getBaseUrl() != null) {
+                driverPool.addKnownOrigin(getBaseUrl());
             }
+            System.out.println("Driver pool ready: size=" + size + ", max reuse=" + maxReuse
+                    + (isRemote() ? ", remote" : ", local"));
+        }
+        return driverPool;
+    }
 
-            options.addArguments("--use-fake-ui-for-media-stream");
-            options.addArguments("--no-sandbox");
-            options.addArguments("--disable-dev-shm-usage");
+    /**
+     * The shared browser of execution_mode=contexts. Chrome is started when the
+     * first context is opened.
+     */
+    private static synchronized BrowserContextHost getContextHost() {
+        if (contextHost == null) {
+            DriverFactory factory = newDriverFactory();
+            // navigations hold the shared browser until DOMContentLoaded only; contexts await the rest
+            contextHost = new BrowserContextHost(() -> factory.create(PageLoadStrategy.EAGER));
+            System.out.println("Browser context host ready");
+        }
+        return contextHost;
+    }
 
-            driver.set(new ChromeDriver(options));
+    private static DriverFactory newDriverFactory() {
+        String browser = getConfig("browser");
+        boolean headless = settings.getBoolean("headless");
+        if (isRemote() && !isContextMode()) {
+            // remote nodes bring their own chromedriver; only the options are used
+            return new DriverFactory(browser, headless);
+        }
 
-        } else {
-            throw new RuntimeException("Unsupported browser: " + browser);
+        String driverCacheDir = settings.isSet("driver_cache_dir")
+                ? getConfig("driver_cache_dir")
+                : Path.of(System.getProperty("user.home"), ".cache", "gcloud-ui-tests").toString();
+        DriverBinaryResolver resolver = new DriverBinaryResolver(
+                Path.of(driverCacheDir),
+                settings.getBoolean("driver_offline"),
+                getConfig("chromedriver_path"),
+                getConfig("chrome_version"));
+        if (browser.equalsIgnoreCase("chrome")) {
+            // resolve up front so the cost is reported apart from session startup
+            DriverBinaryResolver.resolveOnce(resolver);
         }
+        return new DriverFactory(browser, headless, resolver);
+    }
 
-        getDriver().manage().timeouts().pageLoadTimeout(Duration.ofSeconds(60));
+    @AfterSuite(alwaysRun = true)
+    public void writeStepReport() {
+        if (StepTimer.getRecords().isEmpty()) {
+            return;
+        }
+        String reportDir = getConfig("step_report_dir");
+        String runId = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        try {
+            new StepReport(Path.of(reportDir)).write(runId, StepTimer.getRecords());
+            System.out.println("Step timings written to " + reportDir);
+        } catch (IOException e) {
+            System.out.println("Failed to write step timings: " + e.getMessage());
+        }
+    }
 
-        String implicitWait = getConfig("implicit_wait") != null ? getConfig("implicit_wait") : "2";
-        getDriver().manage().timeouts().implicitlyWait(Duration.ofSeconds(Long.parseLong(implicitWait)));
+    /**
+     * Installs the wait history shared by page objects, loaded from the
+     * current environment's section of wait_history_file. With
+     * adaptive_waits=false waits are only recorded.
+     */
+    @BeforeSuite(alwaysRun = true)
+    public void loadWaitHistory() {
+        requireValidConfig();
+        String environment = (settings.getProfile() != null ? settings.getProfile() + " " : "")
+                + (isLocalApp() ? "local_app" : getConfig("base_url"));
+        WaitHistory.share(new WaitHistory(Path.of(getConfig("wait_history_file")), environment,
+                settings.getBoolean("adaptive_waits")));
+        System.out.println("[wait] History of environment " + environment);
+    }
 
-        String baseUrl = getConfig("base_url");
-        if (baseUrl == null) {
-            throw new RuntimeException("base_url is not defined in config.properties or environment variables.");
+    @AfterSuite(alwaysRun = true)
+    public void writeWaitHistory() {
+        WaitHistory history = WaitHistory.shared();
+        List<Map<String, Object>> dominant = history.getDominantWaits();
+        if (dominant.isEmpty()) {
+            return;
         }
+        System.out.println("[wait] Waits by total time (adaptive=" + history.isAdaptive() + "):");
+        dominant.stream().limit(10).forEach(row -> System.out.println("[wait]   " + row));
+        try {
+            history.save();
+        } catch (IOException e) {
+            System.out.println("Failed to write wait history: " + e.getMessage());
+        }
+    }
 
-        getDriver().get(baseUrl);
+    @AfterSuite(alwaysRun = true)
+    public void reportAccountPool() {
+        synchronized (BaseTest.class) {
+            if (accountPool != null) {
+                System.out.println("Account pool: " + accountPool.getStats());
+            }
+        }
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void reportFlowFootprint() {
+        synchronized (BaseTest.class) {
+            if (footprint != null && footprint.getFlows() > 0) {
+                System.out.println("[footprint] " + footprint);
+            }
+            if (contextHost != null) {
+                System.out.println("[footprint] peak open browser contexts: " + contextHost.getPeakOpenContexts());
+            }
+        }
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void reportRemoteNodes() {
+        synchronized (BaseTest.class) {
+            if (remoteNodes != null) {
+                remoteNodes.getNodeStats().forEach(line -> System.out.println("[schedule] node " + line));
+            }
+        }
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public void shutdownDriverPool() {
+        synchronized (BaseTest.class) {
+            if (driverPool != null) {
+                driverPool.shutdown();
+                driverPool = null;
+            }
+            if (contextHost != null) {
+                contextHost.shutdown();
+                contextHost = null;
+            }
+            if (localAppServer != null) {
+                localAppServer.close();
+                localAppServer = null;
+            }
+        }
+    }
+
+    // Test Setup
+    @BeforeMethod
+    public void initializeDriver(Method method, Object[] parameters) {
+
+        // lease the account before the browser, so no session idles while waiting for one
+        TestAccount requested = parameters.length > 0 && parameters[0] instanceof TestAccount
+                ? (TestAccount) parameters[0] : null;
+        AccountLease account = getAccountPool().acquire(requested, Duration.ofSeconds(settings.getLong("account_lease_timeout")));
+        accountLease.set(account);
+        System.out.println("Acquired " + account);
+
+        WebDriver browser;
+        if (isContextMode()) {
+            // the network layer intercepts a whole session, so it is not installed on shared contexts
+            BrowserContext context = getContextHost().open();
+            browserContext.set(context);
+            System.out.println("Opened browser " + context);
+            browser = context.getDriver();
+        } else {
+            DriverLease current = getDriverPool(1).acquire(Duration.ofSeconds(settings.getLong("driver_lease_timeout")));
+            lease.set(current);
+            System.out.println("Acquired driver " + current);
+            browser = current.getDriver();
+
+            // remote sessions have no local DevTools connection
+            NetworkLayer network = isRemote() ? null : getNetworkLayer(browser);
+            if (network != null) {
+                network.resetStats();
+                networkLayer.set(network);
+            }
+        }
+        getFootprint().flowStarted();
+
+        if (settings.getBoolean("locator_profiler")) {
+            // LocatorBudgetListener fails the test when a call exceeds the budget
+            browser = LocatorProfiler.begin(settings.getLong("locator_budget_ms")).decorate(browser);
+        }
+
+        CommandCounter counter = new CommandCounter();
+        commandCounter.set(counter);
+        if (isArtifactCaptureEnabled()) {
+            FlightRecorder recorder = FlightRecorder.begin(settings.getInt("artifact_buffer_size"));
+            driver.set(new EventFiringDecorator<>(counter, recorder).decorate(browser));
+        } else {
+            driver.set(new EventFiringDecorator<>(counter).decorate(browser));
+        }
+        StepTimer.beginTest(method.getDeclaringClass().getSimpleName() + "." + method.getName(), counter);
+
+        getDriver().manage().timeouts().pageLoadTimeout(Duration.ofSeconds(60));
+        getDriver().manage().timeouts().scriptTimeout(Duration.ofSeconds(30));
+
+        // in contexts mode the shared browser keeps it at 0, see BrowserContext
+        getDriver().manage().timeouts().implicitlyWait(Duration.ofSeconds(settings.getLong("implicit_wait")));
+
+        // base_url was checked before the suite started any browser
+        getDriver().get(getBaseUrl());
     }
 
     // Tear Down
     @AfterMethod(alwaysRun = true)
-    public void tearDown() {
-        if (getDriver() != null) {
-            getDriver().quit();
-            driver.remove();
+    public void tearDown(ITestResult result) {
+        CommandCounter counter = commandCounter.get();
+        if (counter != null) {
+            System.out.println("Test sent " + counter);
+            commandCounter.remove();
+        }
+        NetworkLayer network = networkLayer.get();
+        if (network != null) {
+            System.out.println("[network] " + network);
+            networkLayer.remove();
+        }
+        LocatorProfiler profiler = LocatorProfiler.current();
+        if (profiler != null) {
+            LocatorProfiler.end();
+            reportLocatorCosts(profiler, result);
+        }
+        StepTimer.endTest();
+        FlightRecorder.end();
+        if (driver.get() != null) {
+            getFootprint().flowEnded();
         }
+        driver.remove();
+
+        BrowserContext context = browserContext.get();
+        if (context != null) {
+            browserContext.remove();
+            System.out.println("Closed browser " + context + " after " + context.getOpenMillis() + "ms");
+            context.close();
+        }
+
+        DriverLease current = lease.get();
+        if (current != null) {
+            lease.remove();
+            if (isRemote()) {
+                // feeds the node's speed before the pool decides whether to keep the session
+                getRemoteNodes().testFinished(current.getDriver(),
+                        getTestDurations().predictInvocation(DurationScheduler.key(result.getMethod())),
+                        result.getEndMillis() - result.getStartMillis());
+            }
+            getDriverPool(1).release(current);
+        }
+
+        // the browser is reset first, so the next holder of the pair starts clean
+        AccountLease account = accountLease.get();
+        if (account != null) {
+            accountLease.remove();
+            System.out.println("Released " + account + " after " + account.getHeldMillis() + "ms");
+            getAccountPool().release(account);
+        }
+    }
+
+    /**
+     * Prints the test's most expensive locators and scripts, and those over
+     * locator_budget_ms.
+     */
+    private static void reportLocatorCosts(LocatorProfiler profiler, ITestResult result) {
+        System.out.println("[locators] " + result.getMethod().getMethodName() + " by cumulative in-page time:");
+        profiler.getRanking().stream().limit(10).forEach(row -> System.out.println("[locators]   " + row));
+        profiler.getOverBudget().forEach(line -> System.out.println("[locators] Over budget: " + line));
     }
 }
@@ -0,0 +1,153 @@
+package com.gcloud.base;
+
+import com.gcloud.metrics.TestDurations;
+import org.testng.IAlterSuiteListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ISuiteResult;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Orders work by the durations recorded in previous runs, longest first, and
+ * reports predicted against actual makespan.
+ * <p>
+ * TestNG workers take the next {@code <test>} or method as soon as they are
+ * free, so a longest-first order is greedy LPT bin-packing that still adapts
+ * at run time: a worker held up by a slow test or node simply takes fewer of
+ * the remaining ones. Predictions treat data-driven methods as sequential and
+ * are an upper bound for them.
+ * <p>
+ * Registered in testng.xml; test_order=declared keeps the testng.xml order
+ * but still records and reports.
+ */
+public class DurationScheduler implements IAlterSuiteListener, IMethodInterceptor, ITestListener, ISuiteListener {
+
+    private static final String TEST_PREFIX = "test:";
+
+    private final Map<String, Long> predicted = new ConcurrentHashMap<>();
+
+    static String key(ITestNGMethod method) {
+        return method.getRealClass().getSimpleName() + "." + method.getMethodName();
+    }
+
+    private static boolean isLongestFirst() {
+        return !"declared".equalsIgnoreCase(BaseTest.getConfig("test_order"));
+    }
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        if (!isLongestFirst()) {
+            return;
+        }
+        TestDurations durations = BaseTest.getTestDurations();
+        for (XmlSuite suite : suites) {
+            List<XmlTest> ordered = durations.longestFirst(suite.getTests(), test -> TEST_PREFIX + test.getName());
+            suite.getTests().clear();
+            suite.getTests().addAll(ordered);
+        }
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        TestDurations durations = BaseTest.getTestDurations();
+        List<IMethodInstance> ordered = isLongestFirst()
+                ? durations.longestFirst(methods, m -> key(m.getMethod()))
+                : methods;
+
+        List<Long> predictions = new ArrayList<>();
+        List<String> described = new ArrayList<>();
+        for (IMethodInstance instance : ordered) {
+            String name = key(instance.getMethod());
+            long millis = durations.predict(name);
+            predictions.add(millis);
+            described.add(name + (durations.isKnown(name) ? " " : " ~") + millis + "ms");
+        }
+        int workers = methodWorkers(context.getCurrentXmlTest());
+        long makespan = TestDurations.makespan(predictions, workers);
+        predicted.put(context.getName(), makespan);
+        System.out.println("[schedule] " + context.getName() + " on " + workers + " worker(s), predicted makespan "
+                + makespan + "ms: " + described);
+        return ordered;
+    }
+
+    /**
+     * Workers running the methods of one {@code <test>} at once.
+     */
+    private static int methodWorkers(XmlTest test) {
+        switch (test.getParallel()) {
+            case METHODS:
+            case CLASSES:
+            case INSTANCES:
+                return Math.max(1, test.getThreadCount());
+            default:
+                return 1;
+        }
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        record(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        record(result);
+    }
+
+    private static void record(ITestResult result) {
+        BaseTest.getTestDurations().record(key(result.getMethod()), result.getEndMillis() - result.getStartMillis());
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        long actual = context.getEndDate().getTime() - context.getStartDate().getTime();
+        BaseTest.getTestDurations().record(TEST_PREFIX + context.getName(), actual);
+        System.out.println("[schedule] " + context.getName() + ": " + compare(predicted.get(context.getName()), actual));
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        List<Long> tests = new ArrayList<>();
+        long start = Long.MAX_VALUE;
+        long end = 0;
+        for (XmlTest test : suite.getXmlSuite().getTests()) {
+            tests.add(predicted.getOrDefault(test.getName(), 0L));
+        }
+        for (ISuiteResult result : suite.getResults().values()) {
+            start = Math.min(start, result.getTestContext().getStartDate().getTime());
+            end = Math.max(end, result.getTestContext().getEndDate().getTime());
+        }
+        if (end > 0) {
+            int workers = suite.getXmlSuite().getParallel() == XmlSuite.ParallelMode.TESTS
+                    ? Math.max(1, suite.getXmlSuite().getThreadCount()) : 1;
+            System.out.println("[schedule] Suite " + suite.getName() + " on " + workers + " worker(s): "
+                    + compare(TestDurations.makespan(tests, workers), end - start));
+        }
+        try {
+            BaseTest.getTestDurations().save();
+        } catch (IOException e) {
+            System.out.println("Failed to write test durations: " + e.getMessage());
+        }
+    }
+
+    private static String compare(Long predictedMillis, long actualMillis) {
+        if (predictedMillis == null || predictedMillis == 0) {
+            return "actual makespan " + actualMillis + "ms (no prediction yet)";
+        }
+        long error = Math.round(100.0 * (actualMillis - predictedMillis) / predictedMillis);
+        return String.format("predicted makespan %dms, actual %dms (%+d%%)", predictedMillis, actualMillis, error);
+    }
+}
@@ -0,0 +1,76 @@
+package com.gcloud.base;
+
+import com.gcloud.config.ConfigSchema;
+import com.gcloud.config.ConfigSchema.Type;
+import com.gcloud.config.ConfigSnapshot;
+
+/**
+ * Every key of config.properties and credentials.properties, with its type
+ * and default. A key read by the framework must be listed here; the template
+ * files document them.
+ */
+final class FrameworkConfig {
+
+    static final ConfigSchema SETTINGS = new ConfigSchema()
+            .key(ConfigSnapshot.PROFILE_KEY, Type.STRING, null)
+            // environment
+            .key("base_url", Type.STRING, null)
+            .alias("url", "base_url")
+            .required("base_url", "local_app")
+            .key("local_app", Type.BOOLEAN, "false")
+            .key("browser", Type.STRING, "chrome")
+            .key("headless", Type.BOOLEAN, "false")
+            // timeouts, in seconds
+            .key("implicit_wait", Type.LONG, "2")
+            .key("explicit_wait", Type.LONG, "15")
+            .key("driver_lease_timeout", Type.LONG, "300")
+            .key("account_lease_timeout", Type.LONG, "600")
+            // browsers
+            .choice("execution_mode", "driver_per_thread", "contexts")
+            .key("driver_pool_size", Type.INT, null)
+            .key("driver_max_reuse", Type.INT, "20")
+            .key("driver_offline", Type.BOOLEAN, "false")
+            .key("driver_cache_dir", Type.STRING, null)
+            .key("chromedriver_path", Type.STRING, null)
+            .key("chrome_version", Type.STRING, null)
+            .key("remote_nodes", Type.LIST, null)
+            .key("remote_node_sessions", Type.INT, "2")
+            .key("slow_node_ratio", Type.DOUBLE, "1.5")
+            .choice("test_order", "longest_first", "declared")
+            .key("duration_history_file", Type.STRING, "target/test-durations.json")
+            // sessions and accounts
+            .key("session_replay", Type.BOOLEAN, "true")
+            .key("session_ttl_minutes", Type.LONG, "30")
+            .key("session_cache_dir", Type.STRING, "target/session-cache")
+            .key("assignment_modules", Type.STRING, "Test Assignment")
+            .key("module_reset", Type.BOOLEAN, "false")
+            .key("module_reset_url", Type.STRING, null)
+            .key("development_page_url", Type.STRING, null)
+            .key("flow_max_attempts", Type.INT, "2")
+            // reports and diagnostics
+            .key("step_report_dir", Type.STRING, "target/step-timings")
+            .key("adaptive_waits", Type.BOOLEAN, "true")
+            .key("wait_history_file", Type.STRING, "target/wait-history.json")
+            .key("artifact_capture", Type.BOOLEAN, "true")
+            .key("artifact_dir", Type.STRING, "target/artifacts")
+            .key("artifact_buffer_size", Type.INT, "200")
+            .key("artifact_queue_size", Type.INT, "4")
+            .key("locator_profiler", Type.BOOLEAN, "false")
+            .key("locator_budget_ms", Type.LONG, "0")
+            // network
+            .key("network_layer", Type.BOOLEAN, "false")
+            .key("network_block_patterns", Type.LIST, null)
+            .key("asset_cache_patterns", Type.LIST, null)
+            .key("asset_cache_dir", Type.STRING, "target/asset-cache")
+            .key("asset_cache_max_mb", Type.LONG, "256");
+
+    static final ConfigSchema CREDENTIALS = new ConfigSchema()
+            .key("user_email", Type.STRING, null)
+            .key("user_password", Type.STRING, null)
+            .key("user_org", Type.STRING, null)
+            .key("session_cache_key", Type.STRING, null)
+            .indexed("pool", "user_email", "user_password", "user_org", "modules");
+
+    private FrameworkConfig() {
+    }
+}
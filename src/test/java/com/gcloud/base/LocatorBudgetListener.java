@@ -0,0 +1,33 @@
+package com.gcloud.base;
+
+import com.gcloud.metrics.LocatorProfiler;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+import java.util.List;
+
+/**
+ * Fails a passing test whose locators or scripts exceeded locator_budget_ms
+ * in locator_profiler mode. The verdict has to change right after the test
+ * method: TestNG has settled it by the time {@code @AfterMethod} runs.
+ * <p>
+ * Registered in testng.xml ahead of {@link ArtifactListener}, so a test failed
+ * here still gets its artifacts captured.
+ */
+public class LocatorBudgetListener implements IInvokedMethodListener {
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        LocatorProfiler profiler = LocatorProfiler.current();
+        if (!method.isTestMethod() || profiler == null || !result.isSuccess()) {
+            return;
+        }
+        List<String> overBudget = profiler.getOverBudget();
+        if (!overBudget.isEmpty()) {
+            result.setStatus(ITestResult.FAILURE);
+            result.setThrowable(new AssertionError(overBudget.size() + " locator(s) or script(s) over the "
+                    + "locator_budget_ms budget, first: " + overBudget.get(0)));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.gcloud.bench;
+
+import com.gcloud.metrics.CommandCounter;
+import com.gcloud.metrics.LatencyHistogram;
+import org.openqa.selenium.json.Json;
+import org.testng.SkipException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs benchmark scenarios, records latency distributions and WebDriver
+ * commands per operation, and compares them with a stored baseline.
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>{@code bench.iterations} / {@code bench.warmup}: operations per scenario (default 50 / 5)</li>
+ * <li>{@code bench.baseline}: checked-in baseline file (default src/test/benchmarks/baseline.json)</li>
+ * <li>{@code bench.results}: where this run's results go (default target/benchmarks/results.json)</li>
+ * <li>{@code bench.tolerance}: allowed p50 slow-down before failing (default 0.25 = 25%)</li>
+ * <li>{@code bench.updateBaseline}: write this run's results as the new baseline</li>
+ * </ul>
+ * Only {@code bench.updateBaseline} writes the baseline; without one the
+ * comparison is skipped.
+ */
+public class BenchmarkRunner {
+
+    private final CommandCounter counter;
+    private final int warmup = Integer.getInteger("bench.warmup", 5);
+    private final int iterations = Integer.getInteger("bench.iterations", 50);
+    private final Path baselineFile = Path.of(System.getProperty("bench.baseline", "src/test/benchmarks/baseline.json"));
+    private final Path resultsFile = Path.of(System.getProperty("bench.results", "target/benchmarks/results.json"));
+    private final double tolerance = Double.parseDouble(System.getProperty("bench.tolerance", "0.25"));
+    private final Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+
+    public BenchmarkRunner(CommandCounter counter) {
+        this.counter = counter;
+    }
+
+    /**
+     * Runs {@code operation} after {@code warmup} unmeasured runs; {@code setup}
+     * runs before every operation and is not measured.
+     */
+    public void run(String scenario, Runnable setup, Runnable operation) {
+        for (int i = 0; i < warmup; i++) {
+            setup.run();
+            operation.run();
+        }
+
+        LatencyHistogram micros = new LatencyHistogram();
+        long commands = 0;
+        for (int i = 0; i < iterations; i++) {
+            setup.run();
+            long before = counter.getTotal();
+            long start = System.nanoTime();
+            operation.run();
+            micros.record((System.nanoTime() - start) / 1_000);
+            commands += counter.getTotal() - before;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("iterations", iterations);
+        result.put("p50Micros", micros.percentile(50));
+        result.put("p95Micros", micros.percentile(95));
+        result.put("p99Micros", micros.percentile(99));
+        result.put("maxMicros", micros.percentile(100));
+        result.put("commandsPerOp", (double) commands / iterations);
+        results.put(scenario, result);
+        System.out.printf("[bench] %-28s p50=%dus p95=%dus p99=%dus commands/op=%.1f%n", scenario,
+                micros.percentile(50), micros.percentile(95), micros.percentile(99), (double) commands / iterations);
+    }
+
+    /**
+     * Writes this run's results and returns one message per regression against
+     * the baseline; an empty list means no regressions.
+     *
+     * @throws SkipException if there is no baseline to compare with
+     */
+    public List<String> finish() throws IOException {
+        Json json = new Json();
+        Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+        Files.writeString(resultsFile, json.toJson(results), StandardCharsets.UTF_8);
+
+        List<String> regressions = new ArrayList<>();
+        System.out.println("[bench] Results written to " + resultsFile);
+        if (Boolean.getBoolean("bench.updateBaseline")) {
+            Files.createDirectories(baselineFile.toAbsolutePath().getParent());
+            Files.writeString(baselineFile, json.toJson(results), StandardCharsets.UTF_8);
+            System.out.println("[bench] Baseline written to " + baselineFile + "; commit it to compare later runs");
+            return regressions;
+        }
+        if (!Files.exists(baselineFile)) {
+            throw new SkipException("No benchmark baseline at " + baselineFile
+                    + "; nothing to compare with. Run with -Dbench.updateBaseline=true and commit the file.");
+        }
+
+        Map<String, Object> baseline = json.toType(Files.readString(baselineFile, StandardCharsets.UTF_8), Json.MAP_TYPE);
+        results.forEach((scenario, current) -> {
+            Map<?, ?> base = (Map<?, ?>) baseline.get(scenario);
+            if (base == null) {
+                System.out.println("[bench] " + scenario + " is not in the baseline; not compared");
+                return;
+            }
+            double baseP50 = ((Number) base.get("p50Micros")).doubleValue();
+            double p50 = ((Number) current.get("p50Micros")).doubleValue();
+            if (p50 > baseP50 * (1 + tolerance)) {
+                regressions.add(String.format("%s p50 %.0fus exceeds baseline %.0fus by more than %.0f%%",
+                        scenario, p50, baseP50, tolerance * 100));
+            }
+            double baseCommands = ((Number) base.get("commandsPerOp")).doubleValue();
+            double commands = ((Number) current.get("commandsPerOp")).doubleValue();
+            if (commands > baseCommands) {
+                regressions.add(String.format("%s sends %.1f commands/op, baseline %.1f",
+                        scenario, commands, baseCommands));
+            }
+        });
+        return regressions;
+    }
+}
@@ -0,0 +1,127 @@
+package com.gcloud.bench;
+
+import com.gcloud.driver.DriverFactory;
+import com.gcloud.fixtures.LocalAppServer;
+import com.gcloud.helpers.AdaptiveWait;
+import com.gcloud.helpers.FrameContext;
+import com.gcloud.helpers.ProgressTracker;
+import com.gcloud.helpers.UIHelpers;
+import com.gcloud.metrics.CommandCounter;
+import com.gcloud.metrics.StepTimer;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Micro-benchmarks for the framework's hot paths against the synthetic pages in
+ * {@code fixtures/bench}. Each scenario reports latency percentiles and
+ * WebDriver commands per operation; {@link #compareWithBaseline()} fails the
+ * run when a scenario regresses against the stored baseline.
+ * Run with: mvn -Pbenchmark test
+ */
+public class FrameworkBenchmark {
+
+    private LocalAppServer server;
+    private WebDriver rawDriver;
+    private WebDriver driver;
+    private CommandCounter counter;
+    private UIHelpers ui;
+    private BenchmarkRunner runner;
+
+    @BeforeClass
+    public void setUp() {
+        server = LocalAppServer.start();
+        rawDriver = new DriverFactory("chrome", true).create();
+        counter = new CommandCounter();
+        driver = new EventFiringDecorator<>(counter).decorate(rawDriver);
+        ui = new UIHelpers(driver, 10);
+        runner = new BenchmarkRunner(counter);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        StepTimer.clear();
+        if (rawDriver != null) {
+            rawDriver.quit();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void safeClick() {
+        open("click.html");
+        By target = By.id("target");
+        runner.run("safeClick", () -> { }, () -> ui.safeClick(target));
+    }
+
+    @Test
+    public void getProgressPercentage() {
+        open("progress.html");
+        By label = By.xpath("//span[contains(text(),'% complete')]");
+        runner.run("getProgressPercentage", () -> { },
+                () -> Assert.assertEquals(ui.getProgressPercentage(label), 42));
+
+        ProgressTracker tracker = new ProgressTracker(driver);
+        runner.run("ProgressTracker.current", () -> { },
+                () -> Assert.assertEquals(tracker.current(), 42));
+    }
+
+    @Test
+    public void clickShadowDomButton() {
+        open("shadow.html");
+        runner.run("clickShadowDomButton", () -> { }, () -> ui.clickShadowDomButton("Deep Button"));
+    }
+
+    @Test
+    public void scrollToBottom() {
+        open("scroll.html");
+        runner.run("scrollToBottom",
+                () -> ((JavascriptExecutor) rawDriver).executeScript(
+                        "document.querySelectorAll('.scroller').forEach(el => el.scrollTop = 0); window.scrollTo(0, 0);"),
+                () -> ui.scrollToBottom());
+    }
+
+    @Test
+    public void switchFrames() {
+        open("frames.html");
+        runner.run("switchFrames", () -> { }, () -> {
+            driver.switchTo().frame("outer");
+            driver.switchTo().frame("inner");
+            driver.switchTo().defaultContent();
+        });
+    }
+
+    /**
+     * The same round trip through FrameContext: frame elements come from its
+     * cache and the switch back to the top-level document is tracked.
+     */
+    @Test
+    public void switchFramesCached() {
+        open("frames.html");
+        FrameContext frames = new FrameContext(driver, new AdaptiveWait(driver, Duration.ofSeconds(10)));
+        frames.top();
+        runner.run("switchFramesCached", () -> { }, () -> frames.runIn(() -> { }, By.id("outer"), By.id("inner")));
+        System.out.println("[bench] switchFramesCached " + frames);
+    }
+
+    @Test(priority = 1)
+    public void compareWithBaseline() throws IOException {
+        List<String> regressions = runner.finish();
+        Assert.assertTrue(regressions.isEmpty(), "Benchmark regressions:\n" + String.join("\n", regressions));
+    }
+
+    private void open(String page) {
+        rawDriver.get(server.getBaseUrl() + "bench/" + page);
+    }
+}
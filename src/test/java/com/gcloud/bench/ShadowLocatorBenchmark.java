@@ -0,0 +1,105 @@
+package com.gcloud.bench;
+
+import com.gcloud.driver.DriverFactory;
+import com.gcloud.helpers.ShadowBy;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * Compares {@link ShadowBy} with the full-tree walk that clickShadowDomButton
+ * used to rebuild for every lookup, on a synthetic page with many nested
+ * shadow roots. Run with: mvn -Dtest=ShadowLocatorBenchmark -Dsurefire.suiteXmlFiles= test
+ */
+public class ShadowLocatorBenchmark {
+
+    private static final int HOSTS = 400;
+    private static final int DEPTH = 4;
+    private static final int CHILDREN_PER_ROOT = 25;
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 100;
+
+    private WebDriver driver;
+
+    @BeforeClass
+    public void setUp() {
+        driver = new DriverFactory("chrome", true).create();
+        driver.get("about:blank");
+        ((JavascriptExecutor) driver).executeScript(
+                "const [hosts, depth, children] = arguments;"
+                        + "for (let h = 0; h < hosts; h++) {"
+                        + "  let parent = document.body;"
+                        + "  for (let d = 0; d < depth; d++) {"
+                        + "    const host = document.createElement('div');"
+                        + "    const root = host.attachShadow({mode: 'open'});"
+                        + "    for (let c = 0; c < children; c++) root.appendChild(document.createElement('span'));"
+                        + "    (parent.shadowRoot || parent).appendChild(host);"
+                        + "    parent = host;"
+                        + "  }"
+                        + "}"
+                        + "const last = document.body.lastElementChild;"
+                        + "let deepest = last; while (deepest.shadowRoot && deepest.shadowRoot.lastElementChild.shadowRoot)"
+                        + "  deepest = deepest.shadowRoot.lastElementChild;"
+                        + "const button = document.createElement('gux-button');"
+                        + "button.textContent = 'Start Module';"
+                        + "deepest.shadowRoot.appendChild(button);",
+                HOSTS, DEPTH, CHILDREN_PER_ROOT);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        if (driver != null) {
+            driver.quit();
+        }
+    }
+
+    @Test
+    public void compareShadowByWithFullTreeWalk() {
+        long[] legacy = measure(() -> {
+            Object found = ((JavascriptExecutor) driver).executeScript(
+                    "function find(root) {" +
+                            "const b = Array.from(root.querySelectorAll('gux-button, button')).find(el => el.textContent.includes('"
+                            + "Start Module" + "'));" +
+                            "if(b){ return true; }" +
+                            "const srs = Array.from(root.querySelectorAll('*')).map(e => e.shadowRoot).filter(r=>r);" +
+                            "for(const sr of srs){ if(find(sr)) return true; } return false;" +
+                            "} return find(document);");
+            Assert.assertEquals(found, Boolean.TRUE);
+        });
+
+        By locator = ShadowBy.textContains("gux-button, button", "Start Module");
+        long[] shadowBy = measure(() -> Assert.assertNotNull(driver.findElement(locator)));
+
+        report("full-tree walk", legacy);
+        report("ShadowBy", shadowBy);
+        System.out.printf("ShadowBy median speed-up: %.2fx%n", (double) legacy[legacy.length / 2] / shadowBy[shadowBy.length / 2]);
+    }
+
+    private long[] measure(Runnable lookup) {
+        for (int i = 0; i < WARMUP; i++) {
+            lookup.run();
+        }
+        long[] micros = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            lookup.run();
+            micros[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    private static void report(String name, long[] sortedMicros) {
+        System.out.printf("%-16s p50=%dus p95=%dus p99=%dus (%d iterations)%n", name,
+                sortedMicros[sortedMicros.length / 2],
+                sortedMicros[(int) (sortedMicros.length * 0.95)],
+                sortedMicros[(int) (sortedMicros.length * 0.99)],
+                sortedMicros.length);
+    }
+}
@@ -0,0 +1,158 @@
+package com.gcloud.fixtures;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embeddable HTTP server that serves the fixture pages under
+ * {@code src/test/resources/fixtures}. The fixtures mimic the login pages,
+ * navigation menu, analytics iframe, assessment-builder iframe, gux-* custom
+ * elements and progress bar the page objects depend on, so the whole
+ * assignment flow can run hermetically against {@code local_app=true}.
+ */
+public class LocalAppServer implements AutoCloseable {
+
+    /**
+     * Stub of the module reset API: {@code POST /api/modules/<name>/reset},
+     * authenticated by the fixture session cookie.
+     */
+    public static final String RESET_PATH = "/api/modules/";
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "html", "text/html; charset=utf-8",
+            "js", "application/javascript; charset=utf-8",
+            "css", "text/css; charset=utf-8",
+            "json", "application/json; charset=utf-8");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, byte[]> resources = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> resets = new ConcurrentHashMap<>();
+
+    private LocalAppServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts the server on a free loopback port.
+     */
+    public static LocalAppServer start() {
+        return start(0);
+    }
+
+    public static LocalAppServer start(int port) {
+        try {
+            HttpServer http = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+            ExecutorService executor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "local-app-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+            LocalAppServer app = new LocalAppServer(http, executor);
+            http.createContext("/", app::serveFixture);
+            http.createContext(RESET_PATH, app::resetModule);
+            http.setExecutor(executor);
+            http.start();
+            return app;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start local app server", e);
+        }
+    }
+
+    /**
+     * Registers an extra endpoint, e.g. a stub API used by a test.
+     */
+    public LocalAppServer handle(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+        return this;
+    }
+
+    /**
+     * How many times the module was reset through the stub API or the fixture
+     * Development Page.
+     */
+    public int getResetCount(String module) {
+        AtomicInteger count = resets.get(module);
+        return count == null ? 0 : count.get();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void serveFixture(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/")) {
+            path = "/index.html";
+        }
+        byte[] body = path.contains("..") ? null : resources.computeIfAbsent(path, LocalAppServer::load);
+        if (body == null || body.length == 0) {
+            send(exchange, 404, "text/plain", ("No fixture at " + path).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String extension = path.substring(path.lastIndexOf('.') + 1);
+        // assets under /static/ behave like fingerprinted bundles and may be cached forever
+        send(exchange, 200, CONTENT_TYPES.getOrDefault(extension, "application/octet-stream"), body,
+                path.startsWith("/static/") ? "public, max-age=31536000, immutable" : "no-store");
+    }
+
+    private void resetModule(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (!"POST".equals(exchange.getRequestMethod()) || !path.endsWith("/reset")) {
+            send(exchange, 404, "text/plain", new byte[0]);
+            return;
+        }
+        String cookies = String.join(";", exchange.getRequestHeaders().getOrDefault("Cookie", List.of()));
+        if (!cookies.contains("fixture_session=")) {
+            send(exchange, 401, "text/plain", new byte[0]);
+            return;
+        }
+        String module = URLDecoder.decode(path.substring(RESET_PATH.length(), path.length() - "/reset".length()),
+                StandardCharsets.UTF_8);
+        resets.computeIfAbsent(module, k -> new AtomicInteger()).incrementAndGet();
+        send(exchange, 204, "text/plain", new byte[0]);
+    }
+
+    private static byte[] load(String path) {
+        try (InputStream in = LocalAppServer.class.getResourceAsStream("/fixtures" + path)) {
+            return in == null ? new byte[0] : in.readAllBytes();
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+
+    public static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        send(exchange, status, contentType, body, "no-store");
+    }
+
+    public static void send(HttpExchange exchange, int status, String contentType, byte[] body, String cacheControl)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
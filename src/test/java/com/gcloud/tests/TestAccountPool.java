@@ -0,0 +1,61 @@
+package com.gcloud.tests;
+
+import com.gcloud.session.AccountLease;
+import com.gcloud.session.AccountPool;
+import com.gcloud.session.TestAccount;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class TestAccountPool {
+
+        private final TestAccount first = new TestAccount("a@example.com", "secret", "org", "Test Assignment");
+        private final TestAccount second = new TestAccount("a@example.com", "secret", "org", "Test Assignment 2");
+
+        @Test
+        public void testPairsAreLeasedExclusively() {
+                AccountPool pool = new AccountPool(List.of(first, second));
+
+                AccountLease one = pool.acquire(Duration.ofSeconds(1));
+                AccountLease two = pool.acquire(Duration.ofSeconds(1));
+
+                Assert.assertNotEquals(one.getAccount(), two.getAccount());
+                Assert.assertTrue(pool.getFree().isEmpty());
+                Assert.assertThrows(RuntimeException.class, () -> pool.acquire(Duration.ofMillis(50)));
+
+                pool.release(one);
+                Assert.assertEquals(pool.getFree(), List.of(one.getAccount()));
+        }
+
+        @Test
+        public void testAcquireBlocksUntilThePairIsReleased() throws Exception {
+                AccountPool pool = new AccountPool(List.of(first, second));
+                AccountLease held = pool.acquire(first, Duration.ofSeconds(1));
+
+                CompletableFuture<AccountLease> waiter = CompletableFuture.supplyAsync(
+                                () -> pool.acquire(first, Duration.ofSeconds(5)));
+                Thread.sleep(100);
+                Assert.assertFalse(waiter.isDone(), "the pair is still leased");
+
+                pool.release(held);
+                AccountLease next = waiter.get(5, TimeUnit.SECONDS);
+                Assert.assertEquals(next.getAccount(), first);
+                Assert.assertTrue(next.getWaitMillis() >= 90, "waited " + next.getWaitMillis() + "ms");
+
+                Map<String, Object> stats = pool.getStats();
+                Assert.assertEquals(stats.get("leases"), 2);
+                Assert.assertEquals(stats.get("contended"), 1);
+                Assert.assertEquals(stats.get("maxInUse"), 1);
+        }
+
+        @Test
+        public void testPasswordIsNeverPrinted() {
+                Assert.assertFalse(first.toString().contains("secret"));
+                Assert.assertFalse(new AccountPool(List.of(first)).acquire(Duration.ofSeconds(1)).toString().contains("secret"));
+        }
+}
@@ -0,0 +1,144 @@
+package com.gcloud.tests;
+
+import com.gcloud.helpers.AdaptiveWait;
+import com.gcloud.helpers.PollSchedule;
+import com.gcloud.metrics.WaitHistory;
+import org.openqa.selenium.TimeoutException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestAdaptiveWait {
+
+        @Test
+        public void testScheduleTightensAroundTheUsualDurationAndBacksOffAfter() {
+                PollSchedule schedule = PollSchedule.around(1_000, 1_400);
+                Assert.assertEquals(schedule.nextDelayMillis(0), 700, "one jump to 70% of p50");
+                Assert.assertEquals(schedule.nextDelayMillis(800), 25);
+                Assert.assertEquals(schedule.nextDelayMillis(1_400), 25);
+                Assert.assertEquals(schedule.nextDelayMillis(1_800), 200);
+                Assert.assertEquals(schedule.nextDelayMillis(10_000), 1_000);
+
+                Assert.assertEquals(PollSchedule.cold().nextDelayMillis(0), 50);
+                Assert.assertEquals(PollSchedule.cold().nextDelayMillis(10_000), 500);
+                Assert.assertEquals(PollSchedule.fixed(500).nextDelayMillis(0), 500);
+        }
+
+        @Test
+        public void testTimeoutIsDerivedFromP99OnceHistoryIsLongEnough() {
+                WaitHistory history = new WaitHistory(null, true);
+                Duration ceiling = Duration.ofSeconds(20);
+                for (int i = 0; i < WaitHistory.MIN_SAMPLES - 1; i++) {
+                        history.record("menu open", 1_000, 3, true);
+                }
+                Assert.assertEquals(history.timeoutFor("menu open", ceiling), ceiling, "too little history");
+
+                history.record("menu open", 1_500, 3, true);
+                history.record("menu open", 60_000, 3, false);
+                Assert.assertEquals(history.timeoutFor("menu open", ceiling), Duration.ofMillis(4_500),
+                                "3 x p99 of resolved waits; the timeout is not a sample");
+                Assert.assertEquals(new WaitHistory(null, false).timeoutFor("menu open", ceiling), ceiling);
+
+                for (int i = 0; i < WaitHistory.MIN_SAMPLES; i++) {
+                        history.record("quick", 10, 1, true);
+                }
+                Assert.assertEquals(history.timeoutFor("quick", ceiling), Duration.ofSeconds(2), "floor");
+        }
+
+        @Test
+        public void testWaitResolvesAndRecordsItsPolls() {
+                WaitHistory history = new WaitHistory(null, true);
+                AtomicInteger calls = new AtomicInteger();
+                String value = new AdaptiveWait(null, Duration.ofSeconds(5), history)
+                                .until("third poll", d -> calls.incrementAndGet() >= 3 ? "done" : null);
+
+                Assert.assertEquals(value, "done");
+                Map<String, Object> row = history.getDominantWaits().get(0);
+                Assert.assertEquals(row.get("name"), "third poll");
+                Assert.assertEquals(row.get("pollsPerWait"), 3.0);
+                Assert.assertEquals(history.getSampleCount("third poll"), 1);
+        }
+
+        @Test
+        public void testWaitTimesOutWithItsName() {
+                WaitHistory history = new WaitHistory(null, true);
+                TimeoutException e = Assert.expectThrows(TimeoutException.class,
+                                () -> new AdaptiveWait(null, Duration.ofMillis(200), history).until("never", d -> false));
+                Assert.assertTrue(e.getMessage().contains("waiting for never"), e.getMessage());
+                Assert.assertEquals(history.getSampleCount("never"), 0);
+                Assert.assertEquals(history.getDominantWaits().get(0).get("timeouts"), 1L);
+        }
+
+        @Test
+        public void testHistoryPersistsAndRanksWaitsByTotalTime() throws Exception {
+                Path file = Files.createTempDirectory("wait-history").resolve("waits.json");
+                WaitHistory first = new WaitHistory(file, true);
+                for (int i = 0; i < WaitHistory.MIN_SAMPLES; i++) {
+                        first.record("login", 400, 2, true);
+                        first.record("results", 1_200, 5, true);
+                }
+                first.record("results", 20_000, 30, false);
+
+                List<Map<String, Object>> ranked = first.getDominantWaits();
+                Assert.assertEquals(ranked.get(0).get("name"), "results");
+                Assert.assertEquals(ranked.get(1).get("name"), "login");
+                first.save();
+
+                WaitHistory second = new WaitHistory(file, true);
+                Assert.assertEquals(second.getSampleCount("results"), WaitHistory.MIN_SAMPLES);
+                Assert.assertEquals(second.percentile("login", 50), 400);
+                Assert.assertTrue(second.getDominantWaits().isEmpty(), "a new run starts without run totals");
+                Assert.assertTrue(Files.readString(file).contains("\"timeouts\": 1"), Files.readString(file));
+        }
+
+        @Test
+        public void testDerivedTimeoutFailsTheWaitAndRaisesTheNextOne() {
+                WaitHistory history = new WaitHistory(null, true);
+                for (int i = 0; i < WaitHistory.MIN_SAMPLES; i++) {
+                        history.record("slow app", 10, 1, true);
+                }
+                Duration ceiling = Duration.ofSeconds(10);
+                Assert.assertEquals(history.timeoutFor("slow app", ceiling), Duration.ofSeconds(2));
+
+                long start = System.nanoTime();
+                TimeoutException e = Assert.expectThrows(TimeoutException.class,
+                                () -> new AdaptiveWait(null, ceiling, history).until("slow app", d -> false));
+                long millis = (System.nanoTime() - start) / 1_000_000;
+
+                Assert.assertTrue(millis < 3_000, "failed after " + millis + "ms instead of the derived 2s");
+                Assert.assertTrue(e.getMessage().contains("derived from history, ceiling 10000 ms"), e.getMessage());
+                Map<String, Object> row = history.getDominantWaits().get(0);
+                Assert.assertEquals(row.get("timeouts"), 1L);
+                Assert.assertEquals(row.get("derivedTimeouts"), 1L);
+                Assert.assertEquals(history.getSampleCount("slow app"), WaitHistory.MIN_SAMPLES + 1,
+                                "a wait cut off by its derived timeout took at least that long");
+                long next = history.timeoutFor("slow app", ceiling).toMillis();
+                Assert.assertTrue(next >= 6_000 && next < ceiling.toMillis(), "next derived timeout " + next + "ms");
+        }
+
+        @Test
+        public void testHistoriesAreKeptPerEnvironment() throws Exception {
+                Path file = Files.createTempDirectory("wait-history").resolve("waits.json");
+                WaitHistory local = new WaitHistory(file, "local_app", true);
+                for (int i = 0; i < WaitHistory.MIN_SAMPLES; i++) {
+                        local.record("results", 50, 1, true);
+                }
+                local.save();
+
+                WaitHistory real = new WaitHistory(file, "https://app.example.test", true);
+                Assert.assertEquals(real.getSampleCount("results"), 0, "fast local runs do not shorten real timeouts");
+                for (int i = 0; i < WaitHistory.MIN_SAMPLES; i++) {
+                        real.record("results", 4_000, 1, true);
+                }
+                real.save();
+
+                Assert.assertEquals(new WaitHistory(file, "local_app", true).percentile("results", 50), 50);
+                Assert.assertEquals(new WaitHistory(file, "https://app.example.test", true).percentile("results", 50), 4_000);
+        }
+}
@@ -0,0 +1,93 @@
+package com.gcloud.tests;
+
+import com.gcloud.artifacts.ArtifactCapture;
+import com.gcloud.artifacts.FlightRecorder;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.json.Json;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+public class TestArtifactCapture {
+
+        @Test
+        public void testRecorderKeepsTheLastEntriesAndMasksTypedText() throws Exception {
+                FlightRecorder recorder = new FlightRecorder(3);
+                recorder.beforeAnyCall(null, WebDriver.class.getMethod("get", String.class), new Object[] { "https://example.test/login" });
+                recorder.beforeAnyCall(null, WebDriver.class.getMethod("findElement", By.class), new Object[] { By.id("password") });
+                recorder.beforeAnyCall(null, WebElement.class.getMethod("sendKeys", CharSequence[].class),
+                                new Object[] { new CharSequence[] { "hunter2" } });
+                recorder.add("stage", "login");
+
+                List<Map<String, Object>> entries = recorder.snapshot();
+                Assert.assertEquals(recorder.getRecorded(), 4);
+                Assert.assertEquals(entries.size(), 3, "the oldest entry is dropped");
+                Assert.assertEquals(entries.get(0).get("detail"), "findElement(By.id: password)");
+                Assert.assertEquals(entries.get(1).get("detail"), "sendKeys(7 chars)");
+                Assert.assertEquals(entries.get(2).get("kind"), "stage");
+                Assert.assertTrue(recorder.getOverheadNanos() > 0);
+        }
+
+        @Test
+        public void testNotesAreDroppedWithoutARecorder() {
+                FlightRecorder.end();
+                FlightRecorder.note("stage", "ignored");
+                Assert.assertNull(FlightRecorder.current());
+
+                FlightRecorder recorder = FlightRecorder.begin(10);
+                try {
+                        FlightRecorder.note("progress", "0% -> 50%");
+                        Assert.assertEquals(recorder.snapshot().get(0).get("detail"), "0% -> 50%");
+                } finally {
+                        FlightRecorder.end();
+                }
+        }
+
+        @Test
+        public void testCapturesAreWrittenInTheBackground() throws IOException {
+                Path directory = Files.createTempDirectory("artifacts");
+                ArtifactCapture capture = new ArtifactCapture(directory, 1);
+                FlightRecorder recorder = new FlightRecorder(10);
+                recorder.add("stage", "submit");
+
+                for (int i = 0; i < 5; i++) {
+                        capture.capture("TestFlow.testSubmit", null, recorder, new AssertionError("boom " + i));
+                }
+                capture.shutdown(Duration.ofSeconds(10));
+
+                List<Path> written;
+                try (Stream<Path> dirs = Files.list(directory)) {
+                        written = dirs.collect(Collectors.toList());
+                }
+                Assert.assertEquals(written.size(), 5, "distinct directories for captures of the same test");
+                Map<?, ?> summary = new Json().toType(gunzip(written.get(0).resolve("summary.json.gz")), Json.MAP_TYPE);
+                Assert.assertEquals(summary.get("test"), "TestFlow.testSubmit");
+                Assert.assertTrue(String.valueOf(summary.get("failure")).contains("boom"));
+                Assert.assertEquals(((List<?>) summary.get("actions")).size(), 1);
+                Assert.assertTrue(Files.exists(written.get(0).resolve("console.log.gz")));
+
+                Map<String, Long> stats = capture.getStats();
+                Assert.assertEquals(stats.get("captures"), Long.valueOf(5));
+                Assert.assertEquals(stats.get("writeFailures"), Long.valueOf(0));
+                Assert.assertTrue(stats.get("bytesWritten") > 0);
+        }
+
+        private static String gunzip(Path file) throws IOException {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+        }
+}
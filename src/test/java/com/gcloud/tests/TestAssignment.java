@@ -1,30 +1,49 @@
 package com.gcloud.tests;
 
 import com.gcloud.base.BaseTest;
+import com.gcloud.helpers.StagedFlow;
 import com.gcloud.pages.AssignmentPage;
 import com.gcloud.pages.LoginPage;
+import com.gcloud.session.TestAccount;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 public class TestAssignment extends BaseTest {
 
-        @Test
-        public void testAssignmentEndToEndFlow() {
+        /**
+         * One invocation per (account, module) pair in the pool; each invocation
+         * leases its pair in BaseTest, so parallel invocations never share one.
+         */
+        @DataProvider(name = "accountPairs", parallel = true)
+        public Object[][] accountPairs() {
+                // the suite already failed with the problems; no pairs to build
+                if (!BaseTest.isConfigValid()) {
+                        return new Object[0][];
+                }
+                return BaseTest.getAccountPool().getAccounts().stream()
+                                .map(account -> new Object[] { account })
+                                .toArray(Object[][]::new);
+        }
+
+        @Test(dataProvider = "accountPairs")
+        public void testAssignmentEndToEndFlow(TestAccount account) {
 
                 LoginPage loginPage = new LoginPage(BaseTest.getDriver());
-                AssignmentPage assignmentPage = new AssignmentPage(BaseTest.getDriver());
-                // Perform login and navigate to assignment
-                loginPage.login(
-                                BaseTest.getCredential("user_email"),
-                                BaseTest.getCredential("user_password"),
-                                BaseTest.getCredential("user_org"));
+                int maxAttempts = BaseTest.getSettings().getInt("flow_max_attempts");
+                AssignmentPage assignmentPage = new AssignmentPage(BaseTest.getDriver(), maxAttempts);
+                // Perform login (or replay a cached session) and navigate to assignment
+                BaseTest.login(account.getUser(), account.getPassword(), account.getOrganization());
 
                 // Verify dashboard loaded
                 loginPage.verifyLandingPageLoaded();
 
                 // Navigate to Assignment
-                assignmentPage.navigateToAssignment();
+                assignmentPage.navigateToAssignment(account.getModule());
 
-                // Complete assignment and verify progress
-                assignmentPage.completeAssignmentFlow();
+                // Complete assignment and verify progress; failed stages resume where they left off
+                StagedFlow.Result flow = assignmentPage.completeAssignmentFlow();
+                System.out.println("Assignment flow finished in " + flow.getAttempts() + " attempt(s), "
+                                + flow.getSavedMillis() + "ms saved by resuming.");
+                System.out.println("[frames] " + assignmentPage.getFrameContext());
         }
 }
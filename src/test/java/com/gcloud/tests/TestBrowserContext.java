@@ -0,0 +1,138 @@
+package com.gcloud.tests;
+
+import com.gcloud.driver.BrowserContext;
+import com.gcloud.driver.BrowserContextHost;
+import com.gcloud.helpers.DomWaits;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestBrowserContext {
+
+        private static WebDriver fakeBrowser() {
+                return fakeBrowser(new ArrayList<>(), 0);
+        }
+
+        /**
+         * A Chrome without a browser: contexts and windows are numbered, and an
+         * async script blocks the session for its whole timeout, like a wait
+         * that never resolves. A page stays loading for {@code loadMillis} after
+         * {@code get}, and implicit waits sent to the session are recorded.
+         */
+        private static WebDriver fakeBrowser(List<Object> implicitWaits, long loadMillis) {
+                AtomicInteger ids = new AtomicInteger();
+                AtomicLong loadedAt = new AtomicLong();
+                Object[] self = new Object[1];
+                WebDriver.TargetLocator locator = (WebDriver.TargetLocator) Proxy.newProxyInstance(
+                                TestBrowserContext.class.getClassLoader(), new Class<?>[] { WebDriver.TargetLocator.class },
+                                (proxy, method, args) -> self[0]);
+                Object[] timeouts = new Object[1];
+                timeouts[0] = Proxy.newProxyInstance(TestBrowserContext.class.getClassLoader(),
+                                new Class<?>[] { WebDriver.Timeouts.class }, (proxy, method, args) -> {
+                                        if (method.getName().equals("implicitlyWait")) {
+                                                implicitWaits.add(args[0]);
+                                        }
+                                        return timeouts[0];
+                                });
+                WebDriver.Options options = (WebDriver.Options) Proxy.newProxyInstance(TestBrowserContext.class.getClassLoader(),
+                                new Class<?>[] { WebDriver.Options.class }, (proxy, method, args) -> timeouts[0]);
+                self[0] = Proxy.newProxyInstance(TestBrowserContext.class.getClassLoader(),
+                                new Class<?>[] { WebDriver.class, JavascriptExecutor.class, HasCdp.class }, (proxy, method, args) -> {
+                                        switch (method.getName()) {
+                                                case "getWindowHandle":
+                                                        return "anchor";
+                                                case "switchTo":
+                                                        return locator;
+                                                case "manage":
+                                                        return options;
+                                                case "get":
+                                                        loadedAt.set(System.nanoTime() + loadMillis * 1_000_000);
+                                                        return null;
+                                                case "executeScript":
+                                                        return System.nanoTime() < loadedAt.get() ? "interactive" : "complete";
+                                                case "executeCdpCommand":
+                                                        return Map.of("browserContextId", "context-" + ids.incrementAndGet(),
+                                                                        "targetId", "window-" + ids.incrementAndGet());
+                                                case "executeAsyncScript":
+                                                        Thread.sleep(((Number) ((Object[]) args[1])[1]).longValue());
+                                                        return Map.of("ok", false);
+                                                case "getTitle":
+                                                        return "fixture";
+                                                case "hashCode":
+                                                        return System.identityHashCode(proxy);
+                                                case "equals":
+                                                        return proxy == args[0];
+                                                default:
+                                                        return null;
+                                        }
+                                });
+                return (WebDriver) self[0];
+        }
+
+        @Test
+        public void testWaitsInOneContextDoNotBlockAnother() throws Exception {
+                BrowserContextHost host = new BrowserContextHost(TestBrowserContext::fakeBrowser);
+                BrowserContext waiting = host.open();
+                BrowserContext working = host.open();
+                Assert.assertTrue(BrowserContextHost.isShared(waiting.getDriver()));
+                Assert.assertFalse(BrowserContextHost.isShared(fakeBrowser()));
+
+                CompletableFuture<Void> wait = CompletableFuture.runAsync(() -> Assert.assertThrows(TimeoutException.class,
+                                () -> new DomWaits(waiting.getDriver()).until("never resolves", "return false;",
+                                                Duration.ofSeconds(3), Map.of())));
+                Thread.sleep(300);
+
+                long slowest = 0;
+                for (int i = 0; i < 10; i++) {
+                        long start = System.nanoTime();
+                        working.getDriver().getTitle();
+                        slowest = Math.max(slowest, (System.nanoTime() - start) / 1_000_000);
+                }
+                wait.get();
+                host.shutdown();
+
+                System.out.println("[footprint] slowest command beside a 3s wait in another context: " + slowest + "ms");
+                Assert.assertTrue(slowest < 1000, "a command waited " + slowest + "ms for another context's wait");
+        }
+
+        @Test
+        public void testPageLoadsAndImplicitWaitsDoNotBlockAnotherContext() throws Exception {
+                List<Object> implicitWaits = new ArrayList<>();
+                BrowserContextHost host = new BrowserContextHost(() -> fakeBrowser(implicitWaits, 1500));
+                BrowserContext loading = host.open();
+                BrowserContext working = host.open();
+
+                loading.getDriver().manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
+                Assert.assertEquals(implicitWaits, List.of(Duration.ZERO, Duration.ZERO),
+                                "the shared session's implicit wait must stay 0");
+
+                long loadStart = System.nanoTime();
+                CompletableFuture<Void> load = CompletableFuture.runAsync(() -> loading.getDriver().get("https://app.example.test"));
+                Thread.sleep(300);
+
+                long slowest = 0;
+                for (int i = 0; i < 10; i++) {
+                        long start = System.nanoTime();
+                        working.getDriver().getTitle();
+                        slowest = Math.max(slowest, (System.nanoTime() - start) / 1_000_000);
+                }
+                load.get();
+                long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+                host.shutdown();
+
+                Assert.assertTrue(loadMillis >= 1500, "get returned after " + loadMillis + "ms, before the page loaded");
+                Assert.assertTrue(slowest < 500, "a command waited " + slowest + "ms for another context's page load");
+        }
+}
@@ -0,0 +1,99 @@
+package com.gcloud.tests;
+
+import com.gcloud.config.ConfigSchema;
+import com.gcloud.config.ConfigSnapshot;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+public class TestConfigSnapshot {
+
+        private static ConfigSchema schema() {
+                return new ConfigSchema()
+                                .key("base_url", ConfigSchema.Type.STRING, null)
+                                .alias("url", "base_url")
+                                .required("base_url", "local_app")
+                                .key("local_app", ConfigSchema.Type.BOOLEAN, "false")
+                                .key("headless", ConfigSchema.Type.BOOLEAN, "false")
+                                .key("implicit_wait", ConfigSchema.Type.LONG, "2")
+                                .key("driver_pool_size", ConfigSchema.Type.INT, null)
+                                .key("slow_node_ratio", ConfigSchema.Type.DOUBLE, "1.5")
+                                .key("remote_nodes", ConfigSchema.Type.LIST, null)
+                                .choice("execution_mode", "driver_per_thread", "contexts")
+                                .indexed("pool", "user_email", "modules");
+        }
+
+        private static Map<String, Map<String, String>> files(Map<String, String> base, Map<String, String> profile) {
+                Map<String, Map<String, String>> files = new LinkedHashMap<>();
+                files.put("config.properties", base);
+                if (profile != null) {
+                        files.put("config-staging.properties", profile);
+                }
+                return files;
+        }
+
+        @Test
+        public void testLaterSourcesWinAndValuesAreTyped() {
+                ConfigSnapshot config = ConfigSnapshot.resolve(schema(), "staging",
+                                files(Map.of("base_url", "https://dev.example.test", "implicit_wait", "10", "headless", "false"),
+                                                Map.of("base_url", "https://staging.example.test", "remote_nodes", " http://a:4444, ,http://b:4444")),
+                                Map.of("HEADLESS", "true", "IMPLICIT_WAIT", "5"),
+                                Map.of("implicit_wait", "7"));
+
+                Assert.assertTrue(config.getProblems().isEmpty(), config.getProblems().toString());
+                Assert.assertEquals(config.getProfile(), "staging");
+                Assert.assertEquals(config.getString("base_url"), "https://staging.example.test");
+                Assert.assertEquals(config.getSource("base_url"), "config-staging.properties");
+                Assert.assertTrue(config.getBoolean("headless"));
+                Assert.assertEquals(config.getLong("implicit_wait"), 7);
+                Assert.assertEquals(config.getSource("implicit_wait"), "system property implicit_wait");
+                Assert.assertEquals(config.getDouble("slow_node_ratio"), 1.5, "default");
+                Assert.assertNull(config.getSource("slow_node_ratio"));
+                Assert.assertFalse(config.isSet("driver_pool_size"));
+                Assert.assertEquals(config.getList("remote_nodes"), List.of("http://a:4444", "http://b:4444"));
+                Assert.assertThrows(UnsupportedOperationException.class, () -> config.getList("remote_nodes").add("x"));
+        }
+
+        @Test
+        public void testInvalidAndMissingValuesAreCollectedAsProblems() {
+                ConfigSnapshot config = ConfigSnapshot.resolve(schema(), null,
+                                files(Map.of("url", "", "implicit_wait", "ten", "headless", "yes", "execution_mode", "tabs"), null),
+                                Map.of(), Map.of());
+
+                List<String> problems = config.getProblems();
+                Assert.assertEquals(problems.size(), 4, problems.toString());
+                Assert.assertTrue(problems.stream().anyMatch(p -> p.startsWith("implicit_wait=ten from config.properties")), problems.toString());
+                Assert.assertTrue(problems.stream().anyMatch(p -> p.contains("expected true or false")), problems.toString());
+                Assert.assertTrue(problems.stream().anyMatch(p -> p.contains("expected one of [driver_per_thread, contexts]")), problems.toString());
+                Assert.assertTrue(problems.stream().anyMatch(p -> p.startsWith("Missing required key base_url")
+                                && p.contains("url is only an alias") && p.contains("local_app=true")), problems.toString());
+                Assert.assertEquals(config.getWarnings(), List.of("url in config.properties is an alias of base_url; rename it"));
+
+                ConfigSnapshot local = ConfigSnapshot.resolve(schema(), null, files(Map.of(), null), Map.of("LOCAL_APP", "true"), Map.of());
+                Assert.assertTrue(local.getProblems().isEmpty(), local.getProblems().toString());
+        }
+
+        @Test
+        public void testAliasesAndUnknownKeysAreReported() {
+                ConfigSnapshot aliased = ConfigSnapshot.resolve(schema(), null,
+                                files(Map.of("url", "https://example.test", "implict_wait", "5", "pool.1.user_email", "a@example.test"), null),
+                                Map.of("POOL_2_USER_EMAIL", "b@example.test"), Map.of());
+
+                Assert.assertTrue(aliased.getProblems().isEmpty(), aliased.getProblems().toString());
+                Assert.assertEquals(aliased.getString("base_url"), "https://example.test");
+                Assert.assertEquals(aliased.getString("pool.2.user_email"), "b@example.test");
+                Assert.assertEquals(new TreeSet<>(aliased.getWarnings()), new TreeSet<>(List.of(
+                                "Unknown key implict_wait in config.properties; did you mean implicit_wait?",
+                                "url in config.properties is read as base_url; rename it")));
+
+                ConfigSnapshot conflicting = ConfigSnapshot.resolve(schema(), null,
+                                files(Map.of("url", "https://old.example.test", "base_url", "https://new.example.test"), null),
+                                Map.of(), Map.of());
+                Assert.assertEquals(conflicting.getProblems().size(), 1, conflicting.getProblems().toString());
+                Assert.assertTrue(conflicting.getProblems().get(0).startsWith("url and base_url in config.properties disagree"));
+        }
+}
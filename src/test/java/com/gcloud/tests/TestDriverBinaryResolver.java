@@ -0,0 +1,48 @@
+package com.gcloud.tests;
+
+import com.gcloud.driver.DriverBinaryResolver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestDriverBinaryResolver {
+
+        @Test
+        public void testOfflineModeUsesCachedBinaryForChromeMajorVersion() throws Exception {
+                Path cacheDir = Files.createTempDirectory("driver-cache");
+                Path binary = Files.createFile(cacheDir.resolve("chromedriver"));
+                binary.toFile().setExecutable(true);
+                Files.writeString(cacheDir.resolve("chromedriver-cache.properties"), "120=" + binary + "\n");
+
+                DriverBinaryResolver.Resolved resolved =
+                                new DriverBinaryResolver(cacheDir, true, null, "120.0.6099.109").resolve();
+
+                Assert.assertEquals(resolved.getDriverPath(), binary.toString());
+                Assert.assertEquals(resolved.getSource(), "cache");
+        }
+
+        @Test
+        public void testOfflineModeFailsClearlyWithoutMatchingBinary() throws Exception {
+                Path cacheDir = Files.createTempDirectory("driver-cache");
+                Files.writeString(cacheDir.resolve("chromedriver-cache.properties"), "119=/missing/chromedriver\n");
+
+                RuntimeException error = Assert.expectThrows(RuntimeException.class,
+                                () -> new DriverBinaryResolver(cacheDir, true, null, "120.0.6099.109").resolve());
+
+                Assert.assertTrue(error.getMessage().contains("Offline driver mode"), error.getMessage());
+                Assert.assertTrue(error.getMessage().contains("major 120"), error.getMessage());
+        }
+
+        @Test
+        public void testProvisionedBinaryIsUsedAsIs() throws Exception {
+                Path binary = Files.createTempFile("chromedriver", "");
+                binary.toFile().setExecutable(true);
+
+                DriverBinaryResolver.Resolved resolved = new DriverBinaryResolver(
+                                Files.createTempDirectory("driver-cache"), true, binary.toString(), null).resolve();
+
+                Assert.assertEquals(resolved.getSource(), "provisioned");
+        }
+}
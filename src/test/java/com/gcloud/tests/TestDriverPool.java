@@ -0,0 +1,159 @@
+package com.gcloud.tests;
+
+import com.gcloud.driver.DriverLease;
+import com.gcloud.driver.DriverPool;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class TestDriverPool {
+
+        /**
+         * A session without a browser. It fails its health check once
+         * {@code broken} is set and remembers whether it was quit.
+         */
+        private static class FakeSession {
+                final int id;
+                boolean broken;
+                boolean quit;
+                final WebDriver driver;
+
+                FakeSession(int id) {
+                        this.id = id;
+                        Object[] self = new Object[1];
+                        Object helper = Proxy.newProxyInstance(TestDriverPool.class.getClassLoader(),
+                                        new Class<?>[] { WebDriver.TargetLocator.class, WebDriver.Options.class },
+                                        (proxy, method, args) -> method.getReturnType() == WebDriver.class ? self[0] : null);
+                        self[0] = Proxy.newProxyInstance(TestDriverPool.class.getClassLoader(),
+                                        new Class<?>[] { WebDriver.class, JavascriptExecutor.class }, (proxy, method, args) -> {
+                                                switch (method.getName()) {
+                                                        case "getWindowHandle":
+                                                                if (broken) {
+                                                                        throw new WebDriverException("session " + id + " is gone");
+                                                                }
+                                                                return "main";
+                                                        case "getWindowHandles":
+                                                                return Set.of("main");
+                                                        case "switchTo":
+                                                        case "manage":
+                                                                return helper;
+                                                        case "quit":
+                                                                quit = true;
+                                                                return null;
+                                                        case "hashCode":
+                                                                return System.identityHashCode(proxy);
+                                                        case "equals":
+                                                                return proxy == args[0];
+                                                        case "toString":
+                                                                return "fake-" + id;
+                                                        default:
+                                                                return null;
+                                                }
+                                        });
+                        driver = (WebDriver) self[0];
+                }
+        }
+
+        private final List<FakeSession> started = new ArrayList<>();
+
+        @BeforeMethod
+        public void clearSessions() {
+                started.clear();
+        }
+
+        private Supplier<WebDriver> factory() {
+                AtomicInteger ids = new AtomicInteger();
+                return () -> {
+                        FakeSession session = new FakeSession(ids.incrementAndGet());
+                        started.add(session);
+                        return session.driver;
+                };
+        }
+
+        @Test
+        public void testSessionsAreReusedUpToMaxUses() {
+                DriverPool pool = new DriverPool(factory(), 1, 2);
+
+                DriverLease first = pool.acquire(Duration.ofSeconds(1));
+                Assert.assertFalse(first.isReused());
+                pool.release(first);
+                DriverLease second = pool.acquire(Duration.ofSeconds(1));
+                Assert.assertSame(second.getDriver(), first.getDriver());
+                Assert.assertTrue(second.isReused());
+                Assert.assertEquals(second.getStartupMillis(), 0);
+                pool.release(second);
+
+                Assert.assertTrue(started.get(0).quit, "a session at its reuse limit is quit on release");
+                DriverLease third = pool.acquire(Duration.ofSeconds(1));
+                Assert.assertNotSame(third.getDriver(), first.getDriver());
+                Assert.assertEquals(third.getUses(), 1);
+                Assert.assertEquals(started.size(), 2);
+        }
+
+        @Test
+        public void testUnhealthyIdleSessionIsDroppedAndReplaced() {
+                DriverPool pool = new DriverPool(factory(), 1, 10);
+                DriverLease first = pool.acquire(Duration.ofSeconds(1));
+                pool.release(first);
+
+                started.get(0).broken = true;
+                DriverLease next = pool.acquire(Duration.ofSeconds(1));
+
+                Assert.assertTrue(started.get(0).quit, "the session that failed getWindowHandle is quit");
+                Assert.assertSame(next.getDriver(), started.get(1).driver);
+                Assert.assertFalse(next.isReused());
+        }
+
+        @Test
+        public void testFailedStartReleasesItsSlot() {
+                Supplier<WebDriver> working = factory();
+                AtomicInteger calls = new AtomicInteger();
+                DriverPool pool = new DriverPool(() -> {
+                        if (calls.incrementAndGet() == 1) {
+                                throw new SessionNotCreatedException("no browser");
+                        }
+                        return working.get();
+                }, 1, 10);
+
+                Assert.assertThrows(SessionNotCreatedException.class, () -> pool.acquire(Duration.ofSeconds(1)));
+                // with the only slot leaked this would time out
+                DriverLease lease = pool.acquire(Duration.ofMillis(200));
+                Assert.assertSame(lease.getDriver(), started.get(0).driver);
+        }
+
+        @Test
+        public void testRetiredSessionIsQuitBelowTheReuseLimit() {
+                // like a session on a slow node: only the first one is retired
+                DriverPool pool = new DriverPool(factory(), 1, 10, driver -> driver == started.get(0).driver);
+
+                pool.release(pool.acquire(Duration.ofSeconds(1)));
+                Assert.assertTrue(started.get(0).quit, "a retired session is not returned to the pool");
+
+                DriverLease kept = pool.acquire(Duration.ofSeconds(1));
+                pool.release(kept);
+                Assert.assertFalse(started.get(1).quit);
+                Assert.assertSame(pool.acquire(Duration.ofSeconds(1)).getDriver(), kept.getDriver());
+        }
+
+        @Test
+        public void testAcquireTimesOutWhileEverySlotIsLeased() {
+                DriverPool pool = new DriverPool(factory(), 1, 10);
+                DriverLease held = pool.acquire(Duration.ofSeconds(1));
+
+                Assert.assertThrows(RuntimeException.class, () -> pool.acquire(Duration.ofMillis(50)));
+                pool.release(held);
+                Assert.assertSame(pool.acquire(Duration.ofMillis(50)).getDriver(), held.getDriver());
+        }
+}
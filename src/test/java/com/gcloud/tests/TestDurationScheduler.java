@@ -0,0 +1,98 @@
+package com.gcloud.tests;
+
+import com.gcloud.driver.RemoteNodes;
+import com.gcloud.metrics.TestDurations;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+public class TestDurationScheduler {
+
+        @Test
+        public void testPredictionsComeFromPreviousRunsAndOrderLongestFirst() throws Exception {
+                Path file = Files.createTempDirectory("durations").resolve("test-durations.json");
+                TestDurations first = new TestDurations(file);
+                for (long millis : new long[] { 900, 1_000, 5_000 }) {
+                        first.record("TestFlow.testLong", millis);
+                }
+                first.record("TestFlow.testShort", 100);
+                first.record("TestFlow.testMedium", 400);
+                first.record("TestFlow.testMedium", 400);
+                Assert.assertFalse(first.isKnown("TestFlow.testLong"), "this run only counts for the next one");
+                first.save();
+
+                TestDurations next = new TestDurations(file);
+                Assert.assertEquals(next.predictInvocation("TestFlow.testLong"), 1_000, "median per invocation");
+                Assert.assertEquals(next.predict("TestFlow.testLong"), 3_000, "times last run's invocations");
+                Assert.assertEquals(next.predict("TestFlow.testMedium"), 800);
+                Assert.assertEquals(next.predictInvocation("TestFlow.testNew"), -1);
+                Assert.assertEquals(next.predict("TestFlow.testNew"), 800, "median of the known tests");
+
+                List<String> ordered = next.longestFirst(
+                                List.of("TestFlow.testShort", "TestFlow.testNew", "TestFlow.testLong", "TestFlow.testMedium"),
+                                Function.identity());
+                Assert.assertEquals(ordered, List.of("TestFlow.testLong", "TestFlow.testNew", "TestFlow.testMedium",
+                                "TestFlow.testShort"), "ties keep their order");
+        }
+
+        @Test
+        public void testLongestFirstShortensTheMakespan() {
+                List<Long> declared = List.of(1L, 1L, 1L, 1L, 4L);
+                List<Long> longestFirst = new ArrayList<>(declared);
+                longestFirst.sort((a, b) -> Long.compare(b, a));
+
+                Assert.assertEquals(TestDurations.makespan(declared, 2), 6);
+                Assert.assertEquals(TestDurations.makespan(longestFirst, 2), 4);
+                Assert.assertEquals(TestDurations.makespan(longestFirst, 1), 8);
+                Assert.assertEquals(TestDurations.makespan(List.of(), 3), 0);
+        }
+
+        @Test
+        public void testSessionsAvoidASlowNodeAndItsSessionsAreRetired() throws Exception {
+                URL fast = new URL("http://127.0.0.1:4444");
+                URL slow = new URL("http://127.0.0.1:4445");
+                List<URL> started = new ArrayList<>();
+                RemoteNodes nodes = new RemoteNodes(List.of(fast, slow), 2, 1.5, url -> {
+                        started.add(url);
+                        return fakeDriver();
+                });
+
+                WebDriver a = nodes.create();
+                WebDriver b = nodes.create();
+                Assert.assertEquals(started, List.of(fast, slow), "spread by load");
+
+                nodes.testFinished(a, 1_000, 1_000);
+                nodes.testFinished(b, 1_000, 2_500);
+                Assert.assertTrue(nodes.shouldRetire(b));
+                Assert.assertFalse(nodes.shouldRetire(a));
+
+                b.quit();
+                nodes.create();
+                nodes.create();
+                Assert.assertEquals(started.subList(2, 4), List.of(fast, slow),
+                                "the slow node only gets sessions once the others are full");
+                Assert.assertTrue(nodes.getNodeStats().get(1).contains("(slow)"), nodes.getNodeStats().toString());
+        }
+
+        private static WebDriver fakeDriver() {
+                return (WebDriver) Proxy.newProxyInstance(TestDurationScheduler.class.getClassLoader(),
+                                new Class<?>[] { WebDriver.class }, (proxy, method, args) -> {
+                                        switch (method.getName()) {
+                                                case "hashCode":
+                                                        return System.identityHashCode(proxy);
+                                                case "equals":
+                                                        return proxy == args[0];
+                                                default:
+                                                        return null;
+                                        }
+                                });
+        }
+}
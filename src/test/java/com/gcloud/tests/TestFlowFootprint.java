@@ -0,0 +1,30 @@
+package com.gcloud.tests;
+
+import com.gcloud.metrics.FlowFootprint;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestFlowFootprint {
+
+        @Test
+        public void testFootprintDividesPeakMemoryByConcurrentFlows() {
+                AtomicLong rss = new AtomicLong(100L << 20);
+                FlowFootprint footprint = new FlowFootprint("contexts", rss::get);
+                footprint.flowStarted();
+                footprint.flowStarted();
+                rss.set(400L << 20);
+                footprint.flowEnded();
+                rss.set(300L << 20);
+                footprint.flowEnded();
+
+                Assert.assertEquals(footprint.getFlows(), 2);
+                Assert.assertEquals(footprint.getPeakFlows(), 2);
+                Assert.assertEquals(footprint.getPeakRssBytes(), 400L << 20);
+                Assert.assertEquals(footprint.getBytesPerFlow(), 200L << 20);
+                Assert.assertTrue(footprint.toString().contains("200 MB per flow"), footprint.toString());
+
+                Assert.assertEquals(new FlowFootprint("contexts", () -> -1).getBytesPerFlow(), -1);
+        }
+}
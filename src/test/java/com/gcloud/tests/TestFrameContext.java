@@ -0,0 +1,178 @@
+package com.gcloud.tests;
+
+import com.gcloud.helpers.AdaptiveWait;
+import com.gcloud.helpers.FrameContext;
+import com.gcloud.metrics.WaitHistory;
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TestFrameContext {
+
+        private final By a = By.id("a");
+        private final By b = By.id("b");
+        private final By c = By.id("c");
+
+        /**
+         * Every command the fake driver received, e.g. {@code find a},
+         * {@code frame a}, {@code parent}, {@code default}, {@code window w1}.
+         */
+        private final List<String> calls = new ArrayList<>();
+        private final Map<WebElement, String> names = new IdentityHashMap<>();
+        private final Set<WebElement> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+        private FrameContext frames;
+
+        @BeforeMethod
+        public void openWindow() {
+                calls.clear();
+                names.clear();
+                stale.clear();
+                WebDriver driver = fakeDriver();
+                frames = new FrameContext(driver, new AdaptiveWait(driver, Duration.ofSeconds(1), new WaitHistory(null, true)));
+                frames.window("w1");
+                calls.clear();
+        }
+
+        private WebDriver fakeDriver() {
+                ClassLoader loader = TestFrameContext.class.getClassLoader();
+                Object[] self = new Object[1];
+                WebDriver.TargetLocator locator = (WebDriver.TargetLocator) Proxy.newProxyInstance(loader,
+                                new Class<?>[] { WebDriver.TargetLocator.class }, (proxy, method, args) -> {
+                                        switch (method.getName()) {
+                                                case "window":
+                                                        calls.add("window " + args[0]);
+                                                        break;
+                                                case "defaultContent":
+                                                        calls.add("default");
+                                                        break;
+                                                case "parentFrame":
+                                                        calls.add("parent");
+                                                        break;
+                                                case "frame":
+                                                        WebElement frame = (WebElement) args[0];
+                                                        calls.add("frame " + names.get(frame));
+                                                        if (stale.contains(frame)) {
+                                                                throw new StaleElementReferenceException("frame was re-rendered");
+                                                        }
+                                                        break;
+                                                default:
+                                                        throw new UnsupportedOperationException(method.getName());
+                                        }
+                                        return self[0];
+                                });
+                self[0] = Proxy.newProxyInstance(loader, new Class<?>[] { WebDriver.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                                case "switchTo":
+                                        return locator;
+                                case "findElement":
+                                        String name = args[0].toString().replace("By.id: ", "");
+                                        calls.add("find " + name);
+                                        WebElement element = (WebElement) Proxy.newProxyInstance(loader,
+                                                        new Class<?>[] { WebElement.class }, (p, m, x) -> {
+                                                                switch (m.getName()) {
+                                                                        case "hashCode":
+                                                                                return System.identityHashCode(p);
+                                                                        case "equals":
+                                                                                return p == x[0];
+                                                                        default:
+                                                                                return null;
+                                                                }
+                                                        });
+                                        names.put(element, name);
+                                        return element;
+                                default:
+                                        throw new UnsupportedOperationException(method.getName());
+                        }
+                });
+                return (WebDriver) self[0];
+        }
+
+        @Test
+        public void testDescendSiblingAndAscendSendOnlyTheDifference() {
+                frames.enter(a, b);
+                Assert.assertEquals(calls, List.of("find a", "frame a", "find b", "frame b"));
+
+                calls.clear();
+                frames.enter(a, b);
+                Assert.assertEquals(calls, List.of(), "the current frame needs no switch");
+
+                calls.clear();
+                frames.enter(a, c);
+                Assert.assertEquals(calls, List.of("parent", "find c", "frame c"), "sibling: one level up, one down");
+
+                calls.clear();
+                frames.enter(a);
+                Assert.assertEquals(calls, List.of("parent"));
+
+                calls.clear();
+                frames.top();
+                Assert.assertEquals(calls, List.of("parent"));
+        }
+
+        @Test
+        public void testDistantFrameRestartsFromTheTop() {
+                By d = By.id("d");
+                frames.enter(a, b, c);
+                calls.clear();
+
+                frames.enter(d);
+                Assert.assertEquals(calls, List.of("default", "find d", "frame d"),
+                                "climbing three levels costs more than restarting from the top");
+        }
+
+        @Test
+        public void testFramesAreCachedPerWindowAndStaleOnesResolvedAgain() {
+                frames.enter(a, b);
+                frames.top();
+                calls.clear();
+
+                frames.enter(a, b);
+                Assert.assertEquals(calls, List.of("frame a", "frame b"), "cached frames need no lookup");
+                Assert.assertEquals(frames.getLookupsAvoided(), 2);
+
+                frames.top();
+                names.keySet().stream().filter(e -> names.get(e).equals("a")).forEach(stale::add);
+                calls.clear();
+                frames.enter(a);
+                Assert.assertEquals(calls, List.of("frame a", "find a", "frame a"),
+                                "a stale cached frame is looked up again");
+                Assert.assertTrue(frames.toString().contains("(1 stale)"), frames.toString());
+
+                frames.window("w2");
+                calls.clear();
+                frames.enter(a);
+                Assert.assertEquals(calls, List.of("find a", "frame a"), "another window has its own frames");
+        }
+
+        @Test
+        public void testRunInRestoresThePreviousFrame() {
+                frames.enter(a);
+                calls.clear();
+
+                frames.runIn(() -> calls.add("block"), a, b);
+                Assert.assertEquals(calls, List.of("find b", "frame b", "block", "parent"));
+
+                calls.clear();
+                RuntimeException failure = new IllegalStateException("block failed");
+                RuntimeException thrown = Assert.expectThrows(IllegalStateException.class,
+                                () -> frames.runIn(() -> {
+                                        throw failure;
+                                }, c));
+                Assert.assertSame(thrown, failure);
+                Assert.assertEquals(calls, List.of("parent", "find c", "frame c", "parent", "frame a"),
+                                "a failed block still returns to the previous frame");
+        }
+}
@@ -0,0 +1,52 @@
+package com.gcloud.tests;
+
+import com.gcloud.fixtures.LocalAppServer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class TestLocalAppServer {
+
+        private final HttpClient client = HttpClient.newHttpClient();
+
+        @Test
+        public void testServesFixturePagesTheFlowDependsOn() throws Exception {
+                try (LocalAppServer server = LocalAppServer.start()) {
+                        Assert.assertTrue(get(server, "").body().contains("More Login Options"));
+                        Assert.assertTrue(get(server, "credentials.html").body().contains("id=\"password\""));
+                        Assert.assertTrue(get(server, "app.html").body().contains("navigation-menu"));
+                        Assert.assertTrue(get(server, "module.html").body().contains("wem-game-progress-bar"));
+                        Assert.assertTrue(get(server, "assessment.html").body().contains("gux-form-field-radio"));
+
+                        HttpResponse<String> script = get(server, "components.js");
+                        Assert.assertTrue(script.headers().firstValue("Content-Type").orElse("").startsWith("application/javascript"));
+                }
+        }
+
+        @Test
+        public void testUnknownAndEscapingPathsAreNotFound() throws Exception {
+                try (LocalAppServer server = LocalAppServer.start()) {
+                        Assert.assertEquals(get(server, "missing.html").statusCode(), 404);
+                        Assert.assertEquals(get(server, "../credentials.template.properties").statusCode(), 404);
+                }
+        }
+
+        @Test
+        public void testStartsAndStops() {
+                // the startup time is only reported; the benchmarks track it
+                long start = System.nanoTime();
+                try (LocalAppServer server = LocalAppServer.start()) {
+                        Assert.assertTrue(server.getBaseUrl().startsWith("http://"), server.getBaseUrl());
+                }
+                System.out.println("Local app server started and stopped in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        }
+
+        private HttpResponse<String> get(LocalAppServer server, String path) throws Exception {
+                return client.send(HttpRequest.newBuilder(URI.create(server.getBaseUrl() + path)).build(),
+                                HttpResponse.BodyHandlers.ofString());
+        }
+}
@@ -0,0 +1,141 @@
+package com.gcloud.tests;
+
+import com.gcloud.base.LocatorBudgetListener;
+import com.gcloud.metrics.LocatorProfiler;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class TestLocatorProfiler {
+
+        /**
+         * A driver without a browser: page scripts report fixed costs, and the
+         * wrapped script reports a whole-document scan.
+         */
+        private static final List<String> asyncScripts = new ArrayList<>();
+
+        private static WebDriver fakeDriver() {
+                return (WebDriver) Proxy.newProxyInstance(TestLocatorProfiler.class.getClassLoader(),
+                                new Class<?>[] { WebDriver.class, JavascriptExecutor.class }, (proxy, method, args) -> {
+                                        switch (method.getName()) {
+                                                case "executeScript":
+                                                        String script = (String) args[0];
+                                                        if (script.contains("__gcloudProfile")) {
+                                                                return Map.of("__gcloudProfile", true, "value", "42", "millis", 80.0, "nodes", 5000L);
+                                                        }
+                                                        return Map.of("millis", 2.0, "nodes", 12L, "found", 1L);
+                                                case "executeAsyncScript":
+                                                        asyncScripts.add((String) args[0]);
+                                                        return Map.of("__gcloudProfile", true, "value", "done", "millis", 900.0, "nodes", 3L);
+                                                case "findElements":
+                                                        return List.of();
+                                                case "hashCode":
+                                                        return System.identityHashCode(proxy);
+                                                case "equals":
+                                                        return proxy == args[0];
+                                                default:
+                                                        return null;
+                                        }
+                                });
+        }
+
+        @Test
+        public void testScriptsAndLookupsAreRankedByInPageCost() {
+                LocatorProfiler profiler = new LocatorProfiler(0);
+                WebDriver driver = profiler.decorate(fakeDriver());
+
+                Object value = ((JavascriptExecutor) driver).executeScript("return document.querySelectorAll('*').length;");
+                driver.findElements(By.xpath("//*[contains(text(), '% complete')]"));
+                driver.findElements(By.xpath("//*[contains(text(), '% complete')]"));
+
+                Assert.assertEquals(value, "42", "the wrapper's report is unwrapped");
+                List<Map<String, Object>> ranking = profiler.getRanking();
+                Assert.assertEquals(ranking.size(), 2);
+                Assert.assertTrue(((String) ranking.get(0).get("name")).startsWith("script return document.querySelectorAll"));
+                Assert.assertEquals(ranking.get(0).get("nodes"), 5000L);
+                Assert.assertEquals(ranking.get(1).get("name"), "locator By.xpath: //*[contains(text(), '% complete')]");
+                Assert.assertEquals(ranking.get(1).get("calls"), 2L);
+                Assert.assertEquals(ranking.get(1).get("pageMillis"), 4.0);
+                Assert.assertTrue(profiler.getOverBudget().isEmpty(), "no budget configured");
+        }
+
+        @Test
+        public void testCallsOverBudgetAreReported() {
+                LocatorProfiler profiler = new LocatorProfiler(50);
+                WebDriver driver = profiler.decorate(fakeDriver());
+
+                driver.findElements(By.id("cheap"));
+                ((JavascriptExecutor) driver).executeScript("return 1;");
+
+                List<String> overBudget = profiler.getOverBudget();
+                Assert.assertEquals(overBudget.size(), 1, overBudget.toString());
+                Assert.assertTrue(overBudget.get(0).startsWith("script return 1;"), overBudget.get(0));
+        }
+
+        @Test
+        public void testAsyncScriptsAreRankedButNotHeldToTheBudget() {
+                asyncScripts.clear();
+                LocatorProfiler profiler = new LocatorProfiler(50);
+                WebDriver driver = profiler.decorate(fakeDriver());
+
+                Object value = ((JavascriptExecutor) driver).executeAsyncScript("setTimeout(arguments[0], 800);");
+
+                Assert.assertEquals(value, "done", "the wrapper's report is unwrapped");
+                Assert.assertTrue(asyncScripts.get(0).contains("const asyncScript = true"),
+                                "the wrapper measures until the callback");
+                List<Map<String, Object>> ranking = profiler.getRanking();
+                Assert.assertEquals(ranking.get(0).get("name"), "async script setTimeout(arguments[0], 800);");
+                Assert.assertEquals(ranking.get(0).get("pageMillis"), 900.0);
+                Assert.assertTrue(profiler.getOverBudget().isEmpty(), "waiting in the page is not a slow script");
+        }
+
+        @Test
+        public void testBudgetViolationFailsTheTestInTestNG() {
+                TestListenerAdapter results = new TestListenerAdapter();
+                TestNG testng = new TestNG(false);
+                testng.setVerbose(0);
+                testng.setTestClasses(new Class<?>[] { ProfiledFlow.class });
+                testng.addListener(new LocatorBudgetListener());
+                testng.addListener(results);
+                testng.run();
+
+                Assert.assertEquals(results.getPassedTests().size(), 1, "within budget");
+                Assert.assertEquals(results.getFailedTests().size(), 1, "over budget");
+                Assert.assertEquals(results.getFailedTests().get(0).getName(), "overBudget");
+                Assert.assertTrue(results.getFailedTests().get(0).getThrowable().getMessage().contains("locator_budget_ms"));
+                Assert.assertNull(LocatorProfiler.current());
+        }
+
+        /**
+         * Run by TestNG inside {@link #testBudgetViolationFailsTheTestInTestNG()}.
+         */
+        public static class ProfiledFlow {
+
+                @Test
+                public void overBudget() {
+                        WebDriver driver = LocatorProfiler.begin(50).decorate(fakeDriver());
+                        ((JavascriptExecutor) driver).executeScript("return 1;");
+                }
+
+                @Test
+                public void withinBudget() {
+                        WebDriver driver = LocatorProfiler.begin(50).decorate(fakeDriver());
+                        driver.findElements(By.id("cheap"));
+                }
+
+                @AfterMethod(alwaysRun = true)
+                public void tearDown() {
+                        LocatorProfiler.end();
+                }
+        }
+}
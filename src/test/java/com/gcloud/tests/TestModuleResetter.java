@@ -0,0 +1,110 @@
+package com.gcloud.tests;
+
+import com.gcloud.driver.DriverFactory;
+import com.gcloud.fixtures.LocalAppServer;
+import com.gcloud.helpers.ModuleResetter;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class TestModuleResetter {
+
+        @Test
+        public void testHttpResetSendsSessionCookies() {
+                try (LocalAppServer server = LocalAppServer.start()) {
+                        ModuleResetter resetter = new ModuleResetter(null,
+                                        server.getBaseUrl() + "api/modules/{module}/reset", null);
+
+                        int status = resetter.resetViaHttp("Test Assignment 2",
+                                        List.of(new Cookie("fixture_session", "abc"), new Cookie("other", "1")));
+
+                        Assert.assertEquals(status, 204);
+                        Assert.assertEquals(server.getResetCount("Test Assignment 2"), 1);
+                        Assert.assertEquals(server.getResetCount("Test Assignment"), 0);
+                }
+        }
+
+        @Test
+        public void testHttpResetUsesTheCookiesOfTheEndpointHost() {
+                try (LocalAppServer server = LocalAppServer.start()) {
+                        String endpoint = server.getBaseUrl() + "api/modules/{module}/reset";
+                        List<Object> requestedUrls = new ArrayList<>();
+                        // the page is on another host, so its own cookies would not authenticate the call
+                        WebDriver browser = (WebDriver) Proxy.newProxyInstance(TestModuleResetter.class.getClassLoader(),
+                                        new Class<?>[] { WebDriver.class, HasCdp.class }, (proxy, method, args) -> {
+                                                switch (method.getName()) {
+                                                        case "executeCdpCommand":
+                                                                requestedUrls.addAll((List<?>) ((Map<?, ?>) args[1]).get("urls"));
+                                                                return Map.of("cookies", List.of(Map.of("name", "fixture_session", "value", "abc")));
+                                                        case "getCurrentUrl":
+                                                                return "https://app.example.test/landing";
+                                                        default:
+                                                                throw new UnsupportedOperationException(method.getName());
+                                                }
+                                        });
+
+                        ModuleResetter.Result result = new ModuleResetter(browser, endpoint, null).reset("Test Assignment 2");
+
+                        Assert.assertEquals(result.getMethod(), "http");
+                        Assert.assertEquals(requestedUrls, List.of(server.getBaseUrl() + "api/modules/Test%20Assignment%202/reset"));
+                        Assert.assertEquals(server.getResetCount("Test Assignment 2"), 1);
+                }
+        }
+
+        @Test
+        public void testHttpResetWithoutSessionIsRejected() {
+                try (LocalAppServer server = LocalAppServer.start()) {
+                        ModuleResetter resetter = new ModuleResetter(null,
+                                        server.getBaseUrl() + "api/modules/{module}/reset", null);
+
+                        Assert.assertEquals(resetter.resetViaHttp("Test Assignment", List.of()), 401);
+                        Assert.assertEquals(server.getResetCount("Test Assignment"), 0);
+                }
+        }
+
+        @Test
+        public void testUnreachableEndpointReportsFailure() {
+                String url;
+                try (LocalAppServer server = LocalAppServer.start()) {
+                        url = server.getBaseUrl() + "api/modules/{module}/reset";
+                }
+                Assert.assertEquals(new ModuleResetter(null, url, null).resetViaHttp("Test Assignment", List.of()), -1);
+        }
+
+        @Test
+        public void testUiFallbackResetsTheNamedRow() {
+                try (LocalAppServer server = LocalAppServer.start()) {
+                        WebDriver driver;
+                        try {
+                                driver = new DriverFactory("chrome", true).create();
+                        } catch (RuntimeException e) {
+                                throw new SkipException("Chrome is not available: " + e.getMessage());
+                        }
+                        try {
+                                driver.get(server.getBaseUrl() + "index.html");
+                                driver.manage().addCookie(new Cookie("fixture_session", "abc"));
+                                // the endpoint does not exist, so every reset falls back to the Development Page
+                                ModuleResetter resetter = new ModuleResetter(driver,
+                                                server.getBaseUrl() + "missing/{module}/reset", server.getBaseUrl() + "development.html");
+
+                                Assert.assertEquals(resetter.reset("Test Assignment 2").getMethod(), "ui");
+                                Assert.assertEquals(server.getResetCount("Test Assignment 2"), 1);
+                                Assert.assertEquals(server.getResetCount("Test Assignment"), 0);
+
+                                Assert.assertEquals(resetter.reset("Manager's Review").getMethod(), "ui");
+                                Assert.assertEquals(server.getResetCount("Manager's Review"), 1);
+                                Assert.assertEquals(driver.getCurrentUrl(), server.getBaseUrl() + "index.html");
+                        } finally {
+                                driver.quit();
+                        }
+                }
+        }
+}
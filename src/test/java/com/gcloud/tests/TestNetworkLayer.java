@@ -0,0 +1,102 @@
+package com.gcloud.tests;
+
+import com.gcloud.fixtures.LocalAppServer;
+import com.gcloud.network.AssetCache;
+import com.gcloud.network.NetworkLayer;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestNetworkLayer {
+
+        private final HttpClient client = HttpClient.newHttpClient();
+
+        @Test
+        public void testBlocksAndCachesAgainstTheFixtureServer() throws Exception {
+                Path dir = Files.createTempDirectory("asset-cache");
+                AtomicInteger fetched = new AtomicInteger();
+                try (LocalAppServer server = LocalAppServer.start()) {
+                        NetworkLayer layer = new NetworkLayer(List.of("*/telemetry/*"), List.of(), new AssetCache(dir, 1024 * 1024));
+                        HttpHandler browser = layer.apply(fetchFrom(fetched));
+
+                        Assert.assertEquals(browser.execute(get(server, "telemetry/collect")).getStatus(), 204);
+                        Assert.assertEquals(fetched.get(), 0, "blocked requests never reach the server");
+
+                        String vendor = Contents.utf8String(browser.execute(get(server, "static/vendor.js")).getContent());
+                        Assert.assertEquals(fetched.get(), 1);
+                        HttpResponse cached = browser.execute(get(server, "static/vendor.js"));
+                        Assert.assertEquals(fetched.get(), 1, "immutable assets are served from the cache");
+                        Assert.assertEquals(Contents.utf8String(cached.getContent()), vendor);
+                        Assert.assertTrue(cached.getHeader("Content-Type").startsWith("application/javascript"));
+
+                        browser.execute(get(server, "app.html"));
+                        browser.execute(get(server, "app.html"));
+                        Assert.assertEquals(fetched.get(), 3, "no-store pages always go to the network");
+
+                        Assert.assertEquals(layer.getStats().get("blocked"), 1L);
+                        Assert.assertEquals(layer.getStats().get("cacheHits"), 1L);
+                        Assert.assertEquals(layer.getStats().get("requestsSaved"), 2L);
+                        Assert.assertEquals(layer.getStats().get("bytesSaved"), (long) vendor.getBytes(StandardCharsets.UTF_8).length);
+                }
+        }
+
+        @Test
+        public void testCacheIsContentAddressedAndEvictsLeastRecentlyUsed() throws Exception {
+                Path dir = Files.createTempDirectory("asset-cache");
+                AssetCache cache = new AssetCache(dir, 250);
+                byte[] a = new byte[100];
+                byte[] b = new byte[100];
+                b[0] = 1;
+                byte[] c = new byte[100];
+                c[0] = 2;
+
+                cache.put("http://x/a.js", "text/javascript", null, a);
+                cache.put("http://x/copy-of-a.js", "text/javascript", null, a.clone());
+                Assert.assertEquals(cache.getAssetCount(), 1, "identical bodies share one blob");
+
+                cache.put("http://x/b.js", "text/javascript", null, b);
+                Assert.assertTrue(cache.get("http://x/a.js").isPresent());
+                cache.put("http://x/c.js", "text/javascript", null, c);
+
+                Assert.assertTrue(cache.getSizeBytes() <= 250);
+                Assert.assertFalse(cache.get("http://x/b.js").isPresent(), "least recently used body is evicted");
+                Assert.assertTrue(cache.get("http://x/copy-of-a.js").isPresent());
+
+                AssetCache reopened = new AssetCache(dir, 250);
+                Assert.assertEquals(reopened.get("http://x/c.js").orElseThrow().getBody(), c);
+                Assert.assertEquals(reopened.getSizeBytes(), cache.getSizeBytes());
+        }
+
+        private HttpHandler fetchFrom(AtomicInteger fetched) {
+                return request -> {
+                        fetched.incrementAndGet();
+                        try {
+                                java.net.http.HttpResponse<byte[]> response = client.send(
+                                                java.net.http.HttpRequest.newBuilder(URI.create(request.getUri())).build(),
+                                                java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+                                HttpResponse converted = new HttpResponse().setStatus(response.statusCode());
+                                response.headers().map().forEach((name, values) -> converted.setHeader(name, values.get(0)));
+                                converted.setContent(Contents.bytes(response.body()));
+                                return converted;
+                        } catch (Exception e) {
+                                throw new RuntimeException(e);
+                        }
+                };
+        }
+
+        private static HttpRequest get(LocalAppServer server, String path) {
+                return new HttpRequest(HttpMethod.GET, server.getBaseUrl() + path);
+        }
+}
@@ -0,0 +1,86 @@
+package com.gcloud.tests;
+
+import com.gcloud.session.SessionCache;
+import com.gcloud.session.SessionSnapshot;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public class TestSessionCache {
+
+        @Test
+        public void testSnapshotRoundTripsThroughEncryptedFile() throws Exception {
+                Path dir = Files.createTempDirectory("session-cache");
+                String key = SessionCache.keyFor("user@example.com", "org");
+                SessionSnapshot snapshot = new SessionSnapshot("https://app.example.com/landing",
+                                List.of(Map.of("name", "token", "value", "secret-token", "domain", ".example.com")),
+                                Map.of("auth", "abc"), Map.of("tab", "1"), Instant.now().plusSeconds(60));
+
+                new SessionCache(dir, "passphrase").save(key, snapshot);
+
+                byte[] onDisk = Files.readAllBytes(dir.resolve(key + ".session"));
+                Assert.assertFalse(new String(onDisk).contains("secret-token"), "Snapshot must be encrypted on disk.");
+
+                SessionSnapshot loaded = new SessionCache(dir, "passphrase").load(key).orElseThrow();
+                Assert.assertEquals(loaded.getLandingUrl(), snapshot.getLandingUrl());
+                Assert.assertEquals(loaded.getCookies().get(0).get("value"), "secret-token");
+                Assert.assertEquals(loaded.getLocalStorage(), Map.of("auth", "abc"));
+
+                Assert.assertTrue(new SessionCache(dir, "wrong").load(key).isEmpty(),
+                                "A snapshot encrypted with another passphrase must not load.");
+                Assert.assertTrue(new SessionCache(dir, "passphrase").load(key).isPresent(),
+                                "Another passphrase must leave the snapshot in place.");
+        }
+
+        @Test
+        public void testCorruptedSnapshotIsDeleted() throws Exception {
+                Path dir = Files.createTempDirectory("session-cache");
+                new SessionCache(dir, "passphrase").save("key", new SessionSnapshot("https://app.example.com", List.of(),
+                                Map.of(), Map.of(), Instant.now().plusSeconds(60)));
+                Path file = dir.resolve("key.session");
+                byte[] bytes = Files.readAllBytes(file);
+                bytes[bytes.length - 1] ^= 1;
+                Files.write(file, bytes);
+
+                Assert.assertTrue(new SessionCache(dir, "passphrase").load("key").isEmpty());
+                Assert.assertFalse(Files.exists(file));
+
+                Files.write(file, "not a snapshot".getBytes());
+                Assert.assertTrue(new SessionCache(dir, "passphrase").load("key").isEmpty());
+                Assert.assertTrue(Files.exists(file), "A file this cache did not write must be left alone.");
+        }
+
+        @Test
+        public void testLocalKeyIsGeneratedOnceAndSharedByLaterRuns() throws Exception {
+                Path dir = Files.createTempDirectory("session-cache");
+                Path keyFile = dir.resolve("home").resolve("session-cache.key");
+
+                String key = SessionCache.localKey(keyFile);
+                Assert.assertNotNull(key);
+                Assert.assertEquals(SessionCache.localKey(keyFile), key, "later runs must reuse the generated key");
+                if (keyFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                        Assert.assertEquals(PosixFilePermissions.toString(Files.getPosixFilePermissions(keyFile)), "rw-------");
+                }
+
+                new SessionCache(dir, key).save("key", new SessionSnapshot("https://app.example.com", List.of(),
+                                Map.of(), Map.of(), Instant.now().plusSeconds(60)));
+                Assert.assertTrue(new SessionCache(dir, SessionCache.localKey(keyFile)).load("key").isPresent());
+        }
+
+        @Test
+        public void testExpiredSnapshotIsEvicted() throws Exception {
+                Path dir = Files.createTempDirectory("session-cache");
+                SessionCache cache = new SessionCache(dir, "passphrase");
+                cache.save("expired", new SessionSnapshot("https://app.example.com", List.of(),
+                                Map.of(), Map.of(), Instant.now().minusSeconds(1)));
+
+                Assert.assertTrue(cache.load("expired").isEmpty());
+                Assert.assertFalse(Files.exists(dir.resolve("expired.session")));
+        }
+}
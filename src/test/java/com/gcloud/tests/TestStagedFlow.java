@@ -0,0 +1,89 @@
+package com.gcloud.tests;
+
+import com.gcloud.helpers.StagedFlow;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestStagedFlow {
+
+        @Test
+        public void testRetryResumesFromFailedStage() {
+                List<String> ran = new ArrayList<>();
+                int[] progress = {0};
+                boolean[] failOnce = {true};
+
+                StagedFlow.Result result = new StagedFlow("test", 2)
+                                .always("setup", () -> ran.add("setup"))
+                                .stage("first", () -> progress[0] >= 1, () -> {
+                                        sleep(20);
+                                        ran.add("first");
+                                        progress[0] = 1;
+                                })
+                                .stage("second", () -> progress[0] >= 2, () -> {
+                                        ran.add("second");
+                                        if (failOnce[0]) {
+                                                failOnce[0] = false;
+                                                throw new StaleElementReferenceException("flaky");
+                                        }
+                                        progress[0] = 2;
+                                })
+                                .run();
+
+                Assert.assertEquals(ran, List.of("setup", "first", "second", "setup", "second"));
+                Assert.assertEquals(result.getAttempts(), 2);
+                Assert.assertEquals(result.getResumedAt(2), "second");
+                Assert.assertTrue(result.getSavedMillis() >= 20, "saved " + result.getSavedMillis());
+        }
+
+        @Test
+        public void testStagesAlreadyDoneAreSkippedWithoutSavings() {
+                List<String> ran = new ArrayList<>();
+                StagedFlow.Result result = new StagedFlow("test", 1)
+                                .stage("done", () -> true, () -> ran.add("done"))
+                                .stage("check throws", () -> {
+                                        throw new IllegalStateException("not rendered");
+                                }, () -> ran.add("check throws"))
+                                .run();
+
+                Assert.assertEquals(ran, List.of("check throws"));
+                Assert.assertEquals(result.getOutcomes().get(0).getStatus(), StagedFlow.Status.SKIPPED);
+                Assert.assertEquals(result.getSavedMillis(), 0);
+        }
+
+        @Test
+        public void testAssertionFailureIsNotRetried() {
+                List<String> ran = new ArrayList<>();
+                int[] progress = {0};
+                StagedFlow flow = new StagedFlow("test", 3)
+                                .stage("reach 33%", () -> progress[0] >= 33, () -> {
+                                        ran.add("reach 33%");
+                                        // already past the checkpoint: a retry would see the stage as done
+                                        progress[0] = 50;
+                                        Assert.assertEquals(progress[0], 33);
+                                });
+
+                Assert.assertThrows(AssertionError.class, flow::run);
+                Assert.assertEquals(ran, List.of("reach 33%"));
+        }
+
+        @Test
+        public void testLastFailureIsRethrown() {
+                StagedFlow flow = new StagedFlow("test", 2)
+                                .always("broken", () -> {
+                                        throw new IllegalStateException("always broken");
+                                });
+                Assert.assertThrows(IllegalStateException.class, flow::run);
+        }
+
+        private static void sleep(long millis) {
+                try {
+                        Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                }
+        }
+}
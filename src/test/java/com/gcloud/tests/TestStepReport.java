@@ -0,0 +1,66 @@
+package com.gcloud.tests;
+
+import com.gcloud.metrics.CommandCounter;
+import com.gcloud.metrics.LatencyHistogram;
+import com.gcloud.metrics.Span;
+import com.gcloud.metrics.SpanRecord;
+import com.gcloud.metrics.StepReport;
+import com.gcloud.metrics.StepTimer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class TestStepReport {
+
+        @Test
+        public void testSpansNestAndCarryRetriesAndFallbacks() {
+                String test = "TestStepReport.nesting-" + System.nanoTime();
+                StepTimer.beginTest(test, new CommandCounter());
+                try (Span outer = StepTimer.span("outer")) {
+                        try (Span inner = StepTimer.span("inner")) {
+                                inner.markRetry().markFallback();
+                        }
+                } finally {
+                        StepTimer.endTest();
+                }
+
+                List<SpanRecord> records = StepTimer.getRecords().stream()
+                                .filter(r -> r.getTest().equals(test)).collect(Collectors.toList());
+                Assert.assertEquals(records.size(), 2);
+                Assert.assertEquals(records.get(0).getPath(), "outer > inner");
+                Assert.assertEquals(records.get(0).getRetries(), 1);
+                Assert.assertTrue(records.get(0).isFallback());
+                Assert.assertEquals(records.get(1).getPath(), "outer");
+        }
+
+        @Test
+        public void testHistogramPercentiles() {
+                LatencyHistogram histogram = new LatencyHistogram();
+                for (long i = 1; i <= 100; i++) {
+                        histogram.record(i);
+                }
+                Assert.assertEquals(histogram.percentile(50), 50);
+                Assert.assertEquals(histogram.percentile(95), 95);
+                Assert.assertEquals(histogram.percentile(99), 99);
+                Assert.assertEquals(new LatencyHistogram().percentile(50), -1);
+        }
+
+        @Test
+        public void testHistoryAccumulatesAcrossRuns() throws Exception {
+                Path dir = Files.createTempDirectory("step-timings");
+                StepReport report = new StepReport(dir);
+                report.write("run1", List.of(new SpanRecord("t", "login, fast", "login, fast", 0, 10, 3, 0, false)));
+                report.write("run2", List.of(new SpanRecord("t", "login, fast", "login, fast", 0, 30, 3, 0, false)));
+
+                Map<String, LatencyHistogram> history = report.readHistory();
+                Assert.assertEquals(history.get("login, fast").count(), 2);
+                Assert.assertEquals(history.get("login, fast").percentile(99), 30);
+                Assert.assertTrue(Files.exists(dir.resolve("steps-run2.json")));
+                Assert.assertTrue(Files.readString(dir.resolve("step-summary.json")).contains("\"p95\""));
+        }
+}
@@ -0,0 +1,56 @@
+// Minimal stand-ins for the Genesys UI custom elements the page objects rely on.
+
+customElements.define('gux-button', class extends HTMLElement {
+    connectedCallback() {
+        if (this.shadowRoot) return;
+        const root = this.attachShadow({ mode: 'open' });
+        root.innerHTML = '<button type="button"><slot></slot></button>';
+    }
+});
+
+// Renders its own radio input in the shadow root unless one is slotted in.
+customElements.define('gux-form-field-radio', class extends HTMLElement {
+    connectedCallback() {
+        if (this.shadowRoot) return;
+        const root = this.attachShadow({ mode: 'open' });
+        if (this.querySelector('input')) {
+            root.innerHTML = '<slot></slot>';
+            return;
+        }
+        root.innerHTML = '<input type="radio"><slot></slot>';
+        const input = root.querySelector('input');
+        input.name = this.getAttribute('name');
+        input.value = this.getAttribute('value');
+        input.addEventListener('change', () => {
+            document.querySelectorAll('gux-form-field-radio[name="' + input.name + '"]').forEach(other => {
+                if (other !== this && other.shadowRoot) other.shadowRoot.querySelector('input').checked = false;
+            });
+            this.dispatchEvent(new CustomEvent('answer', { bubbles: true, detail: input.value }));
+        });
+    }
+});
+
+customElements.define('gux-form-field-textarea', class extends HTMLElement {
+    connectedCallback() {
+        if (this.shadowRoot) return;
+        this.attachShadow({ mode: 'open' }).innerHTML = '<slot name="label"></slot><slot name="input"></slot>';
+    }
+});
+
+customElements.define('gux-truncate', class extends HTMLElement {});
+
+customElements.define('wem-game-progress-bar', class extends HTMLElement {
+    static get observedAttributes() { return ['fill-percent']; }
+    connectedCallback() {
+        if (!this.shadowRoot) this.attachShadow({ mode: 'open' });
+        this.render();
+    }
+    attributeChangedCallback() { this.render(); }
+    render() {
+        if (!this.shadowRoot) return;
+        const percent = this.getAttribute('fill-percent') || '0';
+        this.shadowRoot.innerHTML = '<div class="bar" style="width:' + percent + '%"></div><span>' + percent + '% complete</span>';
+    }
+});
+
+customElements.define('wem-document-viewer-legacy', class extends HTMLElement {});
@@ -0,0 +1,3 @@
+// Stand-in for a fingerprinted UI bundle; served with an immutable Cache-Control
+// header so the network layer's asset cache can be exercised against the fixtures.
+window.fixtureVendor = { loadedAt: Date.now() };